@@ -33,4 +33,6 @@ public class OctoPrintConfiguration {
     public int baudRate;
     public String printerProfile = "";
     public int refreshInterval;
+    public boolean pushUpdates = true;
+    public int pushThrottle = 1;
 }
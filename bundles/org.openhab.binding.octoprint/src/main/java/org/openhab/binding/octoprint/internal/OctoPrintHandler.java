@@ -14,6 +14,7 @@ package org.openhab.binding.octoprint.internal;
 
 import static org.openhab.binding.octoprint.internal.OctoPrintBindingConstants.*;
 
+import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledFuture;
@@ -22,13 +23,15 @@ import java.util.concurrent.TimeoutException;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.ContentResponse;
-import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
 import org.openhab.binding.octoprint.internal.models.OctoprintServer;
 import org.openhab.binding.octoprint.internal.providers.OctoPrintChannelTypeProvider;
+import org.openhab.binding.octoprint.internal.services.CommandRequestService;
 import org.openhab.binding.octoprint.internal.services.HttpRequestService;
 import org.openhab.binding.octoprint.internal.services.PollRequestService;
-import org.openhab.core.i18n.CommunicationException;
+import org.openhab.binding.octoprint.internal.services.PushUpdateService;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.StringType;
 import org.openhab.core.thing.*;
@@ -46,6 +49,8 @@ import org.slf4j.LoggerFactory;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * The {@link OctoPrintHandler} is responsible for handling commands, which are
  * sent to the connected thing from the framework via one of the channels or updating
@@ -55,13 +60,21 @@ import com.google.gson.JsonParser;
  */
 @NonNullByDefault
 public class OctoPrintHandler extends BaseThingHandler {
+    private static final String NOT_OPERATIONAL = "Printer is currently not operational.";
+    private static final String NOT_OPERATIONAL_OR_PRINTING = "Printer is currently not operational or is printing.";
+
     // necessary services
     private final Logger logger = LoggerFactory.getLogger(OctoPrintHandler.class);
     private final OctoPrintChannelTypeProvider channelTypeProvider;
+    private final HttpClient httpClient;
+    private final WebSocketClient webSocketClient;
+    private final @Nullable MeterRegistry meterRegistry;
     private @Nullable PollRequestService pollRequestService;
+    private @Nullable PushUpdateService pushUpdateService;
     private @Nullable OctoprintServer octoprintServer;
     private @Nullable ScheduledFuture<?> pollingJob;
     private @Nullable HttpRequestService httpRequestService;
+    private @Nullable CommandRequestService commandRequestService;
 
     // because a printer can have more than one tool,
     // the tool that will be addressed, has to be stored
@@ -69,240 +82,162 @@ public class OctoPrintHandler extends BaseThingHandler {
     // instance of configuration to access the configuration parameters
     private @Nullable OctoPrintConfiguration config;
 
-    public OctoPrintHandler(Thing thing, OctoPrintChannelTypeProvider octoPrintChannelTypeProvider) {
+    public OctoPrintHandler(Thing thing, OctoPrintChannelTypeProvider octoPrintChannelTypeProvider,
+            HttpClient httpClient, WebSocketClient webSocketClient, @Nullable MeterRegistry meterRegistry) {
         super(thing);
         channelTypeProvider = octoPrintChannelTypeProvider;
+        this.httpClient = httpClient;
+        this.webSocketClient = webSocketClient;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
      * This method handles commands, send from the framework to the thing via a specific channel,
-     * builds a JSON-String and sends a http post request to the OctoPrint server to execute the
-     * command. In case of failure, a warning will be logged.
+     * builds a JSON-String and queues a http post request to the OctoPrint server to execute the
+     * command. The request is sent asynchronously, in case of failure a warning will be logged.
      * 
      * @param channelUID UID of the channel, that transmits the command; provides the channelID
      * @param command Command, that is sent via the channel
      */
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
+        CommandRequestService commandRequestService = this.commandRequestService;
+        if (commandRequestService == null) {
+            logger.debug("Ignoring command {} to {}, the handler is not initialized", command, channelUID);
+            return;
+        }
         // retrieve the channelID, set in the OctoPrintBindingConstants
         String channelId = channelUID.getId();
-        // search for matching case of channelID, build JSON object and send http post request
-        try {
-            switch (channelId) {
-                case PRINT_JOB_START:
-                    if (command instanceof StringType) {
-                        String body = "{ \"command\": \"start\" }";
-                        Response res = httpRequestService.postRequest("api/job", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - There is already a running print job.", res.getStatus(),
-                                    res);
-                        }
-                    }
-                    break;
-                case PRINT_JOB_CANCEL:
-                    if (command instanceof StringType) {
-                        String body = "{ \"command\": \"cancel\" }";
-                        Response res = httpRequestService.postRequest("api/job", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - There is no running print job to cancel.",
-                                    res.getStatus(), res);
-                        }
-                    }
-                    break;
-                case PRINT_JOB_PAUSE:
-                    if (command instanceof StringType) {
-                        String body = "{ \"command\": \"pause\", \"action\": \"pause\" }";
-                        Response res = httpRequestService.postRequest("api/job", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - There is no print job to pause/resume/toggle.",
-                                    res.getStatus(), res);
-                        }
-                    }
-                    break;
-                case PRINT_JOB_RESTART:
-                    if (command instanceof StringType) {
-                        String body = "{ \"command\": \"pause\", \"action\": \"resume\" }";
-                        Response res = httpRequestService.postRequest("api/job", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - There is no active print job that is currently paused.",
-                                    res.getStatus(), res);
-                        }
-                    }
-                    break;
-                case PRINTER_JOG_X:
-                    if (command instanceof DecimalType) {
-                        String body = String.format("{ \"command\": \"jog\", \"x\": %s, \"y\": 0, \"z\": 0 }", command);
-                        Response res = httpRequestService.postRequest("api/printer/printhead", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational or is printing.",
-                                    res.getStatus(), res);
-                        }
-                    }
-                    break;
-                case PRINTER_JOG_Y:
-                    if (command instanceof DecimalType) {
-                        String body = String.format("{ \"command\": \"jog\", \"x\": 0, \"y\": %s, \"z\": 0 }", command);
-                        Response res = httpRequestService.postRequest("api/printer/printhead", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational or is printing.",
-                                    res.getStatus(), res);
-                        }
-                    }
-                    break;
-                case PRINTER_JOG_Z:
-                    if (command instanceof DecimalType) {
-                        String body = String.format("{ \"command\": \"jog\", \"x\": 0, \"y\": 0, \"z\": %s }", command);
-                        Response res = httpRequestService.postRequest("api/printer/printhead", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational or is printing.",
-                                    res.getStatus(), res);
-                        }
-                    }
-                    break;
-                case PRINTER_HOMING_X:
-                    if (command instanceof StringType) {
-                        String body = "{ \"command\": \"home\", \"axes\": [\"x\"] }";
-                        Response res = httpRequestService.postRequest("api/printer/printhead", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational or is printing.",
-                                    res.getStatus(), res);
-                        }
-                    }
-                    break;
-                case PRINTER_HOMING_Y:
-                    if (command instanceof StringType) {
-                        String body = "{ \"command\": \"home\", \"axes\": [\"y\"] }";
-                        Response res = httpRequestService.postRequest("api/printer/printhead", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational or is printing.",
-                                    res.getStatus(), res);
-                        }
-                    }
-                    break;
-                case PRINTER_HOMING_Z:
-                    if (command instanceof StringType) {
-                        String body = "{ \"command\": \"home\", \"axes\": [\"z\"] }";
-                        Response res = httpRequestService.postRequest("api/printer/printhead", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational or is printing.",
-                                    res.getStatus(), res);
-                        }
-                    }
-                    break;
-                case PRINTER_HOMING_XYZ:
-                    if (command instanceof StringType) {
-                        String body = "{ \"command\": \"home\", \"axes\": [\"x\", \"y\", \"z\"] }";
-                        Response res = httpRequestService.postRequest("api/printer/printhead", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational or is printing.",
-                                    res.getStatus(), res);
-                        }
-                        System.out.printf("PRINTER HOMING XYZ: %s%n", res);
-                    }
-                    break;
-                case PRINTER_TOOL_SELECT:
-                    System.out.println("RPINTER TOOL SELECT - DEBUG");
-                    if (command instanceof DecimalType) {
-                        selectedTool = command.toString();
-                        String body = String.format("{ \"command\": \"select\", \"tool\": \"tool%s\"}", selectedTool);
-                        Response res = httpRequestService.postRequest("api/printer/tool", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational or is printing.",
-                                    res.getStatus(), res);
-                        }
-                        System.out.printf("PRINTER TOOL SELECT: %s%n", res);
-
-                    }
-                    break;
-                case PRINTER_TOOL_FLOWRATE:
-                    if (command instanceof DecimalType) {
-                        String body = String.format("{ \"command\": \"flowrate\", \"factor\": %d}",
-                                Integer.parseInt(command.toString()));
-                        Response res = httpRequestService.postRequest("api/printer/tool", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational.", res.getStatus(),
-                                    res);
-                        }
-                        System.out.printf("PRINTER TOOL FLOWRATE: %s%n", res);
-                    }
-                    break;
-                case PRINTER_TOOL_TEMP_TARGET:
-                    if (command instanceof DecimalType) {
-                        String body = String.format("{ \"command\": \"target\", \"tools\": {\"tool%s\": %d} }",
-                                selectedTool, Integer.parseInt(command.toString()));
-                        Response res = httpRequestService.postRequest("api/printer/tool", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational.", res.getStatus(),
-                                    res);
-                        }
-                        System.out.printf("PRINTER TOOL TEMP TARGET: %s%n", res);
-                    }
-                    break;
-                case PRINTER_TOOL_TEMP_OFFSET:
-                    if (command instanceof DecimalType) {
-                        String body = String.format("{ \"command\": \"offset\", \"tools\": {\"tool%s\": %d} }",
-                                selectedTool, Integer.parseInt(command.toString()));
-                        Response res = httpRequestService.postRequest("api/printer/tool", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational.", res.getStatus(),
-                                    res);
-                        }
-                        System.out.printf("PRINTER TOOL TEMP OFFSET: %s%n", res);
-                    }
-                    break;
-                case PRINTER_BED_TEMP_TARGET:
-                    if (command instanceof DecimalType) {
-                        String body = String.format("{ \"command\": \"target\", \"target\": %d }",
-                                Integer.parseInt(command.toString()));
-                        Response res = httpRequestService.postRequest("api/printer/bed", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational.", res.getStatus(),
-                                    res);
-                        }
-                        System.out.printf("PRINTER BED TEMP TARGET: %s%n", res);
-                    }
-                    break;
-                case PRINTER_BED_TEMP_OFFSET:
-                    if (command instanceof DecimalType) {
-                        String body = String.format("{ \"command\": \"offset\", \"offset\": %d }",
-                                Integer.parseInt(command.toString()));
-                        Response res = httpRequestService.postRequest("api/printer/bed", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational.", res.getStatus(),
-                                    res);
-                        }
-                        System.out.printf("PRINTER BED TEMP OFFSET: %s%n", res);
-                    }
-                    break;
-                case PRINTER_CHAMBER_TEMP_TARGET:
-                    if (command instanceof DecimalType) {
-                        String body = String.format("{ \"command\": \"target\", \"target\": %d} }",
-                                Integer.parseInt(command.toString()));
-                        Response res = httpRequestService.postRequest("api/printer/chamber", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational.", res.getStatus(),
-                                    res);
-                        }
-                        System.out.printf("PRINTER CHAMBER TEMP TARGET: %s%n", res);
-                    }
-                    break;
-                case PRINTER_CHAMBER_TEMP_OFFSET:
-                    if (command instanceof DecimalType) {
-                        String body = String.format("{ \"command\": \"offset\", \"offset\": %d} }",
-                                Integer.parseInt(command.toString()));
-                        Response res = httpRequestService.postRequest("api/printer/chamber", body);
-                        if (res.getStatus() == 409) {
-                            logger.warn("status: {}, body: {} - Printer is currently not operational.", res.getStatus(),
-                                    res);
-                        }
-                        System.out.printf("PRINTER CHAMBER TEMP OFFSET: %s%n", res.toString());
-                    }
-                    break;
-                default:
-                    logger.warn("Framework sent command to unknown channel with id '{}'", channelUID.getId());
-            }
-        } catch (CommunicationException ex) {
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, ex.getMessage());
+        // search for matching case of channelID, build JSON object and queue http post request
+        switch (channelId) {
+            case PRINT_JOB_START:
+                if (command instanceof StringType) {
+                    commandRequestService.submit("api/job", "{ \"command\": \"start\" }",
+                            "There is already a running print job.");
+                }
+                break;
+            case PRINT_JOB_CANCEL:
+                if (command instanceof StringType) {
+                    commandRequestService.submit("api/job", "{ \"command\": \"cancel\" }",
+                            "There is no running print job to cancel.");
+                }
+                break;
+            case PRINT_JOB_PAUSE:
+                if (command instanceof StringType) {
+                    commandRequestService.submit("api/job", "{ \"command\": \"pause\", \"action\": \"pause\" }",
+                            "There is no print job to pause/resume/toggle.");
+                }
+                break;
+            case PRINT_JOB_RESTART:
+                if (command instanceof StringType) {
+                    commandRequestService.submit("api/job", "{ \"command\": \"pause\", \"action\": \"resume\" }",
+                            "There is no active print job that is currently paused.");
+                }
+                break;
+            case PRINTER_JOG_X:
+                if (command instanceof DecimalType distance) {
+                    commandRequestService.jog(distance.toBigDecimal(), BigDecimal.ZERO, BigDecimal.ZERO,
+                            NOT_OPERATIONAL_OR_PRINTING);
+                }
+                break;
+            case PRINTER_JOG_Y:
+                if (command instanceof DecimalType distance) {
+                    commandRequestService.jog(BigDecimal.ZERO, distance.toBigDecimal(), BigDecimal.ZERO,
+                            NOT_OPERATIONAL_OR_PRINTING);
+                }
+                break;
+            case PRINTER_JOG_Z:
+                if (command instanceof DecimalType distance) {
+                    commandRequestService.jog(BigDecimal.ZERO, BigDecimal.ZERO, distance.toBigDecimal(),
+                            NOT_OPERATIONAL_OR_PRINTING);
+                }
+                break;
+            case PRINTER_HOMING_X:
+                if (command instanceof StringType) {
+                    commandRequestService.submit("api/printer/printhead",
+                            "{ \"command\": \"home\", \"axes\": [\"x\"] }", NOT_OPERATIONAL_OR_PRINTING);
+                }
+                break;
+            case PRINTER_HOMING_Y:
+                if (command instanceof StringType) {
+                    commandRequestService.submit("api/printer/printhead",
+                            "{ \"command\": \"home\", \"axes\": [\"y\"] }", NOT_OPERATIONAL_OR_PRINTING);
+                }
+                break;
+            case PRINTER_HOMING_Z:
+                if (command instanceof StringType) {
+                    commandRequestService.submit("api/printer/printhead",
+                            "{ \"command\": \"home\", \"axes\": [\"z\"] }", NOT_OPERATIONAL_OR_PRINTING);
+                }
+                break;
+            case PRINTER_HOMING_XYZ:
+                if (command instanceof StringType) {
+                    commandRequestService.submit("api/printer/printhead",
+                            "{ \"command\": \"home\", \"axes\": [\"x\", \"y\", \"z\"] }",
+                            NOT_OPERATIONAL_OR_PRINTING);
+                }
+                break;
+            case PRINTER_TOOL_SELECT:
+                if (command instanceof DecimalType) {
+                    selectedTool = command.toString();
+                    String body = String.format("{ \"command\": \"select\", \"tool\": \"tool%s\"}", selectedTool);
+                    commandRequestService.submitSetpoint("api/printer/tool#select", "api/printer/tool", body,
+                            NOT_OPERATIONAL_OR_PRINTING);
+                }
+                break;
+            case PRINTER_TOOL_FLOWRATE:
+                if (command instanceof DecimalType factor) {
+                    String body = String.format("{ \"command\": \"flowrate\", \"factor\": %d}", factor.intValue());
+                    commandRequestService.submitSetpoint("api/printer/tool#flowrate", "api/printer/tool", body,
+                            NOT_OPERATIONAL);
+                }
+                break;
+            case PRINTER_TOOL_TEMP_TARGET:
+                if (command instanceof DecimalType target) {
+                    String body = String.format("{ \"command\": \"target\", \"tools\": {\"tool%s\": %d} }",
+                            selectedTool, target.intValue());
+                    commandRequestService.submitSetpoint("api/printer/tool#target#tool" + selectedTool,
+                            "api/printer/tool", body, NOT_OPERATIONAL);
+                }
+                break;
+            case PRINTER_TOOL_TEMP_OFFSET:
+                if (command instanceof DecimalType offset) {
+                    String body = String.format("{ \"command\": \"offset\", \"tools\": {\"tool%s\": %d} }",
+                            selectedTool, offset.intValue());
+                    commandRequestService.submitSetpoint("api/printer/tool#offset#tool" + selectedTool,
+                            "api/printer/tool", body, NOT_OPERATIONAL);
+                }
+                break;
+            case PRINTER_BED_TEMP_TARGET:
+                if (command instanceof DecimalType target) {
+                    String body = String.format("{ \"command\": \"target\", \"target\": %d }", target.intValue());
+                    commandRequestService.submitSetpoint("api/printer/bed#target", "api/printer/bed", body,
+                            NOT_OPERATIONAL);
+                }
+                break;
+            case PRINTER_BED_TEMP_OFFSET:
+                if (command instanceof DecimalType offset) {
+                    String body = String.format("{ \"command\": \"offset\", \"offset\": %d }", offset.intValue());
+                    commandRequestService.submitSetpoint("api/printer/bed#offset", "api/printer/bed", body,
+                            NOT_OPERATIONAL);
+                }
+                break;
+            case PRINTER_CHAMBER_TEMP_TARGET:
+                if (command instanceof DecimalType target) {
+                    String body = String.format("{ \"command\": \"target\", \"target\": %d }", target.intValue());
+                    commandRequestService.submitSetpoint("api/printer/chamber#target", "api/printer/chamber", body,
+                            NOT_OPERATIONAL);
+                }
+                break;
+            case PRINTER_CHAMBER_TEMP_OFFSET:
+                if (command instanceof DecimalType offset) {
+                    String body = String.format("{ \"command\": \"offset\", \"offset\": %d }", offset.intValue());
+                    commandRequestService.submitSetpoint("api/printer/chamber#offset", "api/printer/chamber", body,
+                            NOT_OPERATIONAL);
+                }
+                break;
+            default:
+                logger.warn("Framework sent command to unknown channel with id '{}'", channelUID.getId());
         }
     }
 
@@ -312,11 +247,24 @@ public class OctoPrintHandler extends BaseThingHandler {
 
     private void pollingCode() {
         assert pollRequestService != null;
-        try {
-            pollRequestService.poll();
-        } catch (ExecutionException | TimeoutException | InterruptedException e) {
-            updateStatus(ThingStatus.OFFLINE);
-            logger.error("Error: {}", e.toString());
+        // the push connection keeps the channels up to date, polling is only the fallback while it is down
+        PushUpdateService pushUpdateService = this.pushUpdateService;
+        if (pushUpdateService != null && pushUpdateService.connect()) {
+            return;
+        }
+        pollRequestService.poll();
+    }
+
+    /**
+     * Updates the thing status according to the outcome of a request to the OctoPrint server.
+     *
+     * @param errorMessage the reason of a failed request or null if the request succeeded
+     */
+    public void updateOnlineStatus(@Nullable String errorMessage) {
+        if (errorMessage != null) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, errorMessage);
+        } else if (getThing().getStatus() != ThingStatus.ONLINE) {
+            updateStatus(ThingStatus.ONLINE);
         }
     }
 
@@ -463,17 +411,22 @@ public class OctoPrintHandler extends BaseThingHandler {
         scheduler.execute(() -> {
             boolean thingReachable = true;
             octoprintServer = new OctoprintServer(config.ip, config.apiKey, config.username);
-            httpRequestService = new HttpRequestService(octoprintServer);
+            httpRequestService = new HttpRequestService(octoprintServer, httpClient);
+            commandRequestService = new CommandRequestService(httpRequestService, this, meterRegistry);
             logger.debug("Created {}", octoprintServer);
 
             ThingBuilder thingBuilder = editThing();
             addTemperatureChannels(thingBuilder);
             updateThing(thingBuilder.build());
 
-            pollRequestService = new PollRequestService(octoprintServer, this);
+            pollRequestService = new PollRequestService(httpRequestService, this, meterRegistry);
             this.getThing().getChannels().stream()
                     .filter(c -> c.getProperties().containsKey("poll") && c.getProperties().containsKey("route"))
                     .forEach(c -> pollRequestService.addPollRequest(c));
+            if (config.pushUpdates) {
+                pushUpdateService = new PushUpdateService(octoprintServer, httpRequestService, pollRequestService,
+                        webSocketClient, config.pushThrottle);
+            }
             pollingJob = scheduler.scheduleWithFixedDelay(this::pollingCode, 0, config.refreshInterval,
                     TimeUnit.SECONDS);
             updateStatus(ThingStatus.ONLINE);
@@ -500,14 +453,18 @@ public class OctoPrintHandler extends BaseThingHandler {
             pollingJob.cancel(true);
             pollingJob = null;
         }
+        if (pushUpdateService != null) {
+            pushUpdateService.dispose();
+            pushUpdateService = null;
+        }
+        if (commandRequestService != null) {
+            commandRequestService.dispose();
+            commandRequestService = null;
+        }
         if (pollRequestService != null) {
             pollRequestService.dispose();
             pollRequestService = null;
         }
-
-        if (httpRequestService != null) {
-            httpRequestService.dispose();
-            httpRequestService = null;
-        }
+        httpRequestService = null;
     }
 }
@@ -18,15 +18,25 @@ import java.util.Set;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jetty.client.HttpClient;
 import org.openhab.binding.octoprint.internal.providers.OctoPrintChannelTypeProvider;
+import org.openhab.core.io.monitor.MeterRegistryProvider;
+import org.openhab.core.io.net.http.HttpClientFactory;
+import org.openhab.core.io.net.http.HttpClientInitializationException;
+import org.openhab.core.io.net.http.WebSocketFactory;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingTypeUID;
 import org.openhab.core.thing.binding.BaseThingHandlerFactory;
 import org.openhab.core.thing.binding.ThingHandler;
 import org.openhab.core.thing.binding.ThingHandlerFactory;
+import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * The {@link OctoPrintHandlerFactory} is responsible for creating things and thing
@@ -38,12 +48,48 @@ import org.osgi.service.component.annotations.Reference;
 @Component(configurationPid = "binding.octoprint", service = ThingHandlerFactory.class)
 public class OctoPrintHandlerFactory extends BaseThingHandlerFactory {
     private final OctoPrintChannelTypeProvider channelTypeProvider;
+    private final WebSocketFactory webSocketFactory;
+    private final HttpClient httpClient;
+    private volatile @Nullable MeterRegistryProvider meterRegistryProvider;
 
     private static final Set<ThingTypeUID> SUPPORTED_THING_TYPES_UIDS = Set.of(THING_TYPE_OCTOPRINT);
+    private static final int MAX_CONNECTIONS_PER_DESTINATION = 4;
+    private static final long IDLE_TIMEOUT_MILLIS = 30000;
 
     @Activate
-    public OctoPrintHandlerFactory(@Reference OctoPrintChannelTypeProvider channelTypeProvider) {
+    public OctoPrintHandlerFactory(@Reference OctoPrintChannelTypeProvider channelTypeProvider,
+            @Reference WebSocketFactory webSocketFactory, @Reference HttpClientFactory httpClientFactory) {
         this.channelTypeProvider = channelTypeProvider;
+        this.webSocketFactory = webSocketFactory;
+        // one client for all printers, keeps idle connections alive between polls
+        httpClient = httpClientFactory.createHttpClient(THING_TYPE_OCTOPRINT.getBindingId());
+        httpClient.setMaxConnectionsPerDestination(MAX_CONNECTIONS_PER_DESTINATION);
+        httpClient.setIdleTimeout(IDLE_TIMEOUT_MILLIS);
+        try {
+            httpClient.start();
+        } catch (Exception e) {
+            throw new HttpClientInitializationException("Could not start HttpClient", e);
+        }
+    }
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    public void setMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    public void unsetMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        this.meterRegistryProvider = null;
+    }
+
+    @Override
+    protected void deactivate(ComponentContext componentContext) {
+        try {
+            httpClient.stop();
+        } catch (Exception e) {
+            // Eat http client stop exception.
+        } finally {
+            super.deactivate(componentContext);
+        }
     }
 
     @Override
@@ -56,7 +102,11 @@ public class OctoPrintHandlerFactory extends BaseThingHandlerFactory {
         ThingTypeUID thingTypeUID = thing.getThingTypeUID();
 
         if (THING_TYPE_OCTOPRINT.equals(thingTypeUID)) {
-            return new OctoPrintHandler(thing, channelTypeProvider);
+            MeterRegistryProvider meterRegistryProvider = this.meterRegistryProvider;
+            MeterRegistry meterRegistry = meterRegistryProvider != null ? meterRegistryProvider.getOHMeterRegistry()
+                    : null;
+            return new OctoPrintHandler(thing, channelTypeProvider, httpClient,
+                    webSocketFactory.getCommonWebSocketClient(), meterRegistry);
         }
 
         return null;
@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.openhab.binding.octoprint.internal.services;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.openhab.binding.octoprint.internal.OctoPrintHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * The {@link CommandRequestService} sends the commands of a {@link OctoPrintHandler} to an octoprint server one
+ * after another without blocking the caller.
+ * <br>
+ * A command is coalesced with the last command waiting to be sent: a setpoint replaces a pending setpoint with the
+ * same key (i.e. the target temperature of the same tool) and consecutive jog commands are summed up into a single
+ * jog. Commands are never merged across another command, so motion is sent in the order it was requested.
+ * <br>
+ * The time from queuing a command until its response has arrived is published as a timer, tagged with the thing.
+ *
+ * @author agent - Initial contribution
+ */
+public class CommandRequestService {
+    private static final String PRINTHEAD_ROUTE = "api/printer/printhead";
+    private static final String JOG_KEY = PRINTHEAD_ROUTE + "#jog";
+    private static final String METER_PREFIX = "openhab.binding.octoprint.";
+
+    private final Logger logger = LoggerFactory.getLogger(CommandRequestService.class);
+
+    final HttpRequestService requestService;
+    final OctoPrintHandler octoPrintHandler;
+    private final Deque<PendingCommand> pending = new ArrayDeque<>();
+    private boolean inFlight;
+    private final @Nullable MeterRegistry meterRegistry;
+    private final @Nullable Timer completionTimer;
+
+    /**
+     * @param meterRegistry the registry the completion time of the commands is published to, or null
+     */
+    public CommandRequestService(HttpRequestService httpRequestService, OctoPrintHandler octoPrintHandler,
+            @Nullable MeterRegistry meterRegistry) {
+        requestService = httpRequestService;
+        this.octoPrintHandler = octoPrintHandler;
+        this.meterRegistry = meterRegistry;
+        completionTimer = meterRegistry == null ? null
+                : Timer.builder(METER_PREFIX + "command.completion")
+                        .tag("thing", octoPrintHandler.getThing().getUID().toString()).register(meterRegistry);
+    }
+
+    /**
+     * Queues a command that is sent as it is, in order with all other commands.
+     *
+     * @param route the api endpoint the command is sent to (i.e. api/job)
+     * @param body the json body of the command
+     * @param conflictMessage logged if the server rejects the command with status 409
+     */
+    public void submit(String route, String body, String conflictMessage) {
+        synchronized (this) {
+            pending.addLast(new PendingCommand(null, route, body, conflictMessage));
+        }
+        sendNext();
+    }
+
+    /**
+     * Queues a setpoint command that replaces the last pending command if it has the same key.
+     *
+     * @param key identifies the setpoint (i.e. api/printer/tool#target#tool0)
+     * @param route the api endpoint the command is sent to (i.e. api/printer/tool)
+     * @param body the json body of the command
+     * @param conflictMessage logged if the server rejects the command with status 409
+     */
+    public void submitSetpoint(String key, String route, String body, String conflictMessage) {
+        synchronized (this) {
+            PendingCommand command = new PendingCommand(key, route, body, conflictMessage);
+            PendingCommand superseded = pending.peekLast();
+            if (superseded != null && key.equals(superseded.key)) {
+                pending.removeLast();
+                command.enqueued = superseded.enqueued;
+                logger.debug("{} supersedes pending command {}", body, superseded.body);
+            }
+            pending.addLast(command);
+        }
+        sendNext();
+    }
+
+    /**
+     * Queues a relative movement of the printhead, which is added to the last pending command if it is a jog.
+     *
+     * @param x distance on the x axis
+     * @param y distance on the y axis
+     * @param z distance on the z axis
+     * @param conflictMessage logged if the server rejects the command with status 409
+     */
+    public void jog(BigDecimal x, BigDecimal y, BigDecimal z, String conflictMessage) {
+        synchronized (this) {
+            PendingCommand command = pending.peekLast();
+            if (command == null || !JOG_KEY.equals(command.key)) {
+                command = new PendingCommand(JOG_KEY, PRINTHEAD_ROUTE, null, conflictMessage);
+                pending.addLast(command);
+            }
+            command.x = command.x.add(x);
+            command.y = command.y.add(y);
+            command.z = command.z.add(z);
+        }
+        sendNext();
+    }
+
+    private void sendNext() {
+        PendingCommand command;
+        synchronized (this) {
+            if (inFlight || pending.isEmpty()) {
+                return;
+            }
+            command = pending.removeFirst();
+            inFlight = true;
+        }
+
+        String body = command.body != null ? command.body
+                : String.format("{ \"command\": \"jog\", \"x\": %s, \"y\": %s, \"z\": %s }",
+                        command.x.toPlainString(), command.y.toPlainString(), command.z.toPlainString());
+        try {
+            requestService.postRequest(command.route, body, new BufferingResponseListener() {
+                @Override
+                public void onComplete(Result result) {
+                    complete(command, result, getContentAsString());
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Could not send command {} to {}: {}", body, command.route, e.getMessage());
+            synchronized (this) {
+                inFlight = false;
+            }
+        }
+    }
+
+    private void complete(PendingCommand command, Result result, String content) {
+        long latencyNanos = System.nanoTime() - command.enqueued;
+        Timer completionTimer = this.completionTimer;
+        if (completionTimer != null) {
+            completionTimer.record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+        long latency = latencyNanos / 1_000_000;
+        synchronized (this) {
+            inFlight = false;
+        }
+        if (result.isFailed()) {
+            logger.warn("Command to {} failed: {}", command.route, result.getFailure().getMessage());
+            octoPrintHandler.updateOnlineStatus(result.getFailure().getMessage());
+        } else {
+            int status = result.getResponse().getStatus();
+            if (status == 409) {
+                logger.warn("status: {}, body: {} - {}", status, content, command.conflictMessage);
+            }
+            logger.debug("Command to {} completed with status {} after {} ms", command.route, status, latency);
+        }
+        sendNext();
+    }
+
+    /**
+     * Discards all commands that have not been sent yet and removes the timer from the registry.
+     */
+    public synchronized void dispose() {
+        pending.clear();
+        MeterRegistry meterRegistry = this.meterRegistry;
+        Timer completionTimer = this.completionTimer;
+        if (meterRegistry != null && completionTimer != null) {
+            meterRegistry.remove(completionTimer);
+        }
+    }
+
+    /**
+     * A command waiting to be sent. The body of a jog is built from the summed up distances when it is sent.
+     */
+    static class PendingCommand {
+        final String key;
+        final String route;
+        final String body;
+        final String conflictMessage;
+        long enqueued = System.nanoTime();
+        BigDecimal x = BigDecimal.ZERO;
+        BigDecimal y = BigDecimal.ZERO;
+        BigDecimal z = BigDecimal.ZERO;
+
+        PendingCommand(String key, String route, String body, String conflictMessage) {
+            this.key = key;
+            this.route = route;
+            this.body = body;
+            this.conflictMessage = conflictMessage;
+        }
+    }
+}
@@ -14,6 +14,7 @@
 package org.openhab.binding.octoprint.internal.services;
 
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.eclipse.jetty.client.HttpClient;
@@ -29,60 +30,59 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The {@link HttpRequestService} provides methods to send HTTP-Requests to a {@link OctoprintServer}.
+ * <br>
+ * The {@link HttpClient} is shared by all things of the binding and is owned by the handler factory, so it is
+ * neither started nor stopped here.
  *
  * @author Jan Niklas Freisinger - Initial contribution
  */
 public class HttpRequestService {
+    private static final long REQUEST_TIMEOUT_SECONDS = 10;
+
     private final Logger logger = LoggerFactory.getLogger(HttpRequestService.class);
 
     private final OctoprintServer server;
-    HttpClient httpClient = new HttpClient();
+    private final HttpClient httpClient;
 
-    public HttpRequestService(OctoprintServer octoprintServer) {
+    public HttpRequestService(OctoprintServer octoprintServer, HttpClient httpClient) {
         server = octoprintServer;
-        try {
-            httpClient.start();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        this.httpClient = httpClient;
     }
 
-    public ContentResponse getRequest(String route) throws ExecutionException, InterruptedException, TimeoutException {
+    private Request newRequest(String route, HttpMethod method) {
         String uri = String.format("http://%1$s/%2$s", server.uri, route);
         logger.debug("uri: {}", uri);
-        Request request = httpClient.newRequest(uri).header("X-Api-Key", server.apiKey).method(HttpMethod.GET);
-        ContentResponse res = request.send();
+        return httpClient.newRequest(uri).header("X-Api-Key", server.apiKey).method(method)
+                .timeout(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public ContentResponse getRequest(String route) throws ExecutionException, InterruptedException, TimeoutException {
+        ContentResponse res = newRequest(route, HttpMethod.GET).send();
         logger.debug("response: status: {}, body: {}", res.getStatus(), res.getContentAsString());
         return res;
     }
 
-    public Response postRequest(String route, String body) {
-        String uri = String.format("http://%1$s/%2$s", server.uri, route);
-        logger.debug("uri: {}", uri);
-        Request request = httpClient.newRequest(uri).header("X-Api-Key", server.apiKey)
-                .header(HttpHeader.ACCEPT, "application/json").header(HttpHeader.CONTENT_TYPE, "application/json")
-                .method(HttpMethod.POST).content(new StringContentProvider(body), "application/json");
-        try {
-            Response res = request.send();
-            logger.debug("response: status: {}", res.getStatus());
-            return res;
-        } catch (InterruptedException e) {
-            // TODO
-            throw new RuntimeException(e);
-        } catch (TimeoutException e) {
-            // TODO
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            // TODO
-            throw new RuntimeException(e);
-        }
+    /**
+     * Sends a GET request without blocking the calling thread.
+     *
+     * @param route the api endpoint the request is sent to (i.e. api/job)
+     * @param listener notified when the response is complete or the request failed
+     */
+    public void getRequest(String route, Response.CompleteListener listener) {
+        newRequest(route, HttpMethod.GET).send(listener);
     }
 
-    public void dispose() {
-        try {
-            httpClient.stop();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+    /**
+     * Sends a POST request without blocking the calling thread.
+     *
+     * @param route the api endpoint the request is sent to (i.e. api/printer/tool)
+     * @param body the json body of the request
+     * @param listener notified when the response is complete or the request failed
+     */
+    public void postRequest(String route, String body, Response.CompleteListener listener) {
+        logger.debug("body: {}", body);
+        newRequest(route, HttpMethod.POST).header(HttpHeader.ACCEPT, "application/json")
+                .header(HttpHeader.CONTENT_TYPE, "application/json")
+                .content(new StringContentProvider(body), "application/json").send(listener);
     }
 }
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.openhab.binding.octoprint.internal.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * The {@link KeyPathTrie} holds the key paths of all channels polled from one route, so that the values of all
+ * channels can be extracted from a response body in a single streaming pass without building a json tree.
+ *
+ * @author agent - Initial contribution
+ */
+class KeyPathTrie {
+    private final Node root = new Node();
+    private final List<PollRequestService.PollChannel> channels = new ArrayList<>();
+
+    /**
+     * Adds a channel, its index into the extracted values is its position in {@link #getChannels()}.
+     */
+    void add(PollRequestService.PollChannel channel) {
+        Node node = root;
+        for (String key : channel.keyPath) {
+            node = node.children.computeIfAbsent(key, k -> new Node());
+        }
+        node.indices = Arrays.copyOf(node.indices, node.indices.length + 1);
+        node.indices[node.indices.length - 1] = channels.size();
+        channels.add(channel);
+    }
+
+    List<PollRequestService.PollChannel> getChannels() {
+        return channels;
+    }
+
+    /**
+     * Reads a json document and extracts the values of all channels.
+     *
+     * @param source the json document
+     * @return the values as strings in the order of {@link #getChannels()}, null if a value is missing, null or not
+     *         a primitive
+     * @throws IOException if the document could not be read or is malformed
+     */
+    String[] extract(Reader source) throws IOException {
+        String[] values = new String[channels.size()];
+        try (JsonReader reader = new JsonReader(source)) {
+            readValue(reader, root, values);
+        }
+        return values;
+    }
+
+    /**
+     * Extracts the values of all channels from an already parsed json document.
+     *
+     * @param json the json document
+     * @return the values as strings in the order of {@link #getChannels()}, null if a value is missing, null or not
+     *         a primitive
+     */
+    String[] extract(JsonElement json) {
+        String[] values = new String[channels.size()];
+        for (int i = 0; i < values.length; i++) {
+            JsonElement value = json;
+            for (String key : channels.get(i).keyPath) {
+                if (value == null || !value.isJsonObject()) {
+                    value = null;
+                    break;
+                }
+                value = value.getAsJsonObject().get(key);
+            }
+            values[i] = value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+        }
+        return values;
+    }
+
+    private void readValue(JsonReader reader, Node node, String[] values) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_OBJECT && !node.children.isEmpty()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                Node child = node.children.get(reader.nextName());
+                if (child == null) {
+                    reader.skipValue();
+                } else {
+                    readValue(reader, child, values);
+                }
+            }
+            reader.endObject();
+        } else if (node.indices.length > 0
+                && (token == JsonToken.STRING || token == JsonToken.NUMBER || token == JsonToken.BOOLEAN)) {
+            String value = token == JsonToken.BOOLEAN ? String.valueOf(reader.nextBoolean()) : reader.nextString();
+            for (int index : node.indices) {
+                values[index] = value;
+            }
+        } else {
+            reader.skipValue();
+        }
+    }
+
+    private static class Node {
+        final Map<String, Node> children = new HashMap<>();
+        int[] indices = new int[0];
+    }
+}
@@ -13,13 +13,19 @@
 
 package org.openhab.binding.octoprint.internal.services;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
-import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
 import org.openhab.binding.octoprint.internal.OctoPrintHandler;
-import org.openhab.binding.octoprint.internal.models.OctoprintServer;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.StringType;
 import org.openhab.core.thing.Channel;
@@ -27,30 +33,50 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * The {@link PollRequestService} uses a {@link HttpRequestService} and a Map of {@link Channel}s
  * to make GET requests to an octoprint server instance and update the Channel states according to the
  * received Data.
  * <br>
+ * The {@link Channel}s are grouped by their route, so every route is requested only once per poll. The key paths
+ * of a route are compiled into a {@link KeyPathTrie} on registration, which extracts the values of all its channels
+ * from the response in a single streaming pass.
+ * <br>
  * The {@link Channel}s must have the following properties set:
  * - poll, value is a comma seperated list of json keys to the wanted data in the response body (i.e. job,file,name)
  * - route, value is the api endpoint the GET request is sent to (i.e. api/job)
+ * <br>
+ * The time until the response of a route has arrived is published as a timer, tagged with the thing and the route.
  * 
  * @author Jan Niklas Freisinger - Initial contribution
  */
 public class PollRequestService {
+    private static final String METER_PREFIX = "openhab.binding.octoprint.";
+
     private final Logger logger = LoggerFactory.getLogger(PollRequestService.class);
 
     final HttpRequestService requestService;
     final OctoPrintHandler octoPrintHandler;
-    HashMap<String, Channel> requests = new HashMap<>();
+    // tries are replaced instead of modified, so response callbacks always read a complete one
+    final Map<String, KeyPathTrie> routes = new ConcurrentHashMap<>();
+    final Set<String> channelIds = ConcurrentHashMap.newKeySet();
+    // routes whose last request has not completed yet
+    final Set<String> pendingRoutes = ConcurrentHashMap.newKeySet();
+    private final @Nullable MeterRegistry meterRegistry;
+    private final Map<String, Timer> fetchTimers = new ConcurrentHashMap<>();
 
-    public PollRequestService(OctoprintServer octoprintServer, OctoPrintHandler octoPrintHandler) {
-        requestService = new HttpRequestService(octoprintServer);
+    /**
+     * @param meterRegistry the registry the fetch time of the routes is published to, or null
+     */
+    public PollRequestService(HttpRequestService httpRequestService, OctoPrintHandler octoPrintHandler,
+            @Nullable MeterRegistry meterRegistry) {
+        requestService = httpRequestService;
         this.octoPrintHandler = octoPrintHandler;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -64,61 +90,155 @@ public class PollRequestService {
      *            - route, value is the api endpoint the GET request is sent to (i.e. api/job)
      */
     public void addPollRequest(Channel channel) {
-        requests.putIfAbsent(channel.getUID().getId(), channel);
-        logger.debug("added {} into poll requests as: [{}, {}]", channel.getUID(), channel.getUID(), channel);
+        String channelID = channel.getUID().getId();
+        String route = channel.getProperties().get("route");
+        if (route == null || route.isBlank()) {
+            logger.error("{} has no value for property route", channelID);
+            return;
+        }
+        String jsonKeys = channel.getProperties().get("poll");
+        if (jsonKeys == null || jsonKeys.isBlank()) {
+            logger.error("{} has no jsonKeys as parameter value of poll", channelID);
+            return;
+        }
+        if (!channelIds.add(channelID)) {
+            return;
+        }
+        String[] keyPath = Arrays.stream(jsonKeys.split(",")).map(String::strip).toArray(String[]::new);
+        PollChannel pollChannel = new PollChannel(channelID, channel.getAcceptedItemType(), keyPath);
+        routes.compute(route, (r, trie) -> {
+            KeyPathTrie copy = new KeyPathTrie();
+            if (trie != null) {
+                trie.getChannels().forEach(copy::add);
+            }
+            copy.add(pollChannel);
+            return copy;
+        });
+        logger.debug("added {} into poll requests as: [{}, {}]", channel.getUID(), route, jsonKeys);
     }
 
-    public void poll() throws ExecutionException, InterruptedException, TimeoutException {
-        for (var entry : requests.entrySet()) {
-            String channelID = entry.getKey();
-            Channel channel = entry.getValue();
-            String acceptedItemType = channel.getAcceptedItemType();
-
-            String route = channel.getProperties().get("route");
-            if (route == null) {
-                logger.error("{} has no jsonKeys as parameter value of route", channelID);
+    /**
+     * Sends one GET request per registered route without blocking. The channels of a route are updated as soon
+     * as its response arrives; failures are reported to the {@link OctoPrintHandler}. A route is skipped while its
+     * previous request is still outstanding, so a slow server does not accumulate requests.
+     */
+    public void poll() {
+        for (var entry : routes.entrySet()) {
+            String route = entry.getKey();
+            if (!pendingRoutes.add(route)) {
+                logger.debug("skipping {}, the previous request has not completed yet", route);
+                continue;
             }
-            logger.debug("================ polling {} ({}) ================", channelID, route);
-
-            ContentResponse res = requestService.getRequest(route);
-            if (res.getStatus() == 200) {
-                String result = res.getContentAsString();
-                logger.warn("{}", result);
-
-                JsonObject json = JsonParser.parseString(result).getAsJsonObject();
-                var jsonKeys = channel.getProperties().get("poll");
-                if (jsonKeys.isEmpty()) {
-                    logger.error("{} has no jsonKeys as parameter value of poll", channelID);
-                    continue;
-                }
-                String[] jsonKeyArray = jsonKeys.split(",");
-
-                final JsonElement[] updatedValue = new JsonElement[1];
-                updatedValue[0] = json;
-                for (String s : jsonKeyArray) {
-                    updatedValue[0] = updatedValue[0].getAsJsonObject().get(s.strip());
-                    logger.debug("{}: {}", s, updatedValue[0]);
-                }
-                if (Objects.equals(acceptedItemType, "String")) {
-                    if (updatedValue[0] == null || updatedValue[0].isJsonNull()) {
-                        octoPrintHandler.updateChannel(channelID, StringType.valueOf("n.A."));
-                    } else {
-                        octoPrintHandler.updateChannel(channelID, StringType.valueOf(updatedValue[0].getAsString()));
-                        logger.debug("Updated Channel {} to state {}", channelID, updatedValue[0].getAsString());
-                    }
-                } else if (Objects.equals(acceptedItemType, "Number")) {
-                    if (updatedValue[0] == null || updatedValue[0].isJsonNull()) {
-                        octoPrintHandler.updateChannel(channelID, DecimalType.valueOf("0.0"));
-                    } else {
-                        octoPrintHandler.updateChannel(channelID, DecimalType.valueOf(updatedValue[0].getAsString()));
-                        logger.debug("Updated Channel {} to state {}", channelID, updatedValue[0].getAsString());
+            logger.debug("================ polling {} for {} channels ================", route,
+                    entry.getValue().getChannels().size());
+
+            long start = System.nanoTime();
+            try {
+                requestService.getRequest(route, new BufferingResponseListener() {
+                    @Override
+                    public void onComplete(Result result) {
+                        pendingRoutes.remove(route);
+                        long fetchNanos = System.nanoTime() - start;
+                        recordFetchTime(route, fetchNanos);
+                        handleResponse(route, entry.getValue(), result, getContentAsInputStream(),
+                                fetchNanos / 1_000_000);
                     }
-                }
+                });
+            } catch (RuntimeException e) {
+                pendingRoutes.remove(route);
+                logger.debug("polling {} failed: {}", route, e.getMessage());
             }
         }
     }
 
+    private void recordFetchTime(String route, long fetchNanos) {
+        MeterRegistry meterRegistry = this.meterRegistry;
+        if (meterRegistry != null) {
+            fetchTimers.computeIfAbsent(route,
+                    r -> Timer.builder(METER_PREFIX + "poll.fetch")
+                            .tag("thing", octoPrintHandler.getThing().getUID().toString()).tag("route", r)
+                            .register(meterRegistry))
+                    .record(fetchNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Removes the timers of the routes from the registry.
+     */
     public void dispose() {
-        requestService.dispose();
+        MeterRegistry meterRegistry = this.meterRegistry;
+        if (meterRegistry != null) {
+            fetchTimers.values().forEach(meterRegistry::remove);
+        }
+        fetchTimers.clear();
+    }
+
+    private void handleResponse(String route, KeyPathTrie trie, Result result, InputStream content,
+            long fetchMillis) {
+        logger.debug("polling {} took {} ms", route, fetchMillis);
+        if (result.isFailed()) {
+            logger.debug("polling {} failed: {}", route, result.getFailure().toString());
+            octoPrintHandler.updateOnlineStatus(result.getFailure().getMessage());
+            return;
+        }
+        int status = result.getResponse().getStatus();
+        if (status != 200) {
+            logger.warn("polling {} failed with status {}", route, status);
+            return;
+        }
+        octoPrintHandler.updateOnlineStatus(null);
+        try (Reader reader = new InputStreamReader(content, StandardCharsets.UTF_8)) {
+            updateChannels(trie, trie.extract(reader));
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            logger.warn("Could not handle response of {}: {}", route, e.getMessage());
+        }
+    }
+
+    /**
+     * Updates all channels registered for the given route from an already parsed response body.
+     *
+     * @param route the route the channels are registered for (i.e. api/job)
+     * @param json the response body of the route or an equivalent document
+     */
+    public void update(String route, JsonElement json) {
+        KeyPathTrie trie = routes.get(route);
+        if (trie != null) {
+            updateChannels(trie, trie.extract(json));
+        }
+    }
+
+    private void updateChannels(KeyPathTrie trie, String[] values) {
+        List<PollChannel> channels = trie.getChannels();
+        for (int i = 0; i < values.length; i++) {
+            updateChannel(channels.get(i), values[i]);
+        }
+    }
+
+    private void updateChannel(PollChannel channel, String value) {
+        if (Objects.equals(channel.acceptedItemType, "String")) {
+            octoPrintHandler.updateChannel(channel.channelID,
+                    value != null ? StringType.valueOf(value) : StringType.valueOf("n.A."));
+        } else if (Objects.equals(channel.acceptedItemType, "Number")) {
+            octoPrintHandler.updateChannel(channel.channelID,
+                    value != null ? DecimalType.valueOf(value) : DecimalType.valueOf("0.0"));
+        }
+        if (value != null) {
+            logger.debug("Updated Channel {} to state {}", channel.channelID, value);
+        }
+    }
+
+    /**
+     * A channel registered for polling with its key path into the response of its route.
+     */
+    static class PollChannel {
+        final String channelID;
+        final String acceptedItemType;
+        final String[] keyPath;
+
+        PollChannel(String channelID, String acceptedItemType, String[] keyPath) {
+            this.channelID = channelID;
+            this.acceptedItemType = acceptedItemType;
+            this.keyPath = keyPath;
+        }
     }
 }
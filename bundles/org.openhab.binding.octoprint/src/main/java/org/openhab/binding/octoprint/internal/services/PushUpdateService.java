@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.openhab.binding.octoprint.internal.services;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.openhab.binding.octoprint.internal.models.OctoprintServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * The {@link PushUpdateService} subscribes to the push API of an octoprint server via its raw SockJS websocket
+ * endpoint and updates the channels registered in a {@link PollRequestService} as soon as messages arrive.
+ * <br>
+ * The current and history messages are translated into documents shaped like the responses of the routes the
+ * channels are polled from (i.e. api/job, api/printer/tool), so the channels need no additional configuration.
+ * <br>
+ * Connecting never blocks: the login and the websocket handshake complete in callbacks, the channels are polled
+ * until the websocket is open.
+ *
+ * @author agent - Initial contribution
+ */
+@WebSocket
+public class PushUpdateService {
+    private static final long CONNECT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Logger logger = LoggerFactory.getLogger(PushUpdateService.class);
+
+    final OctoprintServer server;
+    final HttpRequestService requestService;
+    final PollRequestService pollRequestService;
+    final WebSocketClient webSocketClient;
+    final int throttle;
+
+    private volatile Session session;
+    private volatile String auth;
+    // the time the running connection attempt was started at, 0 if there is none
+    private final AtomicLong connectStarted = new AtomicLong();
+
+    /**
+     * @param octoprintServer the server to subscribe to
+     * @param httpRequestService used to acquire the session key for authentication
+     * @param pollRequestService holds the channels that are updated by the received messages
+     * @param webSocketClient a started {@link WebSocketClient}
+     * @param throttle multiplier of the 500ms base rate the server sends current messages with
+     */
+    public PushUpdateService(OctoprintServer octoprintServer, HttpRequestService httpRequestService,
+            PollRequestService pollRequestService, WebSocketClient webSocketClient, int throttle) {
+        this.server = octoprintServer;
+        this.requestService = httpRequestService;
+        this.pollRequestService = pollRequestService;
+        this.webSocketClient = webSocketClient;
+        this.throttle = Math.max(1, throttle);
+    }
+
+    public boolean isConnected() {
+        Session session = this.session;
+        return session != null && session.isOpen();
+    }
+
+    /**
+     * Starts to log in passively with the api key to get a session key and to open the websocket, unless the
+     * websocket is already open or another attempt is still running. Returns without waiting for the attempt.
+     *
+     * @return true if the websocket is open
+     */
+    public boolean connect() {
+        if (isConnected()) {
+            return true;
+        }
+        long started = connectStarted.get();
+        long now = System.nanoTime();
+        if (started != 0 && now - started < CONNECT_TIMEOUT_NANOS) {
+            return false;
+        }
+        if (!connectStarted.compareAndSet(started, now)) {
+            return false;
+        }
+        requestService.postRequest("api/login", "{ \"passive\": true }", new BufferingResponseListener() {
+            @Override
+            public void onComplete(Result result) {
+                if (result.isFailed()) {
+                    connectFailed(result.getFailure().getMessage());
+                    return;
+                }
+                int status = result.getResponse().getStatus();
+                if (status != 200) {
+                    connectFailed("passive login failed with status " + status);
+                    return;
+                }
+                try {
+                    JsonObject user = JsonParser.parseString(getContentAsString()).getAsJsonObject();
+                    auth = String.format("%1$s:%2$s", user.get("name").getAsString(),
+                            user.get("session").getAsString());
+                    openWebSocket();
+                } catch (IOException | RuntimeException e) {
+                    connectFailed(e.getMessage());
+                }
+            }
+        });
+        return false;
+    }
+
+    private void openWebSocket() throws IOException {
+        URI uri = URI.create(String.format("ws://%1$s/sockjs/websocket", server.uri));
+        Future<Session> future = webSocketClient.connect(this, uri);
+        if (future instanceof CompletableFuture<Session> completableFuture) {
+            completableFuture.whenComplete((session, failure) -> {
+                if (failure != null) {
+                    connectFailed(failure.getMessage());
+                }
+            });
+        }
+    }
+
+    private void connectFailed(String reason) {
+        logger.debug("Could not open push connection to {}: {}", server.uri, reason);
+        connectStarted.set(0);
+    }
+
+    @OnWebSocketConnect
+    public void onConnect(Session session) {
+        logger.debug("push connection to {} opened", server.uri);
+        this.session = session;
+        connectStarted.set(0);
+        send(String.format("{\"auth\": \"%s\"}", auth));
+        send(String.format("{\"throttle\": %d}", throttle));
+    }
+
+    @OnWebSocketClose
+    public void onClose(int statusCode, String reason) {
+        logger.debug("push connection to {} closed: {} {}", server.uri, statusCode, reason);
+        this.session = null;
+        connectStarted.set(0);
+    }
+
+    @OnWebSocketError
+    public void onError(Throwable cause) {
+        logger.debug("push connection to {} failed: {}", server.uri, cause.getMessage());
+        connectStarted.set(0);
+        dispose();
+    }
+
+    @OnWebSocketMessage
+    public void onMessage(String message) {
+        try {
+            JsonElement json = JsonParser.parseString(message);
+            if (!json.isJsonObject()) {
+                return;
+            }
+            if (json.getAsJsonObject().has("event")) {
+                logger.debug("received event {} from {}", json.getAsJsonObject().get("event"), server.uri);
+            }
+            toRouteDocuments(json.getAsJsonObject()).forEach(pollRequestService::update);
+        } catch (JsonParseException | IllegalStateException e) {
+            logger.debug("Could not handle push message {}: {}", message, e.getMessage());
+        }
+    }
+
+    private void send(String message) {
+        Session session = this.session;
+        if (session != null) {
+            session.getRemote().sendStringByFuture(message);
+        }
+    }
+
+    /**
+     * Translates a push message into documents shaped like the responses of the polled routes.
+     *
+     * @param message a message received from the push API
+     * @return a map of route to document, empty if the message contains no channel data
+     */
+    static Map<String, JsonObject> toRouteDocuments(JsonObject message) {
+        Map<String, JsonObject> documents = new LinkedHashMap<>();
+        if (message.has("connected")) {
+            JsonObject connected = message.getAsJsonObject("connected");
+            JsonObject server = new JsonObject();
+            server.add("version", connected.get("version"));
+            documents.put("api/server", server);
+        }
+        JsonObject current = message.has("current") ? message.getAsJsonObject("current")
+                : message.has("history") ? message.getAsJsonObject("history") : null;
+        if (current == null) {
+            return documents;
+        }
+
+        JsonObject state = current.has("state") ? current.getAsJsonObject("state") : new JsonObject();
+        JsonElement stateText = state.has("text") ? state.get("text") : new JsonPrimitive("n.A.");
+
+        JsonObject connection = new JsonObject();
+        JsonObject connectionCurrent = new JsonObject();
+        connectionCurrent.add("state", stateText);
+        connection.add("current", connectionCurrent);
+        documents.put("api/connection", connection);
+
+        JsonObject job = new JsonObject();
+        job.add("job", current.get("job"));
+        job.add("progress", current.get("progress"));
+        job.add("state", stateText);
+        documents.put("api/job", job);
+
+        JsonObject printer = new JsonObject();
+        printer.add("state", state);
+        documents.put("api/printer", printer);
+
+        JsonArray temps = current.has("temps") ? current.getAsJsonArray("temps") : new JsonArray();
+        if (!temps.isEmpty()) {
+            JsonObject latest = temps.get(temps.size() - 1).getAsJsonObject();
+            JsonObject offsets = current.has("offsets") && current.get("offsets").isJsonObject()
+                    ? current.getAsJsonObject("offsets")
+                    : new JsonObject();
+            for (Map.Entry<String, JsonElement> entry : latest.entrySet()) {
+                String heater = entry.getKey();
+                if (!entry.getValue().isJsonObject()) {
+                    continue;
+                }
+                String route = heater.startsWith("tool") ? "api/printer/tool"
+                        : "bed".equals(heater) ? "api/printer/bed"
+                                : "chamber".equals(heater) ? "api/printer/chamber" : null;
+                if (route == null) {
+                    continue;
+                }
+                JsonObject temperature = entry.getValue().getAsJsonObject().deepCopy();
+                if (offsets.has(heater)) {
+                    temperature.add("offset", offsets.get(heater));
+                }
+                documents.computeIfAbsent(route, r -> new JsonObject()).add(heater, temperature);
+            }
+        }
+        return documents;
+    }
+
+    public void dispose() {
+        Session session = this.session;
+        this.session = null;
+        if (session != null) {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.octoprint.internal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.binding.octoprint.internal.OctoPrintHandler;
+
+/**
+ * Tests the order and coalescing of queued commands.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class CommandRequestServiceTest {
+
+    private final List<String> sent = new ArrayList<>();
+    private final List<Response.CompleteListener> listeners = new ArrayList<>();
+    private @NonNullByDefault({}) CommandRequestService service;
+
+    @BeforeEach
+    public void setUp() {
+        HttpRequestService requestService = mock(HttpRequestService.class);
+        doAnswer(invocation -> {
+            sent.add(invocation.getArgument(1));
+            listeners.add(invocation.getArgument(2));
+            return null;
+        }).when(requestService).postRequest(anyString(), anyString(), any(Response.CompleteListener.class));
+        service = new CommandRequestService(requestService, mock(OctoPrintHandler.class), null);
+    }
+
+    private void completeAll() {
+        Result result = mock(Result.class);
+        Response response = mock(Response.class);
+        when(result.getResponse()).thenReturn(response);
+        when(response.getStatus()).thenReturn(204);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onComplete(result);
+        }
+    }
+
+    @Test
+    public void jogsAreNotMergedAcrossOtherCommands() {
+        service.submit("api/job", "start", "");
+        service.jog(BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.ZERO, "");
+        service.submit("api/printer/printhead", "home", "");
+        service.jog(BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.ZERO, "");
+        service.jog(BigDecimal.ZERO, BigDecimal.ONE, BigDecimal.ZERO, "");
+        completeAll();
+
+        assertEquals(List.of("start", "{ \"command\": \"jog\", \"x\": 1, \"y\": 0, \"z\": 0 }", "home",
+                "{ \"command\": \"jog\", \"x\": 1, \"y\": 1, \"z\": 0 }"), sent);
+    }
+
+    @Test
+    public void setpointsReplaceOnlyTheLastPendingCommand() {
+        service.submit("api/job", "start", "");
+        service.submitSetpoint("tool0", "api/printer/tool", "tool0=200", "");
+        service.submitSetpoint("tool0", "api/printer/tool", "tool0=210", "");
+        service.submitSetpoint("bed", "api/printer/bed", "bed=60", "");
+        service.submitSetpoint("tool0", "api/printer/tool", "tool0=220", "");
+        completeAll();
+
+        assertEquals(List.of("start", "tool0=210", "bed=60", "tool0=220"), sent);
+    }
+}
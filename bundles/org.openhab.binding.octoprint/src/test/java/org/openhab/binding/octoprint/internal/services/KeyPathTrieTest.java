@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.octoprint.internal.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonParser;
+
+/**
+ * Tests the extraction of channel values from captured responses.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class KeyPathTrieTest {
+
+    private Reader load(String fileName) throws IOException {
+        return Files.newBufferedReader(Path.of("src/test/resources", fileName + ".json"));
+    }
+
+    private KeyPathTrie trie(String... keyPaths) {
+        KeyPathTrie trie = new KeyPathTrie();
+        for (String keyPath : keyPaths) {
+            trie.add(new PollRequestService.PollChannel(keyPath, "String", keyPath.split(",")));
+        }
+        return trie;
+    }
+
+    @Test
+    public void testJobResponse() throws IOException {
+        KeyPathTrie trie = trie("state", "job,file,name", "job,file,size", "job,estimatedPrintTime",
+                "progress,completion", "progress,printTimeLeft", "job,file,missing");
+
+        String[] values = trie.extract(load("api_job"));
+
+        assertArrayEquals(new String[] { "Printing", "whistle_v2.gcode", "1468987", "8811", "0.2298468264184775",
+                null, null }, values);
+    }
+
+    @Test
+    public void testPrinterResponse() throws IOException {
+        KeyPathTrie trie = trie("state,text", "state,flags,operational", "temperature,bed,offset", "temperature");
+
+        String[] values = trie.extract(load("api_printer"));
+
+        assertArrayEquals(new String[] { "Operational", "true", "5", null }, values);
+    }
+
+    @Test
+    public void testStreamingMatchesTree() throws IOException {
+        KeyPathTrie trie = trie("state,text", "temperature,tool0,actual", "temperature,tool0,target", "sd,ready");
+        String json = Files.readString(Path.of("src/test/resources/api_printer.json"));
+
+        assertArrayEquals(trie.extract(JsonParser.parseString(json)), trie.extract(new StringReader(json)));
+    }
+
+    @Test
+    public void testSharedKeyPath() throws IOException {
+        KeyPathTrie trie = trie("state", "state");
+
+        assertArrayEquals(new String[] { "Printing", "Printing" }, trie.extract(load("api_job")));
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.octoprint.internal.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.eclipse.jetty.websocket.server.WebSocketHandler;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.binding.octoprint.internal.OctoPrintHandler;
+import org.openhab.binding.octoprint.internal.models.OctoprintServer;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.binding.builder.ChannelBuilder;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Tests the translation of captured push messages into route documents and the push connection against a stub
+ * server that replays them.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class PushUpdateServiceTest {
+
+    private @NonNullByDefault({}) Server server;
+    private @NonNullByDefault({}) HttpClient httpClient;
+    private @NonNullByDefault({}) WebSocketClient webSocketClient;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (webSocketClient != null) {
+            webSocketClient.stop();
+        }
+        if (httpClient != null) {
+            httpClient.stop();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private JsonObject load(String fileName) throws IOException {
+        return JsonParser.parseString(Files.readString(Path.of("src/test/resources", fileName + ".json")))
+                .getAsJsonObject();
+    }
+
+    @Test
+    public void testCurrentMessage() throws IOException {
+        Map<String, JsonObject> documents = PushUpdateService.toRouteDocuments(load("push_current"));
+
+        JsonObject job = documents.get("api/job");
+        assertNotNull(job);
+        assertEquals("Printing", job.get("state").getAsString());
+        assertEquals("benchy.gcode", job.getAsJsonObject("job").getAsJsonObject("file").get("name").getAsString());
+        assertEquals(12.5, job.getAsJsonObject("progress").get("completion").getAsDouble());
+
+        JsonObject printer = documents.get("api/printer");
+        assertNotNull(printer);
+        assertEquals("Printing", printer.getAsJsonObject("state").get("text").getAsString());
+
+        JsonObject connection = documents.get("api/connection");
+        assertNotNull(connection);
+        assertEquals("Printing", connection.getAsJsonObject("current").get("state").getAsString());
+
+        JsonObject tool = documents.get("api/printer/tool");
+        assertNotNull(tool);
+        assertEquals(199.9, tool.getAsJsonObject("tool0").get("actual").getAsDouble());
+        assertEquals(5, tool.getAsJsonObject("tool0").get("offset").getAsInt());
+
+        JsonObject bed = documents.get("api/printer/bed");
+        assertNotNull(bed);
+        assertEquals(59.8, bed.getAsJsonObject("bed").get("actual").getAsDouble());
+        assertFalse(documents.containsKey("api/printer/chamber"));
+    }
+
+    @Test
+    public void testConnectedMessage() {
+        Map<String, JsonObject> documents = PushUpdateService.toRouteDocuments(JsonParser
+                .parseString("{\"connected\": {\"version\": \"1.9.3\", \"apikey\": \"x\"}}").getAsJsonObject());
+
+        assertEquals(1, documents.size());
+        assertEquals("1.9.3", documents.get("api/server").get("version").getAsString());
+    }
+
+    @Test
+    public void testEventMessage() {
+        Map<String, JsonObject> documents = PushUpdateService.toRouteDocuments(JsonParser
+                .parseString("{\"event\": {\"type\": \"PrintStarted\", \"payload\": {}}}").getAsJsonObject());
+
+        assertTrue(documents.isEmpty());
+    }
+
+    @Test
+    public void testChannelsAreUpdatedFromStubServer() throws Exception {
+        JsonObject current = load("push_current");
+        JsonObject history = new JsonObject();
+        history.add("history", current.getAsJsonObject("current").deepCopy());
+        history.getAsJsonObject("history").getAsJsonObject("state").addProperty("text", "Operational");
+        StubOctoPrintSocket socket = new StubOctoPrintSocket(List.of(history.toString(), current.toString()));
+        startServer(socket);
+
+        OctoPrintHandler handler = mock(OctoPrintHandler.class);
+        OctoprintServer octoprintServer = new OctoprintServer(
+                "localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort(), "apikey", "openhab");
+        HttpRequestService requestService = new HttpRequestService(octoprintServer, httpClient);
+        PollRequestService pollRequestService = new PollRequestService(requestService, handler, null);
+        pollRequestService.addPollRequest(ChannelBuilder.create(new ChannelUID("octoprint:server:test:state"),
+                "String").withProperties(Map.of("route", "api/job", "poll", "state")).build());
+        PushUpdateService pushUpdateService = new PushUpdateService(octoprintServer, requestService,
+                pollRequestService, webSocketClient, 2);
+
+        // the attempt runs in the background, the caller keeps polling until the websocket is open
+        assertFalse(pushUpdateService.connect());
+
+        verify(handler, timeout(5000)).updateChannel("state", StringType.valueOf("Operational"));
+        verify(handler, timeout(5000)).updateChannel("state", StringType.valueOf("Printing"));
+        assertTrue(pushUpdateService.isConnected());
+        assertTrue(pushUpdateService.connect());
+        assertEquals(List.of("{\"auth\": \"openhab:session-key\"}", "{\"throttle\": 2}"), socket.received);
+
+        pushUpdateService.dispose();
+    }
+
+    private void startServer(StubOctoPrintSocket socket) throws Exception {
+        server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+        WebSocketHandler webSocketHandler = new WebSocketHandler() {
+            @Override
+            public void configure(@NonNullByDefault({}) WebSocketServletFactory factory) {
+                factory.setCreator((request, response) -> socket);
+            }
+        };
+        // the passive login answers with the session key used to authenticate the websocket
+        webSocketHandler.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(@NonNullByDefault({}) String target, @NonNullByDefault({}) Request baseRequest,
+                    @NonNullByDefault({}) HttpServletRequest request,
+                    @NonNullByDefault({}) HttpServletResponse response) throws IOException {
+                if ("/api/login".equals(target) && "apikey".equals(request.getHeader("X-Api-Key"))) {
+                    response.setContentType("application/json");
+                    response.getOutputStream()
+                            .write("{\"name\": \"openhab\", \"session\": \"session-key\"}"
+                                    .getBytes(StandardCharsets.UTF_8));
+                } else {
+                    response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                }
+                baseRequest.setHandled(true);
+            }
+        });
+        server.setHandler(webSocketHandler);
+        server.start();
+
+        httpClient = new HttpClient();
+        httpClient.start();
+        webSocketClient = new WebSocketClient();
+        webSocketClient.start();
+    }
+
+    /**
+     * Replays captured messages once the client has authenticated.
+     */
+    @WebSocket
+    public static class StubOctoPrintSocket {
+        final List<String> messages;
+        final List<String> received = new CopyOnWriteArrayList<>();
+
+        StubOctoPrintSocket(List<String> messages) {
+            this.messages = messages;
+        }
+
+        @OnWebSocketConnect
+        public void onConnect(Session session) {
+            session.getRemote().sendStringByFuture("{\"connected\": {\"version\": \"1.9.3\"}}");
+        }
+
+        @OnWebSocketMessage
+        public void onMessage(Session session, String message) {
+            received.add(message);
+            if (message.startsWith("{\"auth\"")) {
+                messages.forEach(session.getRemote()::sendStringByFuture);
+            }
+        }
+    }
+}
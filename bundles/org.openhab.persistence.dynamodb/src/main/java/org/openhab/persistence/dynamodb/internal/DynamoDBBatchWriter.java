@@ -0,0 +1,542 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.dynamodb.internal;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongConsumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.persistence.journal.PersistenceJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+
+/**
+ * Writes DTOs with BatchWriteItem requests.
+ *
+ * DTOs are queued per DTO class, i.e. per table, and sent in batches of up to {@link #MAX_BATCH_SIZE} items, as soon as
+ * a batch is full or {@link #BATCH_DELAY} after the first DTO has been queued. Items left unprocessed by DynamoDB are
+ * put back at the head of their queue.
+ *
+ * The number of concurrent requests adapts to throttling: it is halved whenever DynamoDB throttles a request or
+ * leaves items unprocessed, and the next request is delayed with exponential backoff. Every fully processed batch
+ * allows one more concurrent request, up to {@link #MAX_IN_FLIGHT}.
+ *
+ * When a table does not exist, the first item of the batch is written with {@link TableCreatingPutItem}, which
+ * creates the table, and the remaining items are queued again.
+ *
+ * If a journal is set, batches that cannot be written because the client is not available or DynamoDB is not
+ * reachable are journaled, and so are the oldest items of a table when the queue is full. After a batch has been
+ * written successfully, the journaled items are written again while the queue is less than half full. They are only
+ * removed from the journal once DynamoDB has confirmed them. Since items are keyed by their name and time, they do not
+ * need to be written in order and writing them twice does no harm.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class DynamoDBBatchWriter {
+    /**
+     * Maximum number of put requests in one BatchWriteItem request, limited by DynamoDB
+     */
+    static final int MAX_BATCH_SIZE = 25;
+    static final int MAX_QUEUED = 10_000;
+    static final int MAX_IN_FLIGHT = 16;
+    private static final int INITIAL_IN_FLIGHT = 4;
+    private static final Duration BATCH_DELAY = Duration.ofMillis(500);
+    private static final Duration MIN_BACKOFF = Duration.ofMillis(50);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(10);
+    private static final Duration REPLAY_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Logger logger = LoggerFactory.getLogger(DynamoDBBatchWriter.class);
+
+    private final DynamoDBPersistenceService service;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService executor;
+    private final LongConsumer latencyListener;
+
+    // all fields below are guarded by this
+    private final Map<Class<?>, TableQueue<?>> queues = new LinkedHashMap<>();
+    private int queued;
+    private int inFlight;
+    private int inFlightLimit = INITIAL_IN_FLIGHT;
+    private int throttledInRow;
+    private @Nullable ScheduledFuture<?> drainJob;
+    private volatile @Nullable PersistenceJournal<DynamoDBItem<?>> journal;
+
+    private long written;
+    private long dropped;
+    private long failed;
+    private long throttled;
+
+    /**
+     * @param service the service providing client and tables
+     * @param scheduler scheduler for delayed batches and backoff
+     * @param latencyListener receives the duration of every BatchWriteItem request in nanoseconds
+     */
+    public DynamoDBBatchWriter(DynamoDBPersistenceService service, ScheduledExecutorService scheduler,
+            LongConsumer latencyListener) {
+        this.service = service;
+        this.scheduler = scheduler;
+        this.executor = service.getExecutor();
+        this.latencyListener = latencyListener;
+    }
+
+    /**
+     * Sets the journal for items that cannot be written, <code>null</code> to drop them.
+     */
+    public void setJournal(@Nullable PersistenceJournal<DynamoDBItem<?>> journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Queues a DTO to be written to the table.
+     */
+    public synchronized <T extends DynamoDBItem<?>> void add(Class<T> dtoClass, DynamoDbAsyncTable<T> table, T dto) {
+        @SuppressWarnings("unchecked") // OK since queues are only populated here, keyed by the DTO class
+        TableQueue<T> queue = (TableQueue<T>) queues.computeIfAbsent(dtoClass, c -> new TableQueue<>(dtoClass, table));
+        if (queued >= MAX_QUEUED) {
+            // journal or drop the oldest items of this table, or the new one if the queue is filled by other tables
+            List<T> overflow = new ArrayList<>(MAX_BATCH_SIZE);
+            while (overflow.size() < MAX_BATCH_SIZE && !queue.items.isEmpty()) {
+                overflow.add(queue.items.pollFirst());
+            }
+            if (overflow.isEmpty()) {
+                overflow.add(dto);
+            } else {
+                queued -= overflow.size();
+                queue.items.addLast(dto);
+                queued++;
+            }
+            if (journal(overflow)) {
+                logger.debug("BatchWriteItem: write queue is full, journaled {} items.", overflow.size());
+            } else {
+                long droppedBefore = dropped;
+                dropped += overflow.size();
+                if (droppedBefore == 0 || droppedBefore / 1000 != dropped / 1000) {
+                    logger.warn("BatchWriteItem: write queue is full, dropped {} items so far.", dropped);
+                }
+            }
+        } else {
+            queue.items.addLast(dto);
+            queued++;
+        }
+        if (queue.items.size() >= MAX_BATCH_SIZE && throttledInRow == 0) {
+            drain();
+        } else if (drainJob == null) {
+            drainJob = scheduler.schedule(this::drain, BATCH_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends all queued items, waiting at most the timeout for the requests to complete.
+     *
+     * @return whether all items have been written or given up
+     */
+    public synchronized boolean flush(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        drain();
+        while (queued > 0 || inFlight > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Sends batches until the concurrency limit is reached.
+     */
+    private synchronized void drain() {
+        cancelDrainJob();
+        boolean sent = true;
+        // one batch per table in turn, so a busy table does not delay the others
+        while (sent && inFlight < inFlightLimit) {
+            sent = false;
+            for (TableQueue<?> queue : queues.values()) {
+                if (!queue.items.isEmpty() && inFlight < inFlightLimit) {
+                    send(queue);
+                    sent = true;
+                }
+            }
+        }
+    }
+
+    private <T extends DynamoDBItem<?>> void send(TableQueue<T> queue) {
+        DynamoDbEnhancedAsyncClient client = service.getClient();
+        List<T> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (batch.size() < MAX_BATCH_SIZE && !queue.items.isEmpty()) {
+            batch.add(queue.items.pollFirst());
+        }
+        queued -= batch.size();
+        if (client == null) {
+            if (journal(batch)) {
+                logger.debug("BatchWriteItem: client not available, journaled {} items.", batch.size());
+            } else {
+                logger.warn("BatchWriteItem: client not available, not storing {} items.", batch.size());
+                failed += batch.size();
+            }
+            notifyAll();
+            return;
+        }
+        inFlight++;
+
+        BatchWriteItemEnhancedRequest request = BatchWriteItemEnhancedRequest.builder()
+                .writeBatches(writeBatch(queue.dtoClass, queue.table, batch)).build();
+        long start = System.nanoTime();
+        logger.trace("BatchWriteItem: writing {} items to table {}", batch.size(), queue.table.tableName());
+        client.batchWriteItem(request).whenCompleteAsync((result, exception) -> {
+            latencyListener.accept(System.nanoTime() - start);
+            complete(queue, batch, result, exception);
+        }, executor);
+    }
+
+    private synchronized <T extends DynamoDBItem<?>> void complete(TableQueue<T> queue, List<T> batch,
+            @Nullable BatchWriteResult result, @Nullable Throwable exception) {
+        if (exception == null && result != null) {
+            List<T> unprocessed = result.unprocessedPutItemsForTable(queue.table);
+            written += batch.size() - unprocessed.size();
+            if (unprocessed.isEmpty()) {
+                onSuccess();
+            } else {
+                logger.debug("BatchWriteItem: {} of {} items unprocessed, retrying.", unprocessed.size(),
+                        batch.size());
+                requeue(queue, unprocessed);
+                onThrottled();
+            }
+        } else {
+            Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+                    ? exception.getCause()
+                    : exception;
+            if (isThrottling(cause)) {
+                logger.debug("BatchWriteItem: throttled, retrying {} items.", batch.size());
+                requeue(queue, batch);
+                onThrottled();
+            } else if (cause instanceof ResourceNotFoundException) {
+                logger.trace("BatchWriteItem: table '{}' was not present. Creating table with the first item.",
+                        queue.table.tableName());
+                createTable(queue, batch);
+                // the request is still in flight until the table has been created
+                return;
+            } else if (isTransient(cause) && journal(batch)) {
+                logger.debug("BatchWriteItem: failed with {} {}. Journaled {} items.",
+                        cause == null ? "" : cause.getClass().getSimpleName(),
+                        cause == null ? "" : cause.getMessage(), batch.size());
+            } else {
+                logger.warn("BatchWriteItem: failed (final) with {} {}. Not storing {} items.",
+                        cause == null ? "" : cause.getClass().getSimpleName(),
+                        cause == null ? "" : cause.getMessage(), batch.size());
+                failed += batch.size();
+            }
+        }
+        inFlight--;
+        scheduleDrain();
+        notifyAll();
+    }
+
+    private <T extends DynamoDBItem<?>> void createTable(TableQueue<T> queue, List<T> batch) {
+        new TableCreatingPutItem<>(service, batch.get(0), queue.table).putItemAsync()
+                .whenCompleteAsync((result, exception) -> {
+                    synchronized (this) {
+                        if (exception == null) {
+                            written++;
+                            requeue(queue, batch.subList(1, batch.size()));
+                        } else {
+                            // logged by TableCreatingPutItem
+                            failed += batch.size();
+                        }
+                        inFlight--;
+                        scheduleDrain();
+                        notifyAll();
+                    }
+                }, executor);
+    }
+
+    private static boolean isThrottling(@Nullable Throwable cause) {
+        return cause instanceof ProvisionedThroughputExceededException
+                || cause instanceof RequestLimitExceededException
+                || (cause instanceof SdkServiceException serviceException && serviceException.isThrottlingException());
+    }
+
+    /**
+     * @return whether the request may succeed when it is sent again later, e.g. because of a network error
+     */
+    private static boolean isTransient(@Nullable Throwable cause) {
+        return cause instanceof SdkClientException
+                || (cause instanceof SdkServiceException serviceException && serviceException.statusCode() >= 500);
+    }
+
+    private void onSuccess() {
+        throttledInRow = 0;
+        inFlightLimit = Math.min(MAX_IN_FLIGHT, inFlightLimit + 1);
+        PersistenceJournal<DynamoDBItem<?>> journal = this.journal;
+        if (journal != null && !journal.isEmpty()) {
+            executor.execute(this::replayJournal);
+        }
+    }
+
+    /**
+     * @return whether the items have been journaled
+     */
+    private boolean journal(List<? extends DynamoDBItem<?>> items) {
+        PersistenceJournal<DynamoDBItem<?>> journal = this.journal;
+        if (journal == null) {
+            return false;
+        }
+        try {
+            journal.append(items);
+            return true;
+        } catch (IOException e) {
+            logger.warn("BatchWriteItem: failed to journal {} items: {}", items.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes journaled items while the queue is less than half full.
+     */
+    private void replayJournal() {
+        PersistenceJournal<DynamoDBItem<?>> journal = this.journal;
+        if (journal == null) {
+            return;
+        }
+        try {
+            int replayed = journal.replay(MAX_BATCH_SIZE, this::writeJournaled);
+            logger.trace("BatchWriteItem: wrote {} journaled items.", replayed);
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("BatchWriteItem: failed to replay the journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes journaled items and waits until DynamoDB has processed them.
+     *
+     * @return whether all items have been written or rejected for good, only then they may be removed from the
+     *         journal
+     */
+    private boolean writeJournaled(List<DynamoDBItem<?>> dtos) {
+        List<DynamoDBBigDecimalItem> numbers = new ArrayList<>();
+        List<DynamoDBStringItem> strings = new ArrayList<>();
+        for (DynamoDBItem<?> dto : dtos) {
+            dto.accept(new DynamoDBItemVisitor<@Nullable Void>() {
+                @Override
+                public @Nullable Void visit(DynamoDBBigDecimalItem dynamoBigDecimalItem) {
+                    numbers.add(dynamoBigDecimalItem);
+                    return null;
+                }
+
+                @Override
+                public @Nullable Void visit(DynamoDBStringItem dynamoStringItem) {
+                    strings.add(dynamoStringItem);
+                    return null;
+                }
+            });
+        }
+        DynamoDbAsyncTable<DynamoDBBigDecimalItem> numberTable = service.getTable(DynamoDBBigDecimalItem.class);
+        DynamoDbAsyncTable<DynamoDBStringItem> stringTable = service.getTable(DynamoDBStringItem.class);
+        BatchWriteItemEnhancedRequest.Builder request = BatchWriteItemEnhancedRequest.builder();
+        if (!numbers.isEmpty()) {
+            request.addWriteBatch(writeBatch(DynamoDBBigDecimalItem.class, numberTable, numbers));
+        }
+        if (!strings.isEmpty()) {
+            request.addWriteBatch(writeBatch(DynamoDBStringItem.class, stringTable, strings));
+        }
+        DynamoDbEnhancedAsyncClient client = service.getClient();
+        synchronized (this) {
+            if (client == null || throttledInRow > 0 || queued + dtos.size() > MAX_QUEUED / 2) {
+                return false;
+            }
+            inFlight++;
+        }
+
+        int unprocessed = dtos.size();
+        boolean throttledRequest = false;
+        boolean rejected = false;
+        long start = System.nanoTime();
+        try {
+            BatchWriteResult result = client.batchWriteItem(request.build()).get(REPLAY_TIMEOUT.toMillis(),
+                    TimeUnit.MILLISECONDS);
+            unprocessed = (numbers.isEmpty() ? 0 : result.unprocessedPutItemsForTable(numberTable).size())
+                    + (strings.isEmpty() ? 0 : result.unprocessedPutItemsForTable(stringTable).size());
+            // unprocessed items are throttled items
+            throttledRequest = unprocessed > 0;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throttledRequest = isThrottling(cause);
+            // retrying an item DynamoDB rejects would block the journal forever
+            rejected = !throttledRequest && !isTransient(cause) && !(cause instanceof ResourceNotFoundException);
+            if (rejected) {
+                logger.warn("BatchWriteItem: failed (final) with {} {}. Not storing {} journaled items.",
+                        cause == null ? "" : cause.getClass().getSimpleName(),
+                        cause == null ? "" : cause.getMessage(), dtos.size());
+            } else {
+                logger.debug("BatchWriteItem: failed to write {} journaled items: {} {}", dtos.size(),
+                        cause == null ? "" : cause.getClass().getSimpleName(),
+                        cause == null ? "" : cause.getMessage());
+            }
+        } catch (TimeoutException e) {
+            logger.debug("BatchWriteItem: timed out writing {} journaled items.", dtos.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            latencyListener.accept(System.nanoTime() - start);
+            synchronized (this) {
+                written += dtos.size() - unprocessed;
+                if (rejected) {
+                    failed += dtos.size();
+                }
+                if (throttledRequest) {
+                    onThrottled();
+                }
+                inFlight--;
+                scheduleDrain();
+                notifyAll();
+            }
+        }
+        return rejected || unprocessed == 0;
+    }
+
+    private static <T extends DynamoDBItem<?>> WriteBatch writeBatch(Class<T> dtoClass, DynamoDbAsyncTable<T> table,
+            List<T> dtos) {
+        WriteBatch.Builder<T> writeBatch = WriteBatch.builder(dtoClass).mappedTableResource(table);
+        dtos.forEach(writeBatch::addPutItem);
+        return writeBatch.build();
+    }
+
+    private void onThrottled() {
+        throttled++;
+        throttledInRow++;
+        inFlightLimit = Math.max(1, inFlightLimit / 2);
+    }
+
+    /**
+     * Puts items back at the head of their queue, keeping their order.
+     */
+    private <T extends DynamoDBItem<?>> void requeue(TableQueue<T> queue, List<T> items) {
+        ListIterator<T> iterator = items.listIterator(items.size());
+        while (iterator.hasPrevious()) {
+            queue.items.addFirst(iterator.previous());
+        }
+        queued += items.size();
+    }
+
+    /**
+     * Continues sending queued items, after a backoff delay when requests have been throttled.
+     */
+    private void scheduleDrain() {
+        if (queued == 0) {
+            return;
+        }
+        if (throttledInRow == 0) {
+            drain();
+            return;
+        }
+        long backoff = Math.min(MAX_BACKOFF.toMillis(),
+                MIN_BACKOFF.toMillis() << Math.min(throttledInRow - 1, Long.SIZE - 2));
+        cancelDrainJob();
+        drainJob = scheduler.schedule(this::drain, backoff, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelDrainJob() {
+        ScheduledFuture<?> job = drainJob;
+        if (job != null) {
+            job.cancel(false);
+            drainJob = null;
+        }
+    }
+
+    /**
+     * @return the number of queued items
+     */
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    /**
+     * @return the number of requests currently allowed to run concurrently
+     */
+    public synchronized int getInFlightLimit() {
+        return inFlightLimit;
+    }
+
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public synchronized long getFailed() {
+        return failed;
+    }
+
+    public synchronized long getThrottled() {
+        return throttled;
+    }
+
+    /**
+     * @return the number of journaled items
+     */
+    public long getJournaled() {
+        PersistenceJournal<DynamoDBItem<?>> journal = this.journal;
+        return journal == null ? 0 : journal.getPendingValues();
+    }
+
+    /**
+     * @return the size of the journal in bytes
+     */
+    public long getJournaledBytes() {
+        PersistenceJournal<DynamoDBItem<?>> journal = this.journal;
+        return journal == null ? 0 : journal.getPendingBytes();
+    }
+
+    private static class TableQueue<T extends DynamoDBItem<?>> {
+        private final Class<T> dtoClass;
+        private final DynamoDbAsyncTable<T> table;
+        private final Deque<T> items = new ArrayDeque<>();
+
+        private TableQueue(Class<T> dtoClass, DynamoDbAsyncTable<T> table) {
+            this.dtoClass = dtoClass;
+            this.table = table;
+        }
+    }
+}
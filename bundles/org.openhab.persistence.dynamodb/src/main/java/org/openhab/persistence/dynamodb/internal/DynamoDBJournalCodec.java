@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.dynamodb.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.persistence.journal.JournalCodec;
+
+/**
+ * Stores DTOs in the journal by their type, name, time, state and the days until they expire.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class DynamoDBJournalCodec implements JournalCodec<DynamoDBItem<?>> {
+    private static final byte TYPE_NUMBER = 0;
+    private static final byte TYPE_STRING = 1;
+
+    @Override
+    public byte[] encode(DynamoDBItem<?> dto) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            byte type = dto.accept(new DynamoDBItemVisitor<Byte>() {
+                @Override
+                public Byte visit(DynamoDBBigDecimalItem dynamoBigDecimalItem) {
+                    return TYPE_NUMBER;
+                }
+
+                @Override
+                public Byte visit(DynamoDBStringItem dynamoStringItem) {
+                    return TYPE_STRING;
+                }
+            });
+            out.writeByte(type);
+            out.writeUTF(dto.getName());
+            ZonedDateTime time = dto.getTime();
+            out.writeLong(time.toInstant().getEpochSecond());
+            out.writeInt(time.getNano());
+            out.writeUTF(time.getZone().getId());
+            Object state = dto.getState();
+            out.writeBoolean(state != null);
+            if (state != null) {
+                // strings may exceed the 64k of writeUTF
+                byte[] value = state.toString().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(value.length);
+                out.write(value);
+            }
+            Integer expireDays = dto.getExpireDays();
+            out.writeInt(expireDays == null ? 0 : expireDays);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public DynamoDBItem<?> decode(byte[] record) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte type = in.readByte();
+            String name = in.readUTF();
+            Instant instant = Instant.ofEpochSecond(in.readLong(), in.readInt());
+            ZonedDateTime time = instant.atZone(ZoneId.of(in.readUTF()));
+            String state = null;
+            if (in.readBoolean()) {
+                byte[] value = new byte[in.readInt()];
+                in.readFully(value);
+                state = new String(value, StandardCharsets.UTF_8);
+            }
+            int days = in.readInt();
+            @Nullable
+            Integer expireDays = days > 0 ? days : null;
+            return switch (type) {
+                case TYPE_NUMBER ->
+                    new DynamoDBBigDecimalItem(name, state == null ? null : new BigDecimal(state), time, expireDays);
+                case TYPE_STRING -> new DynamoDBStringItem(name, state, time, expireDays);
+                default -> throw new IOException("Unknown item type " + type);
+            };
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number", e);
+        }
+    }
+}
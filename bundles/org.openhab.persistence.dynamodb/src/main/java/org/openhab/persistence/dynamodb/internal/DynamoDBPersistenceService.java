@@ -12,11 +12,13 @@
  */
 package org.openhab.persistence.dynamodb.internal;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -27,7 +29,9 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.measure.Unit;
@@ -35,8 +39,10 @@ import javax.measure.Unit;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.common.ThreadPoolManager;
+import org.openhab.core.config.core.ConfigParser;
 import org.openhab.core.config.core.ConfigurableService;
 import org.openhab.core.i18n.UnitProvider;
+import org.openhab.core.io.monitor.MeterRegistryProvider;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
@@ -52,16 +58,24 @@ import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.strategy.PersistenceStrategy;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
+import org.openhab.persistence.journal.PersistenceJournal;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
 import org.reactivestreams.Subscriber;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
 import software.amazon.awssdk.awscore.defaultsmode.DefaultsMode;
@@ -103,6 +117,11 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
     protected static final String CONFIG_URI = "persistence:dynamodb";
 
     private static final String DYNAMODB_THREADPOOL_NAME = "dynamodbPersistenceService";
+    private static final String DYNAMODB_SCHEDULER_NAME = "dynamodbPersistenceService-batch";
+
+    private static final String METER_PREFIX = "openhab.persistence.dynamodb.";
+
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(10);
 
     private final ItemRegistry itemRegistry;
     private final UnitProvider unitProvider;
@@ -113,6 +132,8 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
     private @Nullable DynamoDBConfig dbConfig;
     private @Nullable DynamoDBTableNameResolver tableNameResolver;
     private final ExecutorService executor = ThreadPoolManager.getPool(DYNAMODB_THREADPOOL_NAME);
+    private final DynamoDBBatchWriter batchWriter = new DynamoDBBatchWriter(this,
+            ThreadPoolManager.getScheduledPool(DYNAMODB_SCHEDULER_NAME), this::recordWriteLatency);
     private static final Duration TIMEOUT_API_CALL = Duration.ofSeconds(60);
     private static final Duration TIMEOUT_API_CALL_ATTEMPT = Duration.ofSeconds(5);
     private Map<Class<? extends DynamoDBItem<?>>, DynamoDbAsyncTable<? extends DynamoDBItem<?>>> tableCache = new ConcurrentHashMap<>(
@@ -120,6 +141,13 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
 
     private @Nullable URI endpointOverride;
 
+    // metrics
+    private final List<Meter> meters = new ArrayList<>();
+    private @Nullable MeterRegistry meterRegistry;
+
+    private @Nullable PersistenceJournal<DynamoDBItem<?>> journal;
+    private @Nullable Timer writeTimer;
+
     void overrideConfig(AwsRequestOverrideConfiguration.Builder config) {
         config.apiCallAttemptTimeout(TIMEOUT_API_CALL_ATTEMPT).apiCallTimeout(TIMEOUT_API_CALL);
     }
@@ -166,6 +194,18 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
         return executor;
     }
 
+    @Nullable
+    DynamoDbEnhancedAsyncClient getClient() {
+        return client;
+    }
+
+    /**
+     * For tests
+     */
+    DynamoDBBatchWriter getBatchWriter() {
+        return batchWriter;
+    }
+
     @Nullable
     DynamoDBTableNameResolver getTableNameResolver() {
         return tableNameResolver;
@@ -197,6 +237,18 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
             return;
         }
 
+        closeJournal();
+        if (ConfigParser.valueAsOrElse(config.get("journal"), Boolean.class, false)) {
+            try {
+                PersistenceJournal<DynamoDBItem<?>> journal = new PersistenceJournal<>(
+                        PersistenceJournal.getDefaultDirectory(getId()), new DynamoDBJournalCodec());
+                batchWriter.setJournal(journal);
+                this.journal = journal;
+            } catch (IOException e) {
+                logger.warn("Failed to open the journal: {}", e.getMessage());
+            }
+        }
+
         isProperlyConfigured = true;
         logger.debug("dynamodb persistence service activated");
     }
@@ -205,7 +257,79 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
     public void deactivate() {
         logger.debug("dynamodb persistence service deactivated");
         logIfManyQueuedTasks();
+        try {
+            if (!batchWriter.flush(FLUSH_TIMEOUT)) {
+                logger.warn("DynamoDB failed to finally store {} items.", batchWriter.getQueued());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeJournal();
         disconnect();
+        synchronized (meters) {
+            removeMeters();
+        }
+    }
+
+    private void closeJournal() {
+        PersistenceJournal<DynamoDBItem<?>> journal = this.journal;
+        if (journal != null) {
+            batchWriter.setJournal(null);
+            journal.close();
+            this.journal = null;
+        }
+    }
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    public void setMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getOHMeterRegistry();
+        synchronized (meters) {
+            removeMeters();
+            this.meterRegistry = meterRegistry;
+            meters.add(Gauge.builder(METER_PREFIX + "queue.size", batchWriter, DynamoDBBatchWriter::getQueued)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder(METER_PREFIX + "requests.limit", batchWriter,
+                    DynamoDBBatchWriter::getInFlightLimit).register(meterRegistry));
+            meters.add(FunctionCounter.builder(METER_PREFIX + "items.written", batchWriter,
+                    DynamoDBBatchWriter::getWritten).register(meterRegistry));
+            meters.add(FunctionCounter.builder(METER_PREFIX + "items.dropped", batchWriter,
+                    DynamoDBBatchWriter::getDropped).register(meterRegistry));
+            meters.add(FunctionCounter.builder(METER_PREFIX + "items.failed", batchWriter,
+                    DynamoDBBatchWriter::getFailed).register(meterRegistry));
+            meters.add(FunctionCounter.builder(METER_PREFIX + "requests.throttled", batchWriter,
+                    DynamoDBBatchWriter::getThrottled).register(meterRegistry));
+            meters.add(Gauge.builder(METER_PREFIX + "journal.values", batchWriter, DynamoDBBatchWriter::getJournaled)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder(METER_PREFIX + "journal.bytes", batchWriter,
+                    DynamoDBBatchWriter::getJournaledBytes).baseUnit("bytes").register(meterRegistry));
+            Timer writeTimer = Timer.builder(METER_PREFIX + "write").publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            meters.add(writeTimer);
+            this.writeTimer = writeTimer;
+        }
+    }
+
+    public void unsetMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        synchronized (meters) {
+            removeMeters();
+        }
+    }
+
+    private void removeMeters() {
+        MeterRegistry meterRegistry = this.meterRegistry;
+        if (meterRegistry != null) {
+            meters.forEach(meterRegistry::remove);
+        }
+        meters.clear();
+        this.meterRegistry = null;
+        this.writeTimer = null;
+    }
+
+    private void recordWriteLatency(long nanos) {
+        Timer writeTimer = this.writeTimer;
+        if (writeTimer != null) {
+            writeTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
     }
 
     /**
@@ -277,7 +401,7 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
         }
     }
 
-    private <T extends DynamoDBItem<?>> DynamoDbAsyncTable<T> getTable(Class<T> dtoClass) {
+    <T extends DynamoDBItem<?>> DynamoDbAsyncTable<T> getTable(Class<T> dtoClass) {
         DynamoDbEnhancedAsyncClient localClient = client;
         DynamoDBTableNameResolver localTableNameResolver = tableNameResolver;
         if (!ensureClient() || localClient == null || localTableNameResolver == null) {
@@ -561,21 +685,21 @@ public class DynamoDBPersistenceService implements QueryablePersistenceService {
             }
             logger.trace("store() called with item {} {} '{}', which was converted to DTO {}",
                     copiedItem.getClass().getSimpleName(), effectiveName, copiedItem.getState(), dto);
-            dto.accept(new DynamoDBItemVisitor<TableCreatingPutItem<? extends DynamoDBItem<?>>>() {
+            dto.accept(new DynamoDBItemVisitor<@Nullable Void>() {
 
                 @Override
-                public TableCreatingPutItem<? extends DynamoDBItem<?>> visit(
-                        DynamoDBBigDecimalItem dynamoBigDecimalItem) {
-                    return new TableCreatingPutItem<>(DynamoDBPersistenceService.this, dynamoBigDecimalItem,
-                            getTable(DynamoDBBigDecimalItem.class));
+                public @Nullable Void visit(DynamoDBBigDecimalItem dynamoBigDecimalItem) {
+                    batchWriter.add(DynamoDBBigDecimalItem.class, getTable(DynamoDBBigDecimalItem.class),
+                            dynamoBigDecimalItem);
+                    return null;
                 }
 
                 @Override
-                public TableCreatingPutItem<? extends DynamoDBItem<?>> visit(DynamoDBStringItem dynamoStringItem) {
-                    return new TableCreatingPutItem<>(DynamoDBPersistenceService.this, dynamoStringItem,
-                            getTable(DynamoDBStringItem.class));
+                public @Nullable Void visit(DynamoDBStringItem dynamoStringItem) {
+                    batchWriter.add(DynamoDBStringItem.class, getTable(DynamoDBStringItem.class), dynamoStringItem);
+                    return null;
                 }
-            }).putItemAsync();
+            });
         }, executor).exceptionally(e -> {
             logger.error("Unexcepted error", e);
             return null;
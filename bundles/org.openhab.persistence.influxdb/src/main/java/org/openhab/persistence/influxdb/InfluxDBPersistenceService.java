@@ -14,6 +14,8 @@ package org.openhab.persistence.influxdb;
 
 import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.*;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -25,17 +27,27 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.NamedThreadFactory;
 import org.openhab.core.common.ThreadPoolManager;
 import org.openhab.core.config.core.ConfigurableService;
+import org.openhab.core.io.monitor.MeterRegistryProvider;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemFactory;
 import org.openhab.core.items.ItemRegistry;
@@ -55,10 +67,14 @@ import org.openhab.persistence.influxdb.internal.InfluxDBHistoricItem;
 import org.openhab.persistence.influxdb.internal.InfluxDBMetadataService;
 import org.openhab.persistence.influxdb.internal.InfluxDBPersistentItemInfo;
 import org.openhab.persistence.influxdb.internal.InfluxDBRepository;
+import org.openhab.persistence.influxdb.internal.InfluxDBRepository.WriteResult;
 import org.openhab.persistence.influxdb.internal.InfluxDBStateConvertUtils;
 import org.openhab.persistence.influxdb.internal.InfluxPoint;
+import org.openhab.persistence.influxdb.internal.InfluxPointJournalCodec;
+import org.openhab.persistence.influxdb.internal.InfluxPointQueue;
 import org.openhab.persistence.influxdb.internal.influx1.InfluxDB1RepositoryImpl;
 import org.openhab.persistence.influxdb.internal.influx2.InfluxDB2RepositoryImpl;
+import org.openhab.persistence.journal.PersistenceJournal;
 import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -69,6 +85,12 @@ import org.osgi.service.component.annotations.ReferencePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 /**
  * This is the implementation of the InfluxDB {@link PersistenceService}. It
  * persists item values using the <a href="http://influxdb.org">InfluxDB</a> time
@@ -100,6 +122,7 @@ public class InfluxDBPersistenceService implements ModifiablePersistenceService
 
     private static final int COMMIT_INTERVAL = 3; // in s
     protected static final String CONFIG_URI = "persistence:influxdb";
+    private static final String METER_PREFIX = "openhab.persistence.influxdb.";
 
     // External dependencies
     private final ItemRegistry itemRegistry;
@@ -110,8 +133,25 @@ public class InfluxDBPersistenceService implements ModifiablePersistenceService
     private boolean serviceActivated;
 
     // storage
+    private final ScheduledExecutorService scheduler = ThreadPoolManager.getScheduledPool("org.openhab.influxdb");
     private final ScheduledFuture<?> storeJob;
-    private final BlockingQueue<InfluxPoint> pointsQueue = new LinkedBlockingQueue<>();
+    private final InfluxPointQueue pointsQueue;
+    private final ExecutorService writeExecutor;
+    // held while points are written, so batches are drained by one commit at a time
+    private final ReentrantLock commitLock = new ReentrantLock();
+    // set while an early commit is scheduled, so stores do not schedule one commit each
+    private final AtomicBoolean earlyCommitScheduled = new AtomicBoolean();
+    // whether the last commit could write to the database, early commits are only scheduled while it could
+    private volatile boolean databaseAvailable = true;
+    private long reportedDroppedPoints;
+    // points that could not be written, if enabled
+    private final @Nullable PersistenceJournal<InfluxPoint> journal;
+
+    // metrics
+    private final List<Meter> meters = new ArrayList<>();
+    private @Nullable MeterRegistry meterRegistry;
+    private @Nullable Timer writeTimer;
+    private final AtomicLong writtenPoints = new AtomicLong();
 
     // conversion
     private final Set<ItemFactory> itemFactories = new HashSet<>();
@@ -124,10 +164,15 @@ public class InfluxDBPersistenceService implements ModifiablePersistenceService
         this.influxDBMetadataService = influxDBMetadataService;
         this.configuration = new InfluxDBConfiguration(config);
         if (configuration.isValid()) {
+            this.pointsQueue = new InfluxPointQueue(configuration.getMaxQueueSize(),
+                    configuration.getOverflowPolicy());
+            this.writeExecutor = Executors.newFixedThreadPool(configuration.getWriteThreads(),
+                    new NamedThreadFactory("influxdb-write"));
+            this.journal = configuration.isJournal() ? openJournal() : null;
             this.influxDBRepository = createInfluxDBRepository();
             this.influxDBRepository.connect();
-            this.storeJob = ThreadPoolManager.getScheduledPool("org.openhab.influxdb")
-                    .scheduleWithFixedDelay(this::commit, COMMIT_INTERVAL, COMMIT_INTERVAL, TimeUnit.SECONDS);
+            this.storeJob = scheduler.scheduleWithFixedDelay(this::commit, COMMIT_INTERVAL, COMMIT_INTERVAL,
+                    TimeUnit.SECONDS);
             serviceActivated = true;
         } else {
             throw new IllegalArgumentException("Configuration invalid.");
@@ -136,6 +181,16 @@ public class InfluxDBPersistenceService implements ModifiablePersistenceService
         logger.info("InfluxDB persistence service started.");
     }
 
+    private @Nullable PersistenceJournal<InfluxPoint> openJournal() {
+        try {
+            return new PersistenceJournal<>(PersistenceJournal.getDefaultDirectory(SERVICE_NAME),
+                    new InfluxPointJournalCodec());
+        } catch (IOException e) {
+            logger.warn("Failed to open the journal, points that cannot be written are queued: {}", e.getMessage());
+            return null;
+        }
+    }
+
     // Visible for testing
     protected InfluxDBRepository createInfluxDBRepository() throws IllegalArgumentException {
         return switch (configuration.getVersion()) {
@@ -153,16 +208,71 @@ public class InfluxDBPersistenceService implements ModifiablePersistenceService
         serviceActivated = false;
 
         storeJob.cancel(false);
-        commit(); // ensure we at least tried to store the data;
+        commitLock.lock(); // wait for a running commit
+        try {
+            commit(); // ensure we at least tried to store the data;
+        } finally {
+            commitLock.unlock();
+        }
+        writeExecutor.shutdown();
 
         if (!pointsQueue.isEmpty()) {
             logger.warn("InfluxDB failed to finally store {} points.", pointsQueue.size());
         }
+        PersistenceJournal<InfluxPoint> journal = this.journal;
+        if (journal != null) {
+            journal.close();
+        }
 
         influxDBRepository.disconnect();
+        synchronized (meters) {
+            removeMeters();
+        }
         logger.info("InfluxDB persistence service stopped.");
     }
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    public void setMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getOHMeterRegistry();
+        synchronized (meters) {
+            removeMeters();
+            this.meterRegistry = meterRegistry;
+            meters.add(Gauge.builder(METER_PREFIX + "queue.size", pointsQueue, InfluxPointQueue::size)
+                    .register(meterRegistry));
+            meters.add(FunctionCounter.builder(METER_PREFIX + "points.dropped", pointsQueue,
+                    InfluxPointQueue::getDropped).register(meterRegistry));
+            meters.add(FunctionCounter.builder(METER_PREFIX + "points.written", writtenPoints, AtomicLong::get)
+                    .register(meterRegistry));
+            PersistenceJournal<InfluxPoint> journal = this.journal;
+            if (journal != null) {
+                meters.add(Gauge.builder(METER_PREFIX + "journal.values", journal, PersistenceJournal::getPendingValues)
+                        .register(meterRegistry));
+                meters.add(Gauge.builder(METER_PREFIX + "journal.bytes", journal, PersistenceJournal::getPendingBytes)
+                        .baseUnit("bytes").register(meterRegistry));
+            }
+            Timer writeTimer = Timer.builder(METER_PREFIX + "write").publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            meters.add(writeTimer);
+            this.writeTimer = writeTimer;
+        }
+    }
+
+    public void unsetMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        synchronized (meters) {
+            removeMeters();
+        }
+    }
+
+    private void removeMeters() {
+        MeterRegistry meterRegistry = this.meterRegistry;
+        if (meterRegistry != null) {
+            meters.forEach(meterRegistry::remove);
+        }
+        meters.clear();
+        this.meterRegistry = null;
+        this.writeTimer = null;
+    }
+
     @Override
     public String getId() {
         return SERVICE_NAME;
@@ -210,10 +320,18 @@ public class InfluxDBPersistenceService implements ModifiablePersistenceService
                 logger.trace("Ignoring item {}, conversion to an InfluxDB point failed.", item.getName());
                 return;
             }
-            if (pointsQueue.offer(point)) {
+            if (pointsQueue.add(point)) {
                 logger.trace("Queued {} for item {}", point, item);
             } else {
-                logger.warn("Failed to queue {} for item {}", point, item);
+                logger.debug("Dropped {} for item {}, the queue is full", point, item);
+            }
+            if (pointsQueue.size() >= configuration.getBatchSize() && databaseAvailable
+                    && earlyCommitScheduled.compareAndSet(false, true)) {
+                // a full batch is waiting, do not wait for the next commit interval
+                scheduler.execute(() -> {
+                    earlyCommitScheduled.set(false);
+                    commit();
+                });
             }
         });
     }
@@ -253,6 +371,53 @@ public class InfluxDBPersistenceService implements ModifiablePersistenceService
         }
     }
 
+    /**
+     * Queries several items with one request to the database. Apart from the item name, all items are queried with
+     * the same filter.
+     * <p />
+     * If <code>maxPoints</code> is positive and the filter has a begin and end date, the range is divided into at most
+     * <code>maxPoints</code> windows of whole seconds, and the mean value of each window is returned instead of the
+     * stored values. Downsampling is only supported for items with numeric values.
+     *
+     * @param itemNames the distinct names of the items to query
+     * @param filter the filter applied to each item, its item name is ignored
+     * @param maxPoints the maximum number of values per item, <code>0</code> to query the stored values
+     * @param seriesConsumer called once per item in the order of the item names, with the item name and its values
+     */
+    public void query(List<String> itemNames, FilterCriteria filter, int maxPoints,
+            BiConsumer<String, List<HistoricItem>> seriesConsumer) {
+        if (itemNames.isEmpty()) {
+            return;
+        }
+        if (serviceActivated && checkConnection()) {
+            Duration aggregationWindow = getAggregationWindow(filter, maxPoints);
+            logger.trace("Query-Filter for items {}: {}, aggregation window: {}", itemNames, filter,
+                    aggregationWindow);
+            influxDBRepository.query(itemNames, filter, configuration.getRetentionPolicy(), aggregationWindow,
+                    (itemName, rows) -> seriesConsumer.accept(itemName,
+                            rows.stream().map(this::mapRowToHistoricItem).toList()));
+        } else {
+            logger.debug("Query for persisted data ignored, InfluxDB is not connected");
+        }
+    }
+
+    /**
+     * Package-private for testing.
+     *
+     * @return the shortest duration of whole seconds dividing the range of the filter into at most
+     *         <code>maxPoints</code> windows, <code>null</code> if the values should not be aggregated
+     */
+    static @Nullable Duration getAggregationWindow(FilterCriteria filter, int maxPoints) {
+        ZonedDateTime beginDate = filter.getBeginDate();
+        ZonedDateTime endDate = filter.getEndDate();
+        if (maxPoints <= 0 || beginDate == null || endDate == null || !endDate.isAfter(beginDate)) {
+            return null;
+        }
+        long rangeMillis = Duration.between(beginDate, endDate).toMillis();
+        long windowSeconds = Math.max(1, (rangeMillis + maxPoints * 1000L - 1) / (maxPoints * 1000L));
+        return Duration.ofSeconds(windowSeconds);
+    }
+
     private HistoricItem mapRowToHistoricItem(InfluxDBRepository.InfluxRow row) {
         State state = InfluxDBStateConvertUtils.objectToState(row.value(), row.itemName(), itemRegistry);
         return new InfluxDBHistoricItem(row.itemName(), state,
@@ -279,17 +444,163 @@ public class InfluxDBPersistenceService implements ModifiablePersistenceService
         return false;
     }
 
+    /**
+     * Writes the queued points in batches of at most the configured batch size, up to one batch per write thread at
+     * a time. Continues while at least a full batch is queued, the rest waits for the next commit interval. Returns
+     * immediately if another commit is running.
+     * <p />
+     * If the journal is enabled, the journaled points are written first. Until the journal is empty, queued points
+     * are journaled behind them.
+     */
     private void commit() {
-        if (!pointsQueue.isEmpty() && checkConnection()) {
-            List<InfluxPoint> points = new ArrayList<>();
-            pointsQueue.drainTo(points);
-            if (!influxDBRepository.write(points)) {
-                logger.warn("Re-queuing {} elements, failed to write batch.", points.size());
-                pointsQueue.addAll(points);
-                influxDBRepository.disconnect();
-            } else {
-                logger.trace("Wrote {} elements to database", points.size());
+        if (!commitLock.tryLock()) {
+            return;
+        }
+        try {
+            reportDroppedPoints();
+            PersistenceJournal<InfluxPoint> journal = this.journal;
+            if (journal != null && !replayJournal(journal)) {
+                databaseAvailable = false;
+                List<InfluxPoint> points = pointsQueue.poll(Integer.MAX_VALUE);
+                if (!journalPoints(journal, points)) {
+                    pointsQueue.requeue(points);
+                }
+                return;
             }
+            int batchSize = configuration.getBatchSize();
+            boolean moreBatches = true;
+            while (moreBatches && !pointsQueue.isEmpty()) {
+                if (!checkConnection()) {
+                    databaseAvailable = false;
+                    break;
+                }
+                List<List<InfluxPoint>> batches = new ArrayList<>();
+                for (int i = 0; i < configuration.getWriteThreads() && !pointsQueue.isEmpty(); i++) {
+                    batches.add(pointsQueue.poll(batchSize));
+                }
+                List<InfluxPoint> failedPoints = writeBatches(batches);
+                if (!failedPoints.isEmpty()) {
+                    if (journal != null && journalPoints(journal, failedPoints)) {
+                        logger.warn("Journaled {} elements, failed to write batch.", failedPoints.size());
+                    } else {
+                        logger.warn("Re-queuing {} elements, failed to write batch.", failedPoints.size());
+                        pointsQueue.requeue(failedPoints);
+                    }
+                    influxDBRepository.disconnect();
+                    databaseAvailable = false;
+                    moreBatches = false;
+                } else {
+                    databaseAvailable = true;
+                    moreBatches = pointsQueue.size() >= batchSize;
+                }
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the journaled points in batches of at most the configured batch size. Batches the database rejects are
+     * removed from the journal as well.
+     *
+     * @return whether the journal is empty and the database is connected, so queued points can be written directly
+     */
+    private boolean replayJournal(PersistenceJournal<InfluxPoint> journal) {
+        if (!checkConnection()) {
+            return false;
+        }
+        if (journal.isEmpty()) {
+            return true;
+        }
+        try {
+            int replayed = journal.replay(configuration.getBatchSize(), this::writeBatch);
+            logger.debug("Wrote {} journaled points to database", replayed);
+        } catch (IOException e) {
+            logger.warn("Failed to read the journal: {}", e.getMessage());
+            return false;
+        }
+        if (!journal.isEmpty()) {
+            influxDBRepository.disconnect();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the points have been journaled
+     */
+    private boolean journalPoints(PersistenceJournal<InfluxPoint> journal, List<InfluxPoint> points) {
+        try {
+            journal.append(points);
+            logger.trace("Journaled {} elements", points.size());
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to journal {} elements: {}", points.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return the points of the batches that could not be written and should be written again later
+     */
+    private List<InfluxPoint> writeBatches(List<List<InfluxPoint>> batches) {
+        List<InfluxPoint> failedPoints = new ArrayList<>();
+        if (batches.size() == 1) {
+            if (!writeBatch(batches.get(0))) {
+                failedPoints.addAll(batches.get(0));
+            }
+            return failedPoints;
+        }
+        List<Future<Boolean>> results = new ArrayList<>(batches.size());
+        for (List<InfluxPoint> batch : batches) {
+            try {
+                results.add(writeExecutor.submit(() -> writeBatch(batch)));
+            } catch (RejectedExecutionException e) {
+                // the service is being deactivated, write on this thread
+                results.add(CompletableFuture.completedFuture(writeBatch(batch)));
+            }
+        }
+        for (int i = 0; i < batches.size(); i++) {
+            boolean done;
+            try {
+                done = results.get(i).get();
+            } catch (ExecutionException e) {
+                logger.debug("Writing batch failed", e.getCause());
+                done = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                done = false;
+            }
+            if (!done) {
+                failedPoints.addAll(batches.get(i));
+            }
+        }
+        return failedPoints;
+    }
+
+    /**
+     * @return whether the batch is done with, i.e. it has been written or the database rejected it
+     */
+    private boolean writeBatch(List<InfluxPoint> batch) {
+        long start = System.nanoTime();
+        WriteResult result = influxDBRepository.write(batch);
+        Timer writeTimer = this.writeTimer;
+        if (writeTimer != null) {
+            writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (result == WriteResult.WRITTEN) {
+            writtenPoints.addAndGet(batch.size());
+            logger.trace("Wrote {} elements to database", batch.size());
+        }
+        return result != WriteResult.RETRY;
+    }
+
+    private void reportDroppedPoints() {
+        long droppedPoints = pointsQueue.getDropped();
+        if (droppedPoints > reportedDroppedPoints) {
+            logger.warn("Dropped {} points because the queue reached its maximum size of {}.",
+                    droppedPoints - reportedDroppedPoints, configuration.getMaxQueueSize());
+            reportedDroppedPoints = droppedPoints;
         }
     }
 
@@ -12,7 +12,11 @@
  */
 package org.openhab.persistence.influxdb.internal;
 
+import java.time.Duration;
+import java.util.List;
+
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.persistence.FilterCriteria;
 
 /**
@@ -29,7 +33,40 @@ public interface FilterCriteriaQueryCreator {
      * @param retentionPolicy Name of the retentionPolicy/bucket to use in query
      * @return Created query as a String
      */
-    String createQuery(FilterCriteria criteria, String retentionPolicy);
+    default String createQuery(FilterCriteria criteria, String retentionPolicy) {
+        return createQuery(criteria, retentionPolicy, null);
+    }
+
+    /**
+     * Create query from {@link FilterCriteria}, optionally returning the mean values of fixed time windows instead of
+     * the stored values
+     *
+     * @param criteria Criteria to create query from
+     * @param retentionPolicy Name of the retentionPolicy/bucket to use in query
+     * @param aggregationWindow Duration of the time windows, <code>null</code> to query the stored values
+     * @return Created query as a String
+     */
+    String createQuery(FilterCriteria criteria, String retentionPolicy, @Nullable Duration aggregationWindow);
+
+    /**
+     * Create one query returning the values of several items, the results of each item are returned separately.
+     * Apart from the item name, all items are queried with the same {@link FilterCriteria}.
+     *
+     * @param itemNames Distinct names of the items to query
+     * @param criteria Criteria to create the query of each item from, its item name is ignored
+     * @param retentionPolicy Name of the retentionPolicy/bucket to use in query
+     * @param aggregationWindow Duration of the time windows, <code>null</code> to query the stored values
+     * @return Created query as a String
+     */
+    String createQuery(List<String> itemNames, FilterCriteria criteria, String retentionPolicy,
+            @Nullable Duration aggregationWindow);
+
+    default FilterCriteria copyForItem(FilterCriteria criteria, String itemName) {
+        return new FilterCriteria().setItemName(itemName).setBeginDate(criteria.getBeginDate())
+                .setEndDate(criteria.getEndDate()).setOperator(criteria.getOperator())
+                .setState(criteria.getState()).setOrdering(criteria.getOrdering())
+                .setPageNumber(criteria.getPageNumber()).setPageSize(criteria.getPageSize());
+    }
 
     default String getOperationSymbol(FilterCriteria.Operator operator, InfluxDBVersion version) {
         return switch (operator) {
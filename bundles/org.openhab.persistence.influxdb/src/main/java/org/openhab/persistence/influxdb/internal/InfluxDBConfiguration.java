@@ -19,6 +19,7 @@ import java.util.StringJoiner;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.config.core.ConfigParser;
+import org.openhab.persistence.influxdb.internal.InfluxPointQueue.OverflowPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +41,11 @@ public class InfluxDBConfiguration {
     public static final String ADD_CATEGORY_TAG_PARAM = "addCategoryTag";
     public static final String ADD_LABEL_TAG_PARAM = "addLabelTag";
     public static final String ADD_TYPE_TAG_PARAM = "addTypeTag";
+    public static final String MAX_QUEUE_SIZE_PARAM = "maxQueueSize";
+    public static final String OVERFLOW_POLICY_PARAM = "overflowPolicy";
+    public static final String BATCH_SIZE_PARAM = "batchSize";
+    public static final String WRITE_THREADS_PARAM = "writeThreads";
+    public static final String JOURNAL_PARAM = "journal";
     private final Logger logger = LoggerFactory.getLogger(InfluxDBConfiguration.class);
     private final String url;
     private final String user;
@@ -52,6 +58,11 @@ public class InfluxDBConfiguration {
     private final boolean addCategoryTag;
     private final boolean addTypeTag;
     private final boolean addLabelTag;
+    private final int maxQueueSize;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final int writeThreads;
+    private final boolean journal;
 
     public InfluxDBConfiguration(Map<String, Object> config) {
         url = ConfigParser.valueAsOrElse(config.get(URL_PARAM), String.class, "http://127.0.0.1:8086");
@@ -65,6 +76,24 @@ public class InfluxDBConfiguration {
         addCategoryTag = ConfigParser.valueAsOrElse(config.get(ADD_CATEGORY_TAG_PARAM), Boolean.class, false);
         addLabelTag = ConfigParser.valueAsOrElse(config.get(ADD_LABEL_TAG_PARAM), Boolean.class, false);
         addTypeTag = ConfigParser.valueAsOrElse(config.get(ADD_TYPE_TAG_PARAM), Boolean.class, false);
+        maxQueueSize = Math.max(1, ConfigParser.valueAsOrElse(config.get(MAX_QUEUE_SIZE_PARAM), Integer.class, 10000));
+        overflowPolicy = parseOverflowPolicy(
+                ConfigParser.valueAsOrElse(config.get(OVERFLOW_POLICY_PARAM), String.class, ""));
+        batchSize = Math.max(1, ConfigParser.valueAsOrElse(config.get(BATCH_SIZE_PARAM), Integer.class, 1000));
+        writeThreads = Math.max(1, ConfigParser.valueAsOrElse(config.get(WRITE_THREADS_PARAM), Integer.class, 2));
+        journal = ConfigParser.valueAsOrElse(config.get(JOURNAL_PARAM), Boolean.class, false);
+    }
+
+    private OverflowPolicy parseOverflowPolicy(String value) {
+        if (value.isBlank()) {
+            return OverflowPolicy.DROP_OLDEST;
+        }
+        try {
+            return OverflowPolicy.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid overflow policy {}, using {}", value, OverflowPolicy.DROP_OLDEST);
+            return OverflowPolicy.DROP_OLDEST;
+        }
     }
 
     private InfluxDBVersion parseInfluxVersion(@Nullable String value) {
@@ -155,12 +184,34 @@ public class InfluxDBConfiguration {
         return version;
     }
 
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getWriteThreads() {
+        return writeThreads;
+    }
+
+    public boolean isJournal() {
+        return journal;
+    }
+
     @Override
     public String toString() {
         return "InfluxDBConfiguration{url='" + url + "', user='" + user + "', password='" + password.length()
                 + " chars', token='" + token.length() + " chars', databaseName='" + databaseName
                 + "', retentionPolicy='" + retentionPolicy + "', version=" + version + ", replaceUnderscore="
                 + replaceUnderscore + ", addCategoryTag=" + addCategoryTag + ", addTypeTag=" + addTypeTag
-                + ", addLabelTag=" + addLabelTag + '}';
+                + ", addLabelTag=" + addLabelTag + ", maxQueueSize=" + maxQueueSize + ", overflowPolicy="
+                + overflowPolicy + ", batchSize=" + batchSize + ", writeThreads=" + writeThreads
+                + ", journal=" + journal + '}';
     }
 }
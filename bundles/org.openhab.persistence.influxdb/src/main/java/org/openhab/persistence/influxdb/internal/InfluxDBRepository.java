@@ -12,11 +12,14 @@
  */
 package org.openhab.persistence.influxdb.internal;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.persistence.FilterCriteria;
 
 /**
@@ -26,6 +29,18 @@ import org.openhab.core.persistence.FilterCriteria;
  */
 @NonNullByDefault
 public interface InfluxDBRepository {
+    /**
+     * The outcome of {@link #write(List)}
+     */
+    enum WriteResult {
+        /** The points have been written. */
+        WRITTEN,
+        /** The points could not be written because of an IO error or a server error, they may be written later. */
+        RETRY,
+        /** The database rejected the points, e.g. because of a field type conflict, writing them again fails too. */
+        REJECTED
+    }
+
     /**
      * Returns if the client is successfully connected to server
      *
@@ -68,13 +83,26 @@ public interface InfluxDBRepository {
      */
     List<InfluxRow> query(FilterCriteria filter, String retentionPolicy);
 
+    /**
+     * Executes one query for several items
+     *
+     * @param itemNames the distinct names of the items to query
+     * @param filter the query filter applied to each item, its item name is ignored
+     * @param aggregationWindow duration of the time windows to aggregate the values into, <code>null</code> to
+     *            query the stored values
+     * @param seriesConsumer called once per item in the order of the item names, with the item name and its rows.
+     *            Not called if the query fails.
+     */
+    void query(List<String> itemNames, FilterCriteria filter, String retentionPolicy,
+            @Nullable Duration aggregationWindow, BiConsumer<String, List<InfluxRow>> seriesConsumer);
+
     /**
      * Write points to database
      *
      * @param influxPoints {@link List<InfluxPoint>} to write
-     * @return <code>true</code> if points have been written, <code>false</code> otherwise
+     * @return whether the points have been written, should be written again later or have been rejected
      */
-    boolean write(List<InfluxPoint> influxPoints);
+    WriteResult write(List<InfluxPoint> influxPoints);
 
     /**
      * Execute delete query
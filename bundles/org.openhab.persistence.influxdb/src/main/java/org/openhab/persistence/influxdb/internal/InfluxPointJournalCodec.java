@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.persistence.journal.JournalCodec;
+
+/**
+ * Stores {@link InfluxPoint}s in the journal. Points are journaled after they have been converted, so they are
+ * written unchanged even if the item or its metadata has changed in the meantime.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxPointJournalCodec implements JournalCodec<InfluxPoint> {
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_DECIMAL = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_DOUBLE = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+
+    @Override
+    public byte[] encode(InfluxPoint point) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(point.getMeasurementName());
+            out.writeLong(point.getTime().getEpochSecond());
+            out.writeInt(point.getTime().getNano());
+            Object value = point.getValue();
+            if (value instanceof BigDecimal decimal) {
+                out.writeByte(TYPE_DECIMAL);
+                out.writeUTF(decimal.toString());
+            } else if (value instanceof Integer || value instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong(((Number) value).longValue());
+            } else if (value instanceof Number number) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble(number.doubleValue());
+            } else if (value instanceof Boolean bool) {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeBoolean(bool);
+            } else {
+                // strings may exceed the 64k of writeUTF
+                byte[] string = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+                out.writeByte(TYPE_STRING);
+                out.writeInt(string.length);
+                out.write(string);
+            }
+            Map<String, String> tags = point.getTags();
+            out.writeInt(tags.size());
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                out.writeUTF(tag.getKey());
+                out.writeUTF(tag.getValue());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public InfluxPoint decode(byte[] record) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            InfluxPoint.Builder builder = InfluxPoint.newBuilder(in.readUTF())
+                    .withTime(Instant.ofEpochSecond(in.readLong(), in.readInt()));
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_DECIMAL -> builder.withValue(new BigDecimal(in.readUTF()));
+                case TYPE_LONG -> builder.withValue(in.readLong());
+                case TYPE_DOUBLE -> builder.withValue(in.readDouble());
+                case TYPE_BOOLEAN -> builder.withValue(in.readBoolean());
+                case TYPE_STRING -> {
+                    byte[] string = new byte[in.readInt()];
+                    in.readFully(string);
+                    builder.withValue(new String(string, StandardCharsets.UTF_8));
+                }
+                default -> throw new IOException("Unknown value type " + type);
+            }
+            int tags = in.readInt();
+            for (int i = 0; i < tags; i++) {
+                builder.withTag(in.readUTF(), in.readUTF());
+            }
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Bounded queue of the points waiting to be written. When the queue is full, either the oldest queued point or the
+ * new point is dropped, depending on the {@link OverflowPolicy}.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxPointQueue {
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST
+    }
+
+    private final Deque<InfluxPoint> points = new ArrayDeque<>();
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private long dropped;
+
+    public InfluxPointQueue(int capacity, OverflowPolicy overflowPolicy) {
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Adds a point at the end of the queue.
+     *
+     * @return <code>false</code> if the point has been dropped because the queue is full
+     */
+    public synchronized boolean add(InfluxPoint point) {
+        if (points.size() >= capacity) {
+            dropped++;
+            if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                return false;
+            }
+            points.pollFirst();
+        }
+        points.addLast(point);
+        return true;
+    }
+
+    /**
+     * Removes up to the given number of points from the head of the queue.
+     */
+    public synchronized List<InfluxPoint> poll(int maxPoints) {
+        int count = Math.min(maxPoints, points.size());
+        List<InfluxPoint> polled = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            polled.add(points.pollFirst());
+        }
+        return polled;
+    }
+
+    /**
+     * Puts points that failed to be written back at the head of the queue, keeping their order. Points exceeding the
+     * capacity are dropped according to the {@link OverflowPolicy}.
+     */
+    public synchronized void requeue(List<InfluxPoint> failedPoints) {
+        ListIterator<InfluxPoint> iterator = failedPoints.listIterator(failedPoints.size());
+        while (iterator.hasPrevious()) {
+            points.addFirst(iterator.previous());
+        }
+        while (points.size() > capacity) {
+            dropped++;
+            if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                points.pollLast();
+            } else {
+                points.pollFirst();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return points.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return points.isEmpty();
+    }
+
+    /**
+     * @return the number of points dropped since creation
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+}
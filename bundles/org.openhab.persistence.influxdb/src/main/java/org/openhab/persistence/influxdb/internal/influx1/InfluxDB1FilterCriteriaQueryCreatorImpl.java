@@ -16,7 +16,11 @@ import static org.influxdb.querybuilder.BuiltQuery.QueryBuilder.*;
 import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.*;
 import static org.openhab.persistence.influxdb.internal.InfluxDBStateConvertUtils.stateToObject;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -50,7 +54,10 @@ public class InfluxDB1FilterCriteriaQueryCreatorImpl implements FilterCriteriaQu
     }
 
     @Override
-    public String createQuery(FilterCriteria criteria, String retentionPolicy) {
+    public String createQuery(FilterCriteria criteria, String retentionPolicy, @Nullable Duration aggregationWindow) {
+        if (aggregationWindow != null) {
+            return createAggregationQuery(criteria, retentionPolicy, aggregationWindow);
+        }
         final String itemName = Objects.requireNonNull(criteria.getItemName()); // we checked non-null before
         final String tableName = getTableName(itemName);
         final boolean hasCriteriaName = itemName != null;
@@ -94,6 +101,72 @@ public class InfluxDB1FilterCriteriaQueryCreatorImpl implements FilterCriteriaQu
         return ((Query) select).getCommand();
     }
 
+    /**
+     * Joins the statements of the items, InfluxDB returns a separate result for each statement.
+     */
+    @Override
+    public String createQuery(List<String> itemNames, FilterCriteria criteria, String retentionPolicy,
+            @Nullable Duration aggregationWindow) {
+        return itemNames.stream()
+                .map(itemName -> createQuery(copyForItem(criteria, itemName), retentionPolicy, aggregationWindow))
+                .collect(Collectors.joining());
+    }
+
+    /**
+     * Creates the query by hand, because the query builder has no support for <code>fill()</code>. The values are
+     * grouped by item tag as selecting a tag is not allowed together with an aggregation.
+     */
+    private String createAggregationQuery(FilterCriteria criteria, String retentionPolicy, Duration window) {
+        final String itemName = Objects.requireNonNull(criteria.getItemName()); // we checked non-null before
+        final String tableName = getTableName(itemName);
+
+        List<String> conditions = new ArrayList<>();
+        if (!tableName.equals(itemName)) {
+            conditions.add(TAG_ITEM_NAME + " = " + quote(itemName));
+        }
+        if (criteria.getBeginDate() != null) {
+            conditions.add(COLUMN_TIME_NAME_V1 + " >= '" + criteria.getBeginDate().toInstant() + "'");
+        }
+        if (criteria.getEndDate() != null) {
+            conditions.add(COLUMN_TIME_NAME_V1 + " <= '" + criteria.getEndDate().toInstant() + "'");
+        }
+        State filterState = criteria.getState();
+        if (filterState != null && criteria.getOperator() != null) {
+            Object value = stateToObject(filterState);
+            conditions.add(COLUMN_VALUE_NAME_V1 + " " + getOperationSymbol(criteria.getOperator(), InfluxDBVersion.V1)
+                    + " " + (value instanceof String string ? quote(string) : value));
+        }
+
+        StringBuilder query = new StringBuilder("SELECT mean(\"").append(COLUMN_VALUE_NAME_V1).append("\") AS \"")
+                .append(COLUMN_VALUE_NAME_V1).append("\" FROM ")
+                .append(fullQualifiedTableName(retentionPolicy, tableName, true));
+        if (!conditions.isEmpty()) {
+            query.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        query.append(" GROUP BY time(").append(window.toSeconds()).append("s),\"").append(TAG_ITEM_NAME)
+                .append("\" fill(none)");
+
+        if (criteria.getOrdering() == FilterCriteria.Ordering.DESCENDING) {
+            query.append(" ORDER BY time DESC");
+        } else if (criteria.getOrdering() == FilterCriteria.Ordering.ASCENDING) {
+            query.append(" ORDER BY time ASC");
+        }
+        if (criteria.getPageSize() != Integer.MAX_VALUE) {
+            query.append(" LIMIT ").append(criteria.getPageSize());
+            if (criteria.getPageNumber() != 0) {
+                query.append(" OFFSET ").append((long) criteria.getPageSize() * criteria.getPageNumber());
+            }
+        }
+        return query.append(';').toString();
+    }
+
+    /**
+     * Quotes a string literal, escaping backslashes and single quotes.
+     */
+    private static String quote(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
     private String getTableName(@Nullable String itemName) {
         if (itemName == null) {
             return "/.*/";
@@ -17,6 +17,7 @@ import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.COLUMN
 import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.FIELD_VALUE_NAME;
 import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.TAG_ITEM_NAME;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -25,6 +26,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -123,10 +125,10 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
     }
 
     @Override
-    public boolean write(List<InfluxPoint> influxPoints) {
+    public WriteResult write(List<InfluxPoint> influxPoints) {
         final InfluxDB currentClient = this.client;
         if (currentClient == null) {
-            return false;
+            return WriteResult.RETRY;
         }
         try {
             List<Point> points = influxPoints.stream().map(this::convertPointToClientFormat).filter(Optional::isPresent)
@@ -134,11 +136,18 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
             BatchPoints batchPoints = BatchPoints.database(configuration.getDatabaseName())
                     .retentionPolicy(configuration.getRetentionPolicy()).points(points).build();
             currentClient.write(batchPoints);
-        } catch (InfluxException | InfluxDBException e) {
+        } catch (InfluxDBException e) {
+            if (e.isRetryWorth()) {
+                logger.debug("Writing to database failed", e);
+                return WriteResult.RETRY;
+            }
+            logger.warn("Database rejected {} points: {}", influxPoints.size(), e.getMessage());
+            return WriteResult.REJECTED;
+        } catch (InfluxException e) {
             logger.debug("Writing to database failed", e);
-            return false;
+            return WriteResult.RETRY;
         }
-        return true;
+        return WriteResult.WRITTEN;
     }
 
     @Override
@@ -186,6 +195,30 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
         }
     }
 
+    @Override
+    public void query(List<String> itemNames, FilterCriteria filter, String retentionPolicy,
+            @Nullable Duration aggregationWindow, BiConsumer<String, List<InfluxRow>> seriesConsumer) {
+        try {
+            final InfluxDB currentClient = client;
+            if (currentClient != null) {
+                String query = queryCreator.createQuery(itemNames, filter, retentionPolicy, aggregationWindow);
+                logger.trace("Query {}", query);
+                Query parsedQuery = new Query(query, configuration.getDatabaseName());
+                List<QueryResult.Result> results = currentClient.query(parsedQuery, TimeUnit.MILLISECONDS).getResults();
+                // one result per statement, the statements are in the order of the items
+                for (int i = 0; i < itemNames.size(); i++) {
+                    seriesConsumer.accept(itemNames.get(i), i < results.size()
+                            ? convertClientResultToRepository(List.of(results.get(i)))
+                            : List.of());
+                }
+            } else {
+                throw new InfluxException("API not present");
+            }
+        } catch (InfluxException | InfluxDBException e) {
+            logger.warn("Failed to execute query for items {} '{}': {}", itemNames, filter, e.getMessage());
+        }
+    }
+
     private List<InfluxRow> convertClientResultToRepository(List<QueryResult.Result> results) {
         List<InfluxRow> rows = new ArrayList<>();
         for (QueryResult.Result result : results) {
@@ -199,7 +232,11 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
             } else {
                 for (QueryResult.Series series : allSeries) {
                     logger.trace("series {}", series);
-                    String defaultItemName = series.getName();
+                    // aggregated values are grouped by item tag, which is empty for values stored without it
+                    Map<String, String> tags = series.getTags();
+                    String taggedItemName = tags != null ? tags.get(TAG_ITEM_NAME) : null;
+                    String defaultItemName = taggedItemName != null && !taggedItemName.isEmpty() ? taggedItemName
+                            : series.getName();
                     List<List<Object>> allValues = series.getValues();
                     if (allValues == null) {
                         logger.debug("query returned no values");
@@ -17,10 +17,14 @@ import static com.influxdb.query.dsl.functions.restriction.Restrictions.tag;
 import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.*;
 import static org.openhab.persistence.influxdb.internal.InfluxDBStateConvertUtils.stateToObject;
 
+import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.types.State;
 import org.openhab.persistence.influxdb.internal.FilterCriteriaQueryCreator;
@@ -49,7 +53,7 @@ public class InfluxDB2FilterCriteriaQueryCreatorImpl implements FilterCriteriaQu
     }
 
     @Override
-    public String createQuery(FilterCriteria criteria, String retentionPolicy) {
+    public String createQuery(FilterCriteria criteria, String retentionPolicy, @Nullable Duration aggregationWindow) {
         Flux flux = Flux.from(retentionPolicy);
 
         RangeFlux range = flux.range();
@@ -68,9 +72,16 @@ public class InfluxDB2FilterCriteriaQueryCreatorImpl implements FilterCriteriaQu
         String itemName = Objects.requireNonNull(criteria.getItemName()); // we checked non-null before
         String name = influxDBMetadataService.getMeasurementNameOrDefault(itemName, itemName);
         String measurementName = configuration.isReplaceUnderscore() ? name.replace('_', '.') : name;
+        boolean filterItemTag = !measurementName.equals(itemName);
         flux = flux.filter(measurement().equal(measurementName));
-        if (!measurementName.equals(itemName)) {
+        if (filterItemTag) {
             flux = flux.filter(tag(TAG_ITEM_NAME).equal(itemName));
+        }
+        if (aggregationWindow != null) {
+            flux = flux.expression(
+                    "aggregateWindow(every:" + aggregationWindow.toSeconds() + "s, fn:mean, createEmpty:false)");
+        }
+        if (filterItemTag) {
             flux = flux.keep(
                     new String[] { FIELD_MEASUREMENT_NAME, COLUMN_TIME_NAME_V2, COLUMN_VALUE_NAME_V2, TAG_ITEM_NAME });
         } else {
@@ -90,6 +101,18 @@ public class InfluxDB2FilterCriteriaQueryCreatorImpl implements FilterCriteriaQu
         return flux.toString();
     }
 
+    /**
+     * Joins the queries of the items, each result is named after its item.
+     */
+    @Override
+    public String createQuery(List<String> itemNames, FilterCriteria criteria, String retentionPolicy,
+            @Nullable Duration aggregationWindow) {
+        return itemNames.stream()
+                .map(itemName -> createQuery(copyForItem(criteria, itemName), retentionPolicy, aggregationWindow)
+                        + "\n\t|> yield(name:\"" + itemName + "\")")
+                .collect(Collectors.joining("\n"));
+    }
+
     private Flux applyOrderingAndPageSize(FilterCriteria criteria, Flux flux) {
         var lastOptimization = criteria.getOrdering() == FilterCriteria.Ordering.DESCENDING
                 && criteria.getPageSize() == 1;
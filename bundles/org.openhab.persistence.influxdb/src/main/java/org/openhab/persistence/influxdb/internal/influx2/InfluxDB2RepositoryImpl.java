@@ -14,15 +14,18 @@ package org.openhab.persistence.influxdb.internal.influx2;
 
 import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.*;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -43,7 +46,7 @@ import com.influxdb.client.InfluxDBClient;
 import com.influxdb.client.InfluxDBClientFactory;
 import com.influxdb.client.InfluxDBClientOptions;
 import com.influxdb.client.QueryApi;
-import com.influxdb.client.WriteApi;
+import com.influxdb.client.WriteApiBlocking;
 import com.influxdb.client.domain.Ready;
 import com.influxdb.client.domain.WritePrecision;
 import com.influxdb.client.write.Point;
@@ -64,7 +67,7 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
 
     private @Nullable InfluxDBClient client;
     private @Nullable QueryApi queryAPI;
-    private @Nullable WriteApi writeAPI;
+    private @Nullable WriteApiBlocking writeAPI;
     private @Nullable DeleteApi deleteAPI;
 
     public InfluxDB2RepositoryImpl(InfluxDBConfiguration configuration,
@@ -96,7 +99,7 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
         this.client = createdClient;
 
         queryAPI = createdClient.getQueryApi();
-        writeAPI = createdClient.makeWriteApi();
+        writeAPI = createdClient.getWriteApiBlocking();
         deleteAPI = createdClient.getDeleteApi();
 
         logger.debug("Successfully connected to InfluxDB. Instance pingable={}", createdClient.ping());
@@ -140,20 +143,29 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
     }
 
     @Override
-    public boolean write(List<InfluxPoint> influxPoints) {
-        final WriteApi currentWriteAPI = writeAPI;
+    public WriteResult write(List<InfluxPoint> influxPoints) {
+        final WriteApiBlocking currentWriteAPI = writeAPI;
         if (currentWriteAPI == null) {
-            return false;
+            return WriteResult.RETRY;
         }
         try {
             List<Point> clientPoints = influxPoints.stream().map(this::convertPointToClientFormat)
                     .filter(Optional::isPresent).map(Optional::get).toList();
             currentWriteAPI.writePoints(clientPoints);
-        } catch (InfluxException | InfluxDBIOException e) {
+        } catch (InfluxException e) {
+            // no status means there was no response, 429 and 5xx are retried by the client library as well
+            int status = e.status();
+            if (status == 0 || status == 429 || status >= 500) {
+                logger.debug("Writing to database failed", e);
+                return WriteResult.RETRY;
+            }
+            logger.warn("Database rejected {} points: {}", influxPoints.size(), e.getMessage());
+            return WriteResult.REJECTED;
+        } catch (InfluxDBIOException e) {
             logger.debug("Writing to database failed", e);
-            return false;
+            return WriteResult.RETRY;
         }
-        return true;
+        return WriteResult.WRITTEN;
     }
 
     @Override
@@ -230,6 +242,35 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
         }
     }
 
+    @Override
+    public void query(List<String> itemNames, FilterCriteria filter, String retentionPolicy,
+            @Nullable Duration aggregationWindow, BiConsumer<String, List<InfluxRow>> seriesConsumer) {
+        try {
+            final QueryApi currentQueryAPI = queryAPI;
+            if (currentQueryAPI != null) {
+                String query = queryCreator.createQuery(itemNames, filter, retentionPolicy, aggregationWindow);
+                logger.trace("Query {}", query);
+                List<FluxTable> clientResult = currentQueryAPI.query(query);
+                // the tables of each item follow each other and are named after the item
+                Map<String, List<InfluxRow>> rowsByItem = new LinkedHashMap<>();
+                for (FluxTable table : clientResult) {
+                    List<InfluxRow> rows = mapRawResultToHistoric(table).toList();
+                    if (!table.getRecords().isEmpty()) {
+                        String itemName = (String) table.getRecords().get(0).getValueByKey(COLUMN_RESULT_NAME_V2);
+                        rowsByItem.computeIfAbsent(Objects.requireNonNullElse(itemName, ""), k -> new ArrayList<>())
+                                .addAll(rows);
+                    }
+                }
+                itemNames.forEach(itemName -> seriesConsumer.accept(itemName,
+                        Objects.requireNonNullElse(rowsByItem.get(itemName), List.of())));
+            } else {
+                throw new InfluxException("API not present");
+            }
+        } catch (InfluxException | InfluxDBIOException e) {
+            logger.warn("Failed to execute query for items {} '{}': {}", itemNames, filter, e.getMessage());
+        }
+    }
+
     private Stream<InfluxRow> mapRawResultToHistoric(FluxTable rawRow) {
         return rawRow.getRecords().stream().map(r -> {
             String itemName = (String) r.getValueByKey(InfluxDBConstants.TAG_ITEM_NAME);
@@ -12,6 +12,8 @@
  */
 package org.openhab.persistence.influxdb;
 
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -23,6 +25,8 @@ import static org.openhab.persistence.influxdb.internal.InfluxDBConfiguration.UR
 import static org.openhab.persistence.influxdb.internal.InfluxDBConfiguration.USER_PARAM;
 import static org.openhab.persistence.influxdb.internal.InfluxDBConfiguration.VERSION_PARAM;
 
+import java.time.Duration;
+import java.time.ZonedDateTime;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -34,8 +38,10 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.MetadataRegistry;
+import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.persistence.influxdb.internal.InfluxDBMetadataService;
 import org.openhab.persistence.influxdb.internal.InfluxDBRepository;
+import org.openhab.persistence.influxdb.internal.InfluxDBRepository.WriteResult;
 import org.openhab.persistence.influxdb.internal.InfluxDBVersion;
 import org.openhab.persistence.influxdb.internal.ItemTestHelper;
 import org.openhab.persistence.influxdb.internal.UnexpectedConditionException;
@@ -112,10 +118,32 @@ public class InfluxDBPersistenceServiceTest {
     public void storeItemWithConnectedRepository() throws UnexpectedConditionException {
         InfluxDBPersistenceService instance = getService(VALID_V2_CONFIGURATION);
         when(influxDBRepositoryMock.isConnected()).thenReturn(true);
+        when(influxDBRepositoryMock.write(any())).thenReturn(WriteResult.WRITTEN);
         instance.store(ItemTestHelper.createNumberItem("number", 5));
         verify(influxDBRepositoryMock, timeout(5000)).write(any());
     }
 
+    @Test
+    public void rejectedPointsAreNotWrittenAgain() throws UnexpectedConditionException {
+        InfluxDBPersistenceService instance = getService(VALID_V2_CONFIGURATION);
+        when(influxDBRepositoryMock.isConnected()).thenReturn(true);
+        when(influxDBRepositoryMock.write(any())).thenReturn(WriteResult.REJECTED);
+        instance.store(ItemTestHelper.createNumberItem("number", 5));
+        verify(influxDBRepositoryMock, timeout(5000)).write(any());
+        verify(influxDBRepositoryMock, after(4000).never()).disconnect();
+        verify(influxDBRepositoryMock, times(1)).write(any());
+    }
+
+    @Test
+    public void pointsThatFailedAreWrittenAgain() throws UnexpectedConditionException {
+        InfluxDBPersistenceService instance = getService(VALID_V2_CONFIGURATION);
+        when(influxDBRepositoryMock.isConnected()).thenReturn(true);
+        when(influxDBRepositoryMock.write(any())).thenReturn(WriteResult.RETRY, WriteResult.WRITTEN);
+        instance.store(ItemTestHelper.createNumberItem("number", 5));
+        verify(influxDBRepositoryMock, timeout(10000).times(2)).write(any());
+        verify(influxDBRepositoryMock).disconnect();
+    }
+
     @Test
     public void storeItemWithDisconnectedRepositoryIsIgnored() throws UnexpectedConditionException {
         InfluxDBPersistenceService instance = getService(VALID_V2_CONFIGURATION);
@@ -124,6 +152,18 @@ public class InfluxDBPersistenceServiceTest {
         verify(influxDBRepositoryMock, never()).write(any());
     }
 
+    @Test
+    public void aggregationWindowDividesRangeIntoMaxPoints() {
+        ZonedDateTime now = ZonedDateTime.now();
+        FilterCriteria filter = new FilterCriteria().setBeginDate(now.minusHours(24)).setEndDate(now);
+
+        assertThat(InfluxDBPersistenceService.getAggregationWindow(filter, 1440), is(Duration.ofMinutes(1)));
+        assertThat(InfluxDBPersistenceService.getAggregationWindow(filter, 1000), is(Duration.ofSeconds(87)));
+        assertThat(InfluxDBPersistenceService.getAggregationWindow(filter, 1000000), is(Duration.ofSeconds(1)));
+        assertThat(InfluxDBPersistenceService.getAggregationWindow(filter, 0), is(nullValue()));
+        assertThat(InfluxDBPersistenceService.getAggregationWindow(filter.setEndDate(null), 1440), is(nullValue()));
+    }
+
     private InfluxDBPersistenceService getService(Map<String, Object> config) {
         return new InfluxDBPersistenceService(mock(ItemRegistry.class), influxDBMetadataService, config) {
             @Override
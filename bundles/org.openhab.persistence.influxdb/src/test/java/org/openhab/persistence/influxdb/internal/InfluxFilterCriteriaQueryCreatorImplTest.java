@@ -16,10 +16,12 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.DefaultLocation;
@@ -34,6 +36,7 @@ import org.openhab.core.items.Metadata;
 import org.openhab.core.items.MetadataKey;
 import org.openhab.core.items.MetadataRegistry;
 import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StringType;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.persistence.influxdb.InfluxDBPersistenceService;
 import org.openhab.persistence.influxdb.internal.influx1.InfluxDB1FilterCriteriaQueryCreatorImpl;
@@ -186,6 +189,68 @@ public class InfluxFilterCriteriaQueryCreatorImplTest {
                 \t|> last()"""));
     }
 
+    @Test
+    public void testAggregationWindow() {
+        FilterCriteria criteria = createBaseCriteria();
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime tomorrow = now.plus(1, ChronoUnit.DAYS);
+        criteria.setBeginDate(now);
+        criteria.setEndDate(tomorrow);
+
+        String queryV1 = instanceV1.createQuery(criteria, RETENTION_POLICY, Duration.ofMinutes(1));
+        String expectedQueryV1 = String.format(
+                "SELECT mean(\"value\") AS \"value\" FROM \"origin\".\"sampleItem\" WHERE time >= '%s' AND time <= '%s' GROUP BY time(60s),\"item\" fill(none) ORDER BY time DESC;",
+                now.toInstant(), tomorrow.toInstant());
+        assertThat(queryV1, equalTo(expectedQueryV1));
+
+        String queryV2 = instanceV2.createQuery(criteria, RETENTION_POLICY, Duration.ofMinutes(1));
+        String expectedQueryV2 = String.format("""
+                from(bucket:"origin")
+                \t|> range(start:%s, stop:%s)
+                \t|> filter(fn: (r) => r["_measurement"] == "sampleItem")
+                \t|> aggregateWindow(every:60s, fn:mean, createEmpty:false)
+                \t|> keep(columns:["_measurement", "_time", "_value"])
+                \t|> sort(desc:true, columns:["_time"])""", INFLUX2_DATE_FORMATTER.format(now.toInstant()),
+                INFLUX2_DATE_FORMATTER.format(tomorrow.toInstant()));
+        assertThat(queryV2, equalTo(expectedQueryV2));
+    }
+
+    @Test
+    public void testAggregationWindowEscapesStrings() {
+        FilterCriteria criteria = createBaseCriteria();
+        criteria.setOperator(FilterCriteria.Operator.EQ);
+        criteria.setState(new StringType("it's a \\ test"));
+
+        String queryV1 = instanceV1.createQuery(criteria, RETENTION_POLICY, Duration.ofMinutes(1));
+        assertThat(queryV1, equalTo(
+                "SELECT mean(\"value\") AS \"value\" FROM \"origin\".\"sampleItem\" WHERE value = 'it\\'s a \\\\ test' GROUP BY time(60s),\"item\" fill(none) ORDER BY time DESC;"));
+    }
+
+    @Test
+    public void testMultipleItems() {
+        FilterCriteria criteria = createBaseCriteria();
+        criteria.setOrdering(FilterCriteria.Ordering.ASCENDING);
+
+        String queryV1 = instanceV1.createQuery(List.of(ITEM_NAME, "otherItem"), criteria, RETENTION_POLICY, null);
+        assertThat(queryV1, equalTo(
+                "SELECT \"value\"::field,\"item\"::tag FROM \"origin\".\"sampleItem\" ORDER BY time ASC;SELECT \"value\"::field,\"item\"::tag FROM \"origin\".\"otherItem\" ORDER BY time ASC;"));
+
+        String queryV2 = instanceV2.createQuery(List.of(ITEM_NAME, "otherItem"), criteria, RETENTION_POLICY, null);
+        assertThat(queryV2, equalTo("""
+                from(bucket:"origin")
+                \t|> range(start:-100y, stop:100y)
+                \t|> filter(fn: (r) => r["_measurement"] == "sampleItem")
+                \t|> keep(columns:["_measurement", "_time", "_value"])
+                \t|> sort(desc:false, columns:["_time"])
+                \t|> yield(name:"sampleItem")
+                from(bucket:"origin")
+                \t|> range(start:-100y, stop:100y)
+                \t|> filter(fn: (r) => r["_measurement"] == "otherItem")
+                \t|> keep(columns:["_measurement", "_time", "_value"])
+                \t|> sort(desc:false, columns:["_time"])
+                \t|> yield(name:"otherItem")"""));
+    }
+
     private FilterCriteria createBaseCriteria() {
         FilterCriteria criteria = new FilterCriteria();
         criteria.setItemName(ITEM_NAME);
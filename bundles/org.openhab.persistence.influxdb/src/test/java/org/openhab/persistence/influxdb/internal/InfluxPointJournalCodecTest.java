@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxPointJournalCodecTest {
+    private final InfluxPointJournalCodec codec = new InfluxPointJournalCodec();
+
+    private InfluxPoint roundTrip(Object value) throws IOException {
+        InfluxPoint point = InfluxPoint.newBuilder("measurement").withTime(Instant.ofEpochSecond(1700000000, 123))
+                .withValue(value).withTag(InfluxDBConstants.TAG_ITEM_NAME, "item").withTag("floor", "1").build();
+        InfluxPoint decoded = codec.decode(codec.encode(point));
+
+        assertThat(decoded.getMeasurementName(), is("measurement"));
+        assertThat(decoded.getTime(), is(point.getTime()));
+        assertThat(decoded.getTags(), is(Map.of(InfluxDBConstants.TAG_ITEM_NAME, "item", "floor", "1")));
+        return decoded;
+    }
+
+    @Test
+    public void valuesKeepTheirType() throws IOException {
+        assertThat(roundTrip(new BigDecimal("21.50")).getValue(), is(new BigDecimal("21.50")));
+        assertThat(roundTrip(1L).getValue(), is(1L));
+        assertThat(roundTrip(1.5).getValue(), is(1.5));
+        assertThat(roundTrip(true).getValue(), is(true));
+        assertThat(roundTrip("ON").getValue(), is("ON"));
+    }
+
+    @Test
+    public void longStringsAreStored() throws IOException {
+        String value = "x".repeat(100_000);
+        assertThat(roundTrip(value).getValue(), is(value));
+    }
+}
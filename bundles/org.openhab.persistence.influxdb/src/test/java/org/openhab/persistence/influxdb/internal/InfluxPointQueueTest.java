@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+import org.openhab.persistence.influxdb.internal.InfluxPointQueue.OverflowPolicy;
+
+/**
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxPointQueueTest {
+    private final InfluxPoint p1 = point(1);
+    private final InfluxPoint p2 = point(2);
+    private final InfluxPoint p3 = point(3);
+    private final InfluxPoint p4 = point(4);
+
+    private static InfluxPoint point(int value) {
+        return InfluxPoint.newBuilder("measurement").withTime(Instant.ofEpochSecond(value)).withValue(value).build();
+    }
+
+    @Test
+    public void fullQueueDropsOldestPoint() {
+        InfluxPointQueue queue = new InfluxPointQueue(2, OverflowPolicy.DROP_OLDEST);
+        queue.add(p1);
+        queue.add(p2);
+
+        assertThat(queue.add(p3), is(true));
+        assertThat(queue.getDropped(), is(1L));
+        assertThat(queue.poll(10), contains(p2, p3));
+    }
+
+    @Test
+    public void fullQueueDropsNewestPoint() {
+        InfluxPointQueue queue = new InfluxPointQueue(2, OverflowPolicy.DROP_NEWEST);
+        queue.add(p1);
+        queue.add(p2);
+
+        assertThat(queue.add(p3), is(false));
+        assertThat(queue.getDropped(), is(1L));
+        assertThat(queue.poll(10), contains(p1, p2));
+    }
+
+    @Test
+    public void pollReturnsAtMostTheRequestedPoints() {
+        InfluxPointQueue queue = new InfluxPointQueue(10, OverflowPolicy.DROP_OLDEST);
+        List.of(p1, p2, p3).forEach(queue::add);
+
+        assertThat(queue.poll(2), contains(p1, p2));
+        assertThat(queue.size(), is(1));
+    }
+
+    @Test
+    public void requeuedPointsAreWrittenFirstAndBoundedByCapacity() {
+        InfluxPointQueue queue = new InfluxPointQueue(3, OverflowPolicy.DROP_OLDEST);
+        queue.add(p1);
+        queue.add(p2);
+        List<InfluxPoint> failed = queue.poll(2);
+        queue.add(p3);
+        queue.add(p4);
+
+        queue.requeue(failed);
+
+        assertThat(queue.getDropped(), is(1L));
+        assertThat(queue.poll(10), contains(p2, p3, p4));
+    }
+}
@@ -13,18 +13,17 @@
 package org.openhab.persistence.inmemory.internal;
 
 import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -69,7 +68,7 @@ public class InMemoryPersistenceService implements ModifiablePersistenceService
 
     private final Logger logger = LoggerFactory.getLogger(InMemoryPersistenceService.class);
 
-    private final Map<String, PersistItem> persistMap = new ConcurrentHashMap<>();
+    private final Map<String, TimeSeries> persistMap = new ConcurrentHashMap<>();
     private long maxEntries = MAX_ENTRIES_DEFAULT;
 
     @Activate
@@ -82,13 +81,11 @@ public class InMemoryPersistenceService implements ModifiablePersistenceService
     public void modified(Map<String, Object> config) {
         maxEntries = ConfigParser.valueAsOrElse(config.get(MAX_ENTRIES_CONFIG), Long.class, MAX_ENTRIES_DEFAULT);
 
-        persistMap.values().forEach(persistItem -> {
-            Lock lock = persistItem.lock();
+        persistMap.values().forEach(series -> {
+            Lock lock = series.lock().writeLock();
             lock.lock();
             try {
-                while (persistItem.database().size() > maxEntries) {
-                    persistItem.database().pollFirst();
-                }
+                purge(series);
             } finally {
                 lock.unlock();
             }
@@ -112,7 +109,8 @@ public class InMemoryPersistenceService implements ModifiablePersistenceService
 
     @Override
     public Set<PersistenceItemInfo> getItemInfo() {
-        return persistMap.entrySet().stream().map(this::toItemInfo).collect(Collectors.toSet());
+        return persistMap.entrySet().stream().map(this::toItemInfo).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
     }
 
     @Override
@@ -143,16 +141,21 @@ public class InMemoryPersistenceService implements ModifiablePersistenceService
             return false;
         }
 
-        PersistItem persistItem = persistMap.get(itemName);
-        if (persistItem == null) {
+        TimeSeries series = persistMap.get(itemName);
+        if (series == null) {
             return false;
         }
 
-        Lock lock = persistItem.lock();
+        Lock lock = series.lock().writeLock();
         lock.lock();
         try {
-            List<PersistEntry> toRemove = persistItem.database().stream().filter(e -> applies(e, filter)).toList();
-            toRemove.forEach(persistItem.database()::remove);
+            int from = getFromIndex(series, filter);
+            // remove from the end, so the indices of the values still to check do not change
+            for (int index = getToIndex(series, filter) - 1; index >= from; index--) {
+                if (applies(series.state(index), filter)) {
+                    series.remove(index);
+                }
+            }
         } finally {
             lock.unlock();
         }
@@ -166,40 +169,77 @@ public class InMemoryPersistenceService implements ModifiablePersistenceService
             return List.of();
         }
 
-        PersistItem persistItem = persistMap.get(itemName);
-        if (persistItem == null) {
+        TimeSeries series = persistMap.get(itemName);
+        if (series == null) {
             return List.of();
         }
 
-        Lock lock = persistItem.lock();
+        Lock lock = series.lock().readLock();
         lock.lock();
-
-        Comparator<PersistEntry> comparator = filter.getOrdering() == FilterCriteria.Ordering.ASCENDING
-                ? Comparator.comparing(PersistEntry::timestamp)
-                : Comparator.comparing(PersistEntry::timestamp).reversed();
-
         try {
-            return persistItem.database().stream().filter(e -> applies(e, filter)).sorted(comparator)
-                    .map(e -> toHistoricItem(itemName, e)).toList();
+            int from = getFromIndex(series, filter);
+            int count = Math.max(0, getToIndex(series, filter) - from);
+            boolean ascending = filter.getOrdering() == FilterCriteria.Ordering.ASCENDING;
+            int pageSize = filter.getPageSize();
+            long offset = (long) filter.getPageNumber() * pageSize;
+
+            List<HistoricItem> items = new ArrayList<>(Math.min(count, pageSize));
+            if (filter.getState() == null) {
+                // every value in the range matches, skip the previous pages directly
+                for (long n = offset; n < count && items.size() < pageSize; n++) {
+                    int index = ascending ? from + (int) n : from + count - 1 - (int) n;
+                    items.add(toHistoricItem(itemName, series.timestamp(index), series.state(index)));
+                }
+            } else {
+                long skipped = 0;
+                for (int n = 0; n < count && items.size() < pageSize; n++) {
+                    int index = ascending ? from + n : from + count - 1 - n;
+                    State state = series.state(index);
+                    if (applies(state, filter) && skipped++ >= offset) {
+                        items.add(toHistoricItem(itemName, series.timestamp(index), state));
+                    }
+                }
+            }
+            return items;
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * @return the index of the first value at or after the begin date of the filter
+     */
+    private int getFromIndex(TimeSeries series, FilterCriteria filter) {
+        ZonedDateTime beginDate = filter.getBeginDate();
+        return beginDate == null ? 0 : series.lowerBound(beginDate.toInstant().toEpochMilli());
+    }
+
+    /**
+     * @return the index after the last value at or before the end date of the filter
+     */
+    private int getToIndex(TimeSeries series, FilterCriteria filter) {
+        ZonedDateTime endDate = filter.getEndDate();
+        return endDate == null ? series.size() : series.upperBound(endDate.toInstant().toEpochMilli());
+    }
+
     @Override
     public List<PersistenceStrategy> getDefaultStrategies() {
         // persist nothing by default
         return List.of();
     }
 
-    private PersistenceItemInfo toItemInfo(Map.Entry<String, PersistItem> itemEntry) {
-        Lock lock = itemEntry.getValue().lock();
+    private @Nullable PersistenceItemInfo toItemInfo(Map.Entry<String, TimeSeries> itemEntry) {
+        TimeSeries series = itemEntry.getValue();
+        Lock lock = series.lock().readLock();
         lock.lock();
         try {
+            if (series.size() == 0) {
+                return null;
+            }
             String name = itemEntry.getKey();
-            Integer count = itemEntry.getValue().database().size();
-            Instant earliest = itemEntry.getValue().database().first().timestamp().toInstant();
-            Instant latest = itemEntry.getValue().database.last().timestamp.toInstant();
+            Integer count = series.size();
+            Instant earliest = Instant.ofEpochMilli(series.timestamp(0));
+            Instant latest = Instant.ofEpochMilli(series.timestamp(series.size() - 1));
             return new PersistenceItemInfo() {
 
                 @Override
@@ -227,16 +267,17 @@ public class InMemoryPersistenceService implements ModifiablePersistenceService
         }
     }
 
-    private HistoricItem toHistoricItem(String itemName, PersistEntry entry) {
+    private HistoricItem toHistoricItem(String itemName, long timestamp, State state) {
+        ZonedDateTime zonedTimestamp = ZonedDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
         return new HistoricItem() {
             @Override
             public ZonedDateTime getTimestamp() {
-                return entry.timestamp();
+                return zonedTimestamp;
             }
 
             @Override
             public State getState() {
-                return entry.state();
+                return state;
             }
 
             @Override
@@ -251,34 +292,32 @@ public class InMemoryPersistenceService implements ModifiablePersistenceService
             return;
         }
 
-        PersistItem persistItem = Objects.requireNonNull(persistMap.computeIfAbsent(itemName,
-                k -> new PersistItem(new TreeSet<>(Comparator.comparing(PersistEntry::timestamp)),
-                        new ReentrantLock())));
+        TimeSeries series = Objects.requireNonNull(persistMap.computeIfAbsent(itemName, k -> new TimeSeries()));
 
-        Lock lock = persistItem.lock();
+        Lock lock = series.lock().writeLock();
         lock.lock();
         try {
-            persistItem.database().add(new PersistEntry(timestamp, state));
-
-            while (persistItem.database.size() > maxEntries) {
-                persistItem.database().pollFirst();
-            }
+            series.put(timestamp.toInstant().toEpochMilli(), state);
+            purge(series);
         } finally {
             lock.unlock();
         }
     }
 
-    @SuppressWarnings({ "rawType", "unchecked" })
-    private boolean applies(PersistEntry entry, FilterCriteria filter) {
-        ZonedDateTime beginDate = filter.getBeginDate();
-        if (beginDate != null && entry.timestamp().isBefore(beginDate)) {
-            return false;
-        }
-        ZonedDateTime endDate = filter.getEndDate();
-        if (endDate != null && entry.timestamp().isAfter(endDate)) {
-            return false;
+    /**
+     * Removes the oldest values exceeding {@link #maxEntries}. The caller must hold the write lock of the series.
+     */
+    private void purge(TimeSeries series) {
+        if (maxEntries > 0 && series.size() > maxEntries) {
+            series.removeOldest((int) (series.size() - maxEntries));
         }
+    }
 
+    /**
+     * Checks the state condition of the filter, the time range is checked by the caller.
+     */
+    @SuppressWarnings({ "rawType", "unchecked" })
+    private boolean applies(State state, FilterCriteria filter) {
         State refState = filter.getState();
         FilterCriteria.Operator operator = filter.getOperator();
         if (refState == null) {
@@ -287,14 +326,14 @@ public class InMemoryPersistenceService implements ModifiablePersistenceService
         }
 
         if (operator == FilterCriteria.Operator.EQ) {
-            return entry.state().equals(refState);
+            return state.equals(refState);
         }
 
         if (operator == FilterCriteria.Operator.NEQ) {
-            return !entry.state().equals(refState);
+            return !state.equals(refState);
         }
 
-        if (entry.state() instanceof Comparable comparableState && entry.state.getClass().equals(refState.getClass())) {
+        if (state instanceof Comparable comparableState && state.getClass().equals(refState.getClass())) {
             if (operator == FilterCriteria.Operator.GT) {
                 return comparableState.compareTo(refState) > 0;
             }
@@ -313,9 +352,4 @@ public class InMemoryPersistenceService implements ModifiablePersistenceService
         return true;
     }
 
-    private record PersistEntry(ZonedDateTime timestamp, State state) {
-    }
-
-    private record PersistItem(TreeSet<PersistEntry> database, Lock lock) {
-    }
 }
@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.inmemory.internal;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.measure.Unit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.types.State;
+
+/**
+ * The values of one item ordered by their timestamps, stored in columns of primitives.
+ * <br>
+ * As long as all states are {@link DecimalType}s, or {@link QuantityType}s of the same unit, their values are stored
+ * as unscaled value and scale, which restores them exactly. The first state that does not fit converts the series to
+ * a column of {@link State} objects.
+ * <br>
+ * The columns are used from {@link #start}, so removing the oldest values does not move the others. Access must be
+ * guarded by {@link #lock()}.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+class TimeSeries {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long[] NO_VALUES = new long[0];
+    private static final byte[] NO_SCALES = new byte[0];
+
+    private enum Kind {
+        EMPTY,
+        DECIMAL,
+        QUANTITY,
+        STATE
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // epoch milliseconds, ascending
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] unscaledValues = new long[INITIAL_CAPACITY];
+    private byte[] scales = new byte[INITIAL_CAPACITY];
+    private @Nullable State @Nullable [] states;
+    private Kind kind = Kind.EMPTY;
+    private @Nullable Unit<?> unit;
+
+    private int start;
+    private int size;
+
+    ReadWriteLock lock() {
+        return lock;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long timestamp(int index) {
+        return timestamps[start + index];
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    State state(int index) {
+        int i = start + index;
+        return switch (kind) {
+            case DECIMAL -> new DecimalType(BigDecimal.valueOf(unscaledValues[i], scales[i]));
+            case QUANTITY -> new QuantityType(BigDecimal.valueOf(unscaledValues[i], scales[i]),
+                    (Unit) Objects.requireNonNull(unit));
+            default -> Objects.requireNonNull(Objects.requireNonNull(states)[i]);
+        };
+    }
+
+    /**
+     * @return the index of the first value at or after the timestamp, {@link #size()} if there is none
+     */
+    int lowerBound(long timestamp) {
+        int index = Arrays.binarySearch(timestamps, start, start + size, timestamp);
+        return (index >= 0 ? index : -index - 1) - start;
+    }
+
+    /**
+     * @return the index of the first value after the timestamp, {@link #size()} if there is none
+     */
+    int upperBound(long timestamp) {
+        int index = Arrays.binarySearch(timestamps, start, start + size, timestamp);
+        return (index >= 0 ? index + 1 : -index - 1) - start;
+    }
+
+    /**
+     * Stores a value, replacing the value with the same timestamp.
+     */
+    void put(long timestamp, State state) {
+        if (size == 0) {
+            reset();
+        }
+        int index = lowerBound(timestamp);
+        if (index == size || timestamps[start + index] != timestamp) {
+            insertGap(index);
+            timestamps[start + index] = timestamp;
+        }
+        set(start + index, state);
+    }
+
+    /**
+     * Removes the oldest values.
+     */
+    void removeOldest(int count) {
+        int removed = Math.min(count, size);
+        if (states != null) {
+            Arrays.fill(states, start, start + removed, null);
+        }
+        start += removed;
+        size -= removed;
+    }
+
+    /**
+     * Removes the value at the index.
+     */
+    void remove(int index) {
+        int i = start + index;
+        int moved = size - index - 1;
+        System.arraycopy(timestamps, i + 1, timestamps, i, moved);
+        @Nullable State[] states = this.states;
+        if (states != null) {
+            System.arraycopy(states, i + 1, states, i, moved);
+            states[start + size - 1] = null;
+        } else {
+            System.arraycopy(unscaledValues, i + 1, unscaledValues, i, moved);
+            System.arraycopy(scales, i + 1, scales, i, moved);
+        }
+        size--;
+    }
+
+    /**
+     * Starts over with numeric columns once all values have been removed.
+     */
+    private void reset() {
+        start = 0;
+        kind = Kind.EMPTY;
+        unit = null;
+        if (states != null) {
+            states = null;
+            unscaledValues = new long[timestamps.length];
+            scales = new byte[timestamps.length];
+        }
+    }
+
+    private void set(int i, State state) {
+        @Nullable State[] states = this.states;
+        if (states != null) {
+            states[i] = state;
+            return;
+        }
+        BigDecimal value = null;
+        if (state.getClass() == DecimalType.class && (kind == Kind.EMPTY || kind == Kind.DECIMAL)) {
+            value = ((DecimalType) state).toBigDecimal();
+            if (fits(value)) {
+                kind = Kind.DECIMAL;
+            }
+        } else if (state instanceof QuantityType<?> quantity && state.getClass() == QuantityType.class
+                && (kind == Kind.EMPTY || (kind == Kind.QUANTITY && quantity.getUnit().equals(unit)))) {
+            value = quantity.toBigDecimal();
+            if (fits(value)) {
+                kind = Kind.QUANTITY;
+                unit = quantity.getUnit();
+            }
+        }
+        if (value != null && fits(value)) {
+            unscaledValues[i] = value.unscaledValue().longValue();
+            scales[i] = (byte) value.scale();
+        } else {
+            toStates()[i] = state;
+        }
+    }
+
+    private static boolean fits(BigDecimal value) {
+        return value.unscaledValue().bitLength() < Long.SIZE && value.scale() >= Byte.MIN_VALUE
+                && value.scale() <= Byte.MAX_VALUE;
+    }
+
+    /**
+     * Converts the numeric columns to a column of states.
+     */
+    private @Nullable State[] toStates() {
+        @Nullable State[] states = new State[timestamps.length];
+        if (kind == Kind.DECIMAL || kind == Kind.QUANTITY) {
+            for (int index = 0; index < size; index++) {
+                // the slot of a value being inserted is converted as well, it is overwritten by the caller
+                states[start + index] = state(index);
+            }
+        }
+        this.states = states;
+        kind = Kind.STATE;
+        unit = null;
+        unscaledValues = NO_VALUES;
+        scales = NO_SCALES;
+        return states;
+    }
+
+    /**
+     * Makes room for a value at the index, moving the values after it.
+     */
+    private void insertGap(int index) {
+        if (start + size == timestamps.length) {
+            if (start > 0 && size < timestamps.length / 2) {
+                compact();
+            } else {
+                grow();
+            }
+        }
+        int i = start + index;
+        int moved = size - index;
+        System.arraycopy(timestamps, i, timestamps, i + 1, moved);
+        @Nullable State[] states = this.states;
+        if (states != null) {
+            System.arraycopy(states, i, states, i + 1, moved);
+        } else {
+            System.arraycopy(unscaledValues, i, unscaledValues, i + 1, moved);
+            System.arraycopy(scales, i, scales, i + 1, moved);
+        }
+        size++;
+    }
+
+    private void compact() {
+        System.arraycopy(timestamps, start, timestamps, 0, size);
+        @Nullable State[] states = this.states;
+        if (states != null) {
+            System.arraycopy(states, start, states, 0, size);
+            Arrays.fill(states, size, start + size, null);
+        } else {
+            System.arraycopy(unscaledValues, start, unscaledValues, 0, size);
+            System.arraycopy(scales, start, scales, 0, size);
+        }
+        start = 0;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        @Nullable State[] states = this.states;
+        if (states != null) {
+            this.states = Arrays.copyOf(states, capacity);
+        } else {
+            unscaledValues = Arrays.copyOf(unscaledValues, capacity);
+            scales = Arrays.copyOf(scales, capacity);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -211,4 +212,66 @@ public class InMemoryPersistenceTests {
         assertThat(storedStates.last().getState(), is(historicState3));
         assertThat(storedStates.last().getTimestamp(), is(expectedTime.plusHours(4)));
     }
+
+    @Test
+    public void queryReturnsRequestedPage() {
+        ZonedDateTime time = ZonedDateTime.of(2022, 05, 31, 10, 0, 0, 0, ZoneId.systemDefault());
+        for (int i = 0; i < 10; i++) {
+            service.store(item, time.plusMinutes(i), new DecimalType(i));
+        }
+
+        filterCriteria.setOrdering(FilterCriteria.Ordering.ASCENDING);
+        filterCriteria.setPageSize(3);
+        filterCriteria.setPageNumber(1);
+        assertThat(queryStates(), contains(new DecimalType(3), new DecimalType(4), new DecimalType(5)));
+
+        filterCriteria.setOrdering(FilterCriteria.Ordering.DESCENDING);
+        filterCriteria.setPageNumber(3);
+        assertThat(queryStates(), contains(new DecimalType(0)));
+
+        filterCriteria.setPageNumber(0);
+        filterCriteria.setState(new DecimalType(7));
+        filterCriteria.setOperator(FilterCriteria.Operator.LT);
+        assertThat(queryStates(), contains(new DecimalType(6), new DecimalType(5), new DecimalType(4)));
+    }
+
+    @Test
+    public void maxEntriesPurgesOldestValues() {
+        service.activate(Map.of("maxEntries", 2));
+        ZonedDateTime time = ZonedDateTime.of(2022, 05, 31, 10, 0, 0, 0, ZoneId.systemDefault());
+        for (int i = 0; i < 5; i++) {
+            service.store(item, time.plusMinutes(i), new DecimalType(i));
+        }
+
+        filterCriteria.setOrdering(FilterCriteria.Ordering.ASCENDING);
+        assertThat(queryStates(), contains(new DecimalType(3), new DecimalType(4)));
+
+        service.modified(Map.of("maxEntries", 0));
+        for (int i = 5; i < 10; i++) {
+            service.store(item, time.plusMinutes(i), new DecimalType(i));
+        }
+        assertThat(queryStates(), hasSize(7));
+    }
+
+    @Test
+    public void mixedStatesAreStoredUnchanged() {
+        ZonedDateTime time = ZonedDateTime.of(2022, 05, 31, 10, 0, 0, 0, ZoneId.systemDefault());
+        List<State> states = List.of(new DecimalType(1.5), new DecimalType(-20), new StringType("value"),
+                new DecimalType(3));
+        for (int i = 0; i < states.size(); i++) {
+            service.store(item, time.plusMinutes(i), states.get(i));
+        }
+        // a value with the same timestamp replaces the stored value
+        service.store(item, time, new DecimalType(2.5));
+
+        filterCriteria.setOrdering(FilterCriteria.Ordering.ASCENDING);
+        assertThat(queryStates(), contains(new DecimalType(2.5), new DecimalType(-20), new StringType("value"),
+                new DecimalType(3)));
+    }
+
+    private List<State> queryStates() {
+        List<State> states = new ArrayList<>();
+        service.query(filterCriteria).forEach(historicItem -> states.add(historicItem.getState()));
+        return states;
+    }
 }
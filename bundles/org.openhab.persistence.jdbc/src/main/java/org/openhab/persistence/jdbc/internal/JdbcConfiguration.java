@@ -24,7 +24,7 @@ import java.util.regex.Pattern;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.persistence.jdbc.internal.db.JdbcBaseDAO;
-import org.openhab.persistence.jdbc.internal.utils.MovingAverage;
+import org.openhab.persistence.jdbc.internal.utils.LatencyTracker;
 import org.openhab.persistence.jdbc.internal.utils.StringUtilsExt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,12 +65,20 @@ public class JdbcConfiguration {
 
     private int errReconnectThreshold = 0;
 
+    private int batchSize = 100;
+    private int batchInterval = 1000;
+    private int queueCapacity = 10000;
+    private boolean journal = false;
+
+    private boolean rollups = false;
+    private int rollupMinPoints = 200;
+
+    private int queryFetchSize = 0;
+
     public int timerCount = 0;
     public int time1000Statements = 0;
     public long timer1000 = 0;
-    public MovingAverage timeAverage50arr = new MovingAverage(50);
-    public MovingAverage timeAverage100arr = new MovingAverage(100);
-    public MovingAverage timeAverage200arr = new MovingAverage(200);
+    public LatencyTracker timeAverageArr = new LatencyTracker(200);
     public boolean enableLogTime = false;
 
     public JdbcConfiguration(Map<Object, Object> configuration) {
@@ -147,6 +155,48 @@ public class JdbcConfiguration {
             logger.debug("JDBC::updateConfig: errReconnectThreshold={}", errReconnectThreshold);
         }
 
+        String bs = (String) configuration.get("batchSize");
+        if (bs != null && !bs.isBlank() && isNumericPattern.matcher(bs).matches()) {
+            batchSize = Math.max(1, Integer.parseInt(bs));
+            logger.debug("JDBC::updateConfig: batchSize={}", batchSize);
+        }
+
+        String bi = (String) configuration.get("batchInterval");
+        if (bi != null && !bi.isBlank() && isNumericPattern.matcher(bi).matches()) {
+            batchInterval = Math.max(10, Integer.parseInt(bi));
+            logger.debug("JDBC::updateConfig: batchInterval={}", batchInterval);
+        }
+
+        String qc = (String) configuration.get("queueCapacity");
+        if (qc != null && !qc.isBlank() && isNumericPattern.matcher(qc).matches()) {
+            queueCapacity = Math.max(batchSize, Integer.parseInt(qc));
+            logger.debug("JDBC::updateConfig: queueCapacity={}", queueCapacity);
+        }
+
+        String jo = (String) configuration.get("journal");
+        if (jo != null && !jo.isBlank()) {
+            journal = Boolean.parseBoolean(jo);
+            logger.debug("JDBC::updateConfig: journal={}", journal);
+        }
+
+        String ru = (String) configuration.get("rollups");
+        if (ru != null && !ru.isBlank()) {
+            rollups = Boolean.parseBoolean(ru);
+            logger.debug("JDBC::updateConfig: rollups={}", rollups);
+        }
+
+        String rm = (String) configuration.get("rollupMinPoints");
+        if (rm != null && !rm.isBlank() && isNumericPattern.matcher(rm).matches()) {
+            rollupMinPoints = Math.max(1, Integer.parseInt(rm));
+            logger.debug("JDBC::updateConfig: rollupMinPoints={}", rollupMinPoints);
+        }
+
+        String fs = (String) configuration.get("queryFetchSize");
+        if (fs != null && !fs.isBlank() && isNumericPattern.matcher(fs).matches()) {
+            queryFetchSize = Math.max(0, Integer.parseInt(fs));
+            logger.debug("JDBC::updateConfig: queryFetchSize={}", queryFetchSize);
+        }
+
         String mt = (String) configuration.get("itemsManageTable");
         if (mt != null && !mt.isBlank()) {
             itemsManageTable = mt;
@@ -369,6 +419,34 @@ public class JdbcConfiguration {
         return errReconnectThreshold;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getBatchInterval() {
+        return batchInterval;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public boolean getJournal() {
+        return journal;
+    }
+
+    public boolean getRollups() {
+        return rollups;
+    }
+
+    public int getRollupMinPoints() {
+        return rollupMinPoints;
+    }
+
+    public int getQueryFetchSize() {
+        return queryFetchSize;
+    }
+
     public boolean getRebuildTableNames() {
         return rebuildTableNames;
     }
@@ -421,6 +499,8 @@ public class JdbcConfiguration {
         dBDAO.initAfterFirstDbConnection();
         // Running once again to prior external configured SqlTypes!
         setSqlTypes();
+        // Statement templates may have changed, i.e. depending on DB version
+        dBDAO.evictSqlCache();
         this.dbConnected = dbConnected;
     }
 
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.types.State;
+import org.openhab.core.types.TypeParser;
+import org.openhab.persistence.jdbc.internal.JdbcPersistenceService.PendingValue;
+import org.openhab.persistence.journal.JournalCodec;
+
+/**
+ * Stores queued states in the journal by item name, time, state type and the full string of the state. When they are
+ * read back, the item is looked up again, states of removed items are skipped.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+class JdbcJournalCodec implements JournalCodec<PendingValue> {
+
+    private final ItemRegistry itemRegistry;
+
+    JdbcJournalCodec(ItemRegistry itemRegistry) {
+        this.itemRegistry = itemRegistry;
+    }
+
+    @Override
+    public byte[] encode(PendingValue value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(value.item.getName());
+            out.writeLong(value.date.toInstant().getEpochSecond());
+            out.writeInt(value.date.getNano());
+            out.writeUTF(value.date.getZone().getId());
+            out.writeUTF(value.state.getClass().getSimpleName());
+            // states like strings or images may exceed the 64k of writeUTF
+            byte[] state = value.state.toFullString().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(state.length);
+            out.write(state);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public @Nullable PendingValue decode(byte[] record) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            String itemName = in.readUTF();
+            Instant instant = Instant.ofEpochSecond(in.readLong(), in.readInt());
+            ZonedDateTime date = instant.atZone(ZoneId.of(in.readUTF()));
+            String type = in.readUTF();
+            byte[] state = new byte[in.readInt()];
+            in.readFully(state);
+
+            Item item = itemRegistry.get(itemName);
+            if (item == null) {
+                return null;
+            }
+            State parsed = parseState(item, type, new String(state, StandardCharsets.UTF_8));
+            return parsed == null ? null : new PendingValue(item, date, parsed);
+        }
+    }
+
+    private @Nullable State parseState(Item item, String type, String value) {
+        // prefer the type the state had, e.g. a string that looks like a number
+        for (Class<? extends State> acceptedType : item.getAcceptedDataTypes()) {
+            if (acceptedType.getSimpleName().equals(type)) {
+                State state = TypeParser.parseState(List.of(acceptedType), value);
+                if (state != null) {
+                    return state;
+                }
+            }
+        }
+        return TypeParser.parseState(item.getAcceptedDataTypes(), value);
+    }
+}
@@ -13,11 +13,13 @@
 package org.openhab.persistence.jdbc.internal;
 
 import java.sql.SQLInvalidAuthorizationSpecException;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -38,9 +40,11 @@ import org.openhab.persistence.jdbc.internal.dto.ItemsVO;
 import org.openhab.persistence.jdbc.internal.dto.JdbcPersistenceItemInfo;
 import org.openhab.persistence.jdbc.internal.exceptions.JdbcException;
 import org.openhab.persistence.jdbc.internal.exceptions.JdbcSQLException;
+import org.openhab.persistence.jdbc.internal.utils.LatencyTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.zaxxer.hikari.metrics.MetricsTracker;
 import com.zaxxer.hikari.pool.HikariPool.PoolInitializationException;
 
 /**
@@ -51,6 +55,7 @@ import com.zaxxer.hikari.pool.HikariPool.PoolInitializationException;
 @NonNullByDefault
 public class JdbcMapper {
     private static final int MIGRATION_PERCENTAGE_THRESHOLD = 50;
+    private static final int LATENCY_WINDOW = 1024;
 
     private final Logger logger = LoggerFactory.getLogger(JdbcMapper.class);
     private final TimeZoneProvider timeZoneProvider;
@@ -61,6 +66,11 @@ public class JdbcMapper {
     protected @NonNullByDefault({}) JdbcConfiguration conf;
     protected final Map<String, String> itemNameToTableNameMap = new HashMap<>();
     protected @NonNullByDefault({}) NamingStrategy namingStrategy;
+    // latencies in nanoseconds of the last statements, see getStoreLatency(), getQueryLatency() and
+    // getConnectionLatency()
+    private final LatencyTracker storeLatency = new LatencyTracker(LATENCY_WINDOW);
+    private final LatencyTracker queryLatency = new LatencyTracker(LATENCY_WINDOW);
+    private final LatencyTracker connectionLatency = new LatencyTracker(LATENCY_WINDOW);
     private long afterAccessMin = 10000;
     private long afterAccessMax = 0;
 
@@ -142,6 +152,10 @@ public class JdbcMapper {
         logger.debug("JDBC::dropTable");
         long timerStart = System.currentTimeMillis();
         conf.getDBDAO().doDropTable(tableName);
+        if (conf.getRollups()) {
+            conf.getDBDAO().doDropRollupTables(tableName);
+        }
+        conf.getDBDAO().evictSqlCache(tableName);
         logTime("doDropTable", timerStart, System.currentTimeMillis());
     }
 
@@ -169,7 +183,12 @@ public class JdbcMapper {
         ItemsVO isvo = new ItemsVO();
         isvo.setJdbcUriDatabaseName(conf.getDbName());
         isvo.setItemsManageTable(conf.getItemsManageTable());
-        List<ItemsVO> vol = conf.getDBDAO().doGetItemTables(isvo);
+        List<ItemsVO> tables = conf.getDBDAO().doGetItemTables(isvo);
+        Set<String> rollupTableNames = RollupResolution
+                .getRollupTableNames(tables.stream().map(ItemsVO::getTableName).toList());
+        List<ItemsVO> vol = tables.stream()
+                .filter(vo -> !rollupTableNames.contains(vo.getTableName().toLowerCase()))
+                .collect(Collectors.toList());
         logTime("getItemTables", timerStart, System.currentTimeMillis());
         return vol;
     }
@@ -193,6 +212,12 @@ public class JdbcMapper {
         logger.debug("JDBC::updateItemTableNames");
         long timerStart = System.currentTimeMillis();
         conf.getDBDAO().doUpdateItemTableNames(vol);
+        if (conf.getRollups()) {
+            conf.getDBDAO().doUpdateRollupTableNames(vol);
+        }
+        for (ItemVO vo : vol) {
+            conf.getDBDAO().evictSqlCache(vo.getTableName());
+        }
         logTime("updateItemTableNames", timerStart, System.currentTimeMillis());
     }
 
@@ -209,6 +234,7 @@ public class JdbcMapper {
         logger.debug("JDBC::alterTableColumn");
         long timerStart = System.currentTimeMillis();
         conf.getDBDAO().doAlterTableColumn(tableName, columnName, columnType, nullable);
+        conf.getDBDAO().evictSqlCache(tableName);
         logTime("alterTableColumn", timerStart, System.currentTimeMillis());
     }
 
@@ -216,15 +242,40 @@ public class JdbcMapper {
         logger.debug("JDBC::storeItemValue: item={} state={} date={}", item, itemState, date);
         String tableName = getTable(item);
         long timerStart = System.currentTimeMillis();
+        long latencyStart = System.nanoTime();
         if (date == null) {
             conf.getDBDAO().doStoreItemValue(item, itemState, new ItemVO(tableName, null));
         } else {
             conf.getDBDAO().doStoreItemValue(item, itemState, new ItemVO(tableName, null), date);
         }
+        storeLatency.add(System.nanoTime() - latencyStart);
         logTime("storeItemValue", timerStart, System.currentTimeMillis());
         errCnt = 0;
     }
 
+    protected void storeItemValues(Item item, List<Entry<ZonedDateTime, State>> values) throws JdbcException {
+        logger.debug("JDBC::storeItemValues: item={} values={}", item, values.size());
+        String tableName = getTable(item);
+        long timerStart = System.currentTimeMillis();
+        long latencyStart = System.nanoTime();
+        conf.getDBDAO().doStoreItemValues(item, new ItemVO(tableName, null), values);
+        storeLatency.add(System.nanoTime() - latencyStart);
+        logTime("storeItemValues", timerStart, System.currentTimeMillis());
+        errCnt = 0;
+    }
+
+    protected boolean isRollupItem(Item item) {
+        return conf.getRollups() && "NUMBERITEM".equals(conf.getDBDAO().getItemType(item));
+    }
+
+    protected void storeRollups(Item item, List<Entry<ZonedDateTime, State>> values) throws JdbcException {
+        logger.debug("JDBC::storeRollups: item={} values={}", item, values.size());
+        String tableName = getTable(item);
+        long timerStart = System.currentTimeMillis();
+        conf.getDBDAO().doStoreRollups(item, tableName, values, timeZoneProvider.getTimeZone());
+        logTime("storeRollups", timerStart, System.currentTimeMillis());
+    }
+
     public long getRowCount(String tableName) throws JdbcSQLException {
         return conf.getDBDAO().doGetRowCount(tableName);
     }
@@ -235,17 +286,79 @@ public class JdbcMapper {
                 "JDBC::getHistItemFilterQuery filter='{}' numberDecimalcount='{}' table='{}' item='{}' itemName='{}'",
                 true, numberDecimalcount, table, item, item.getName());
         long timerStart = System.currentTimeMillis();
+        long latencyStart = System.nanoTime();
         List<HistoricItem> result = conf.getDBDAO().doGetHistItemFilterQuery(item, filter, numberDecimalcount, table,
                 item.getName(), timeZoneProvider.getTimeZone());
+        queryLatency.add(System.nanoTime() - latencyStart);
         logTime("getHistItemFilterQuery", timerStart, System.currentTimeMillis());
         errCnt = 0;
         return result;
     }
 
+    /**
+     * Same as {@link #getHistItemFilterQuery} but the rows are read lazily through a forward-only cursor when the
+     * result is iterated.
+     */
+    protected Iterable<HistoricItem> getHistItemFilterCursor(FilterCriteria filter, int numberDecimalcount,
+            String table, Item item) {
+        logger.debug("JDBC::getHistItemFilterCursor numberDecimalcount='{}' table='{}' item='{}' fetchSize='{}'",
+                numberDecimalcount, table, item, conf.getQueryFetchSize());
+        return conf.getDBDAO().doGetHistItemFilterCursor(item, filter, numberDecimalcount, table, item.getName(),
+                timeZoneProvider.getTimeZone(), conf.getQueryFetchSize());
+    }
+
+    /**
+     * Selects the coarsest rollup resolution that still yields at least {@code rollupMinPoints} buckets for the time
+     * range of a filter. Rollups are only used for unpaged queries of number items without a state filter whose time
+     * range starts after the rollup tables have been filled.
+     *
+     * @return the resolution to query or null if the raw values have to be queried
+     */
+    protected @Nullable RollupResolution getRollupResolution(FilterCriteria filter, String table, Item item)
+            throws JdbcSQLException {
+        ZonedDateTime begin = filter.getBeginDate();
+        if (begin == null || filter.getState() != null || filter.getPageNumber() != 0
+                || filter.getPageSize() != Integer.MAX_VALUE || !isRollupItem(item)) {
+            return null;
+        }
+        ZonedDateTime end = Objects.requireNonNullElse(filter.getEndDate(), ZonedDateTime.now());
+        long span = Duration.between(begin, end).toMillis();
+        RollupResolution[] resolutions = RollupResolution.values();
+        for (int i = resolutions.length - 1; i >= 0; i--) {
+            RollupResolution resolution = resolutions[i];
+            if (span / resolution.getDuration().toMillis() < conf.getRollupMinPoints()) {
+                continue;
+            }
+            ZonedDateTime start = conf.getDBDAO().doGetRollupStart(resolution.getTableName(table));
+            // the first bucket may only contain the values stored after rollups have been enabled
+            if (start != null && !begin.isBefore(start.plus(resolution.getDuration()))) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+
+    protected List<HistoricItem> getRollupFilterQuery(FilterCriteria filter, int numberDecimalcount, String table,
+            Item item, RollupResolution resolution) throws JdbcSQLException {
+        logger.debug("JDBC::getRollupFilterQuery numberDecimalcount='{}' table='{}' item='{}' resolution='{}'",
+                numberDecimalcount, table, item, resolution);
+        long timerStart = System.currentTimeMillis();
+        long latencyStart = System.nanoTime();
+        List<HistoricItem> result = conf.getDBDAO().doGetRollupFilterQuery(item, filter, numberDecimalcount,
+                resolution.getTableName(table), timeZoneProvider.getTimeZone());
+        queryLatency.add(System.nanoTime() - latencyStart);
+        logTime("getRollupFilterQuery", timerStart, System.currentTimeMillis());
+        errCnt = 0;
+        return result;
+    }
+
     protected void deleteItemValues(FilterCriteria filter, String table) throws JdbcSQLException {
         logger.debug("JDBC::deleteItemValues filter='{}' table='{}' itemName='{}'", true, table, filter.getItemName());
         long timerStart = System.currentTimeMillis();
         conf.getDBDAO().doDeleteItemValues(filter, table, timeZoneProvider.getTimeZone());
+        if (conf.getRollups()) {
+            conf.getDBDAO().doDeleteRollups(filter, table, timeZoneProvider.getTimeZone());
+        }
         logTime("deleteItemValues", timerStart, System.currentTimeMillis());
         errCnt = 0;
     }
@@ -260,6 +373,13 @@ public class JdbcMapper {
             try {
                 Yank.setupDefaultConnectionPool(conf.getHikariConfiguration());
                 Yank.setThrowWrappedExceptions(true);
+                Yank.getDefaultConnectionPool()
+                        .setMetricsTrackerFactory((poolName, poolStats) -> new MetricsTracker() {
+                            @Override
+                            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                                connectionLatency.add(elapsedAcquiredNanos);
+                            }
+                        });
                 conf.setDbConnected(true);
                 return true;
             } catch (PoolInitializationException e) {
@@ -310,6 +430,19 @@ public class JdbcMapper {
         }
     }
 
+    /**
+     * Tells a lost connection apart from a statement the database rejected after a store failed. Other than
+     * {@link #checkDBAccessability()}, the database is pinged even if it has been initialized.
+     */
+    protected boolean isDBReachable() {
+        try {
+            return pingDB() || pingDB();
+        } catch (JdbcSQLException e) {
+            logger.debug("JDBC::isDBReachable: Unable to ping database: {}", e.getMessage());
+            return false;
+        }
+    }
+
     /**************************
      * DATABASE TABLEHANDLING *
      **************************/
@@ -336,6 +469,7 @@ public class JdbcMapper {
 
     public void populateItemNameToTableNameMap() throws JdbcSQLException {
         itemNameToTableNameMap.clear();
+        conf.getDBDAO().evictSqlCache();
         if (conf.getTableUseRealCaseSensitiveItemNames()) {
             for (String itemName : getItemTables().stream().map(t -> t.getTableName()).collect(Collectors.toList())) {
                 itemNameToTableNameMap.put(itemName, itemName);
@@ -479,6 +613,27 @@ public class JdbcMapper {
                 .collect(Collectors.<PersistenceItemInfo> toSet());
     }
 
+    /**
+     * Get the latencies in nanoseconds of storing states.
+     */
+    public LatencyTracker getStoreLatency() {
+        return storeLatency;
+    }
+
+    /**
+     * Get the latencies in nanoseconds of queries. Lazy query results are not included.
+     */
+    public LatencyTracker getQueryLatency() {
+        return queryLatency;
+    }
+
+    /**
+     * Get the latencies in nanoseconds of acquiring a connection from the pool.
+     */
+    public LatencyTracker getConnectionLatency() {
+        return connectionLatency;
+    }
+
     /*****************
      * H E L P E R S *
      *****************/
@@ -492,9 +647,7 @@ public class JdbcMapper {
             if (timerDiff > afterAccessMax) {
                 afterAccessMax = timerDiff;
             }
-            conf.timeAverage50arr.add(timerDiff);
-            conf.timeAverage100arr.add(timerDiff);
-            conf.timeAverage200arr.add(timerDiff);
+            conf.timeAverageArr.add(timerDiff);
             if (conf.timerCount == 1) {
                 conf.timer1000 = System.currentTimeMillis();
             }
@@ -504,8 +657,8 @@ public class JdbcMapper {
             }
             logger.info(
                     "JDBC::logTime: '{}':\n afterAccess     = {} ms\n timeAverage50  = {} ms\n timeAverage100 = {} ms\n timeAverage200 = {} ms\n afterAccessMin  = {} ms\n afterAccessMax  = {} ms\n 1000Statements = {} sec\n statementCount = {}\n",
-                    me, timerDiff, conf.timeAverage50arr.getAverageInteger(),
-                    conf.timeAverage100arr.getAverageInteger(), conf.timeAverage200arr.getAverageInteger(),
+                    me, timerDiff, (int) conf.timeAverageArr.getAverage(50), (int) conf.timeAverageArr.getAverage(100),
+                    (int) conf.timeAverageArr.getAverage(200),
                     afterAccessMin, afterAccessMax, conf.time1000Statements, conf.timerCount);
         }
     }
@@ -12,10 +12,14 @@
  */
 package org.openhab.persistence.jdbc.internal;
 
+import java.io.IOException;
 import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -23,6 +27,8 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -30,6 +36,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.common.NamedThreadFactory;
 import org.openhab.core.config.core.ConfigurableService;
 import org.openhab.core.i18n.TimeZoneProvider;
+import org.openhab.core.io.monitor.MeterRegistryProvider;
 import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -48,15 +55,24 @@ import org.openhab.persistence.jdbc.internal.dto.Column;
 import org.openhab.persistence.jdbc.internal.dto.ItemsVO;
 import org.openhab.persistence.jdbc.internal.exceptions.JdbcException;
 import org.openhab.persistence.jdbc.internal.exceptions.JdbcSQLException;
+import org.openhab.persistence.jdbc.internal.utils.LatencyTracker;
+import org.openhab.persistence.journal.PersistenceJournal;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * This is the implementation of the JDBC {@link PersistenceService}.
  *
@@ -76,6 +92,24 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
 
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1,
             new NamedThreadFactory(JdbcPersistenceServiceConstants.SERVICE_ID));
+    private @Nullable ScheduledFuture<?> flushJob;
+
+    private final Deque<PendingValue> queue = new ArrayDeque<>();
+    private int batchSize = 100;
+    private int queueCapacity = 10000;
+    private boolean flushRequested = false;
+    private long droppedValues = 0;
+    private long reportedDroppedValues = 0;
+    private long storedValues = 0;
+    private long lastFlushMillis = 0;
+    private long lastFlushStart = 0;
+    private double valuesPerSecond = 0;
+    volatile @Nullable PersistenceJournal<PendingValue> journal;
+
+    private static final String METER_PREFIX = "openhab.persistence.jdbc.";
+    private static final double[] PERCENTILES = { 50, 95, 99 };
+    private final List<Meter> meters = new ArrayList<>();
+    private @Nullable MeterRegistry meterRegistry;
 
     @Activate
     public JdbcPersistenceService(final @Reference ItemRegistry itemRegistry,
@@ -84,6 +118,50 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
         this.itemRegistry = itemRegistry;
     }
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    public void setMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getOHMeterRegistry();
+        synchronized (meters) {
+            removeMeters();
+            this.meterRegistry = meterRegistry;
+            registerLatencyMeters(meterRegistry, "store", getStoreLatency());
+            registerLatencyMeters(meterRegistry, "query", getQueryLatency());
+            registerLatencyMeters(meterRegistry, "connection", getConnectionLatency());
+            meters.add(Gauge.builder(METER_PREFIX + "journal.values", this, s -> s.getJournaledValues())
+                    .register(meterRegistry));
+            meters.add(Gauge.builder(METER_PREFIX + "journal.bytes", this, s -> s.getJournaledBytes())
+                    .baseUnit("bytes").register(meterRegistry));
+        }
+    }
+
+    public void unsetMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        synchronized (meters) {
+            removeMeters();
+        }
+    }
+
+    /**
+     * Publishes the percentiles of a latency in seconds and the number of measured operations.
+     */
+    private void registerLatencyMeters(MeterRegistry meterRegistry, String operation, LatencyTracker latency) {
+        for (double percentile : PERCENTILES) {
+            meters.add(Gauge.builder(METER_PREFIX + "latency", latency, l -> l.getPercentile(percentile) / 1e9)
+                    .tag("operation", operation).tag("quantile", String.valueOf(percentile / 100)).baseUnit("seconds")
+                    .register(meterRegistry));
+        }
+        meters.add(FunctionCounter.builder(METER_PREFIX + "operations", latency, LatencyTracker::getCount)
+                .tag("operation", operation).register(meterRegistry));
+    }
+
+    private void removeMeters() {
+        MeterRegistry meterRegistry = this.meterRegistry;
+        if (meterRegistry != null) {
+            meters.forEach(meterRegistry::remove);
+        }
+        meters.clear();
+        this.meterRegistry = null;
+    }
+
     /**
      * Called by the SCR to activate the component with its configuration read
      * from CAS
@@ -120,6 +198,14 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
     @Deactivate
     public void deactivate(final int reason) {
         logger.debug("JDBC::deactivate:  persistence bundle stopping. Disconnecting from database. reason={}", reason);
+        ScheduledFuture<?> flushJob = this.flushJob;
+        if (flushJob != null) {
+            flushJob.cancel(false);
+            this.flushJob = null;
+        }
+        // store the states still waiting in the queue
+        flush();
+        closeJournal();
         // closeConnection();
         initialized = false;
     }
@@ -137,47 +223,291 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
 
     @Override
     public void store(Item item) {
-        scheduler.execute(() -> internalStore(item, null, item.getState()));
+        enqueue(item, ZonedDateTime.now(), item.getState());
     }
 
     @Override
     public void store(Item item, @Nullable String alias) {
         // alias is not supported
-        scheduler.execute(() -> internalStore(item, null, item.getState()));
+        enqueue(item, ZonedDateTime.now(), item.getState());
     }
 
     @Override
     public void store(Item item, ZonedDateTime date, State state) {
-        scheduler.execute(() -> internalStore(item, date, state));
+        enqueue(item, date, state);
     }
 
     @Override
     public void store(Item item, ZonedDateTime date, State state, @Nullable String alias) {
         // alias is not supported
-        scheduler.execute(() -> internalStore(item, null, item.getState()));
+        enqueue(item, date, state);
     }
 
-    private synchronized void internalStore(Item item, @Nullable ZonedDateTime date, State state) {
+    /**
+     * Adds a state to the write queue. The queue is flushed when it holds batchSize states or after batchInterval,
+     * whichever comes first. If the queue is full, the oldest state is dropped.
+     */
+    private void enqueue(Item item, ZonedDateTime date, State state) {
         // Do not store undefined/uninitialized data
         if (state instanceof UnDefType) {
             logger.debug("JDBC::store: ignore Item '{}' because it is UnDefType", item.getName());
             return;
         }
+        boolean flushNow = false;
+        synchronized (queue) {
+            if (queue.size() >= queueCapacity) {
+                queue.poll();
+                droppedValues++;
+            }
+            queue.add(new PendingValue(item, date, state));
+            if (queue.size() >= batchSize && !flushRequested) {
+                flushRequested = true;
+                flushNow = true;
+            }
+        }
+        if (flushNow) {
+            scheduler.execute(this::flush);
+        }
+    }
+
+    synchronized void flush() {
+        PersistenceJournal<PendingValue> journal = this.journal;
+        List<PendingValue> pendingValues;
+        long dropped;
+        synchronized (queue) {
+            flushRequested = false;
+            if (queue.isEmpty() && (journal == null || journal.isEmpty())) {
+                return;
+            }
+            pendingValues = new ArrayList<>(queue);
+            queue.clear();
+            dropped = droppedValues - reportedDroppedValues;
+            reportedDroppedValues = droppedValues;
+        }
+        if (dropped > 0) {
+            logger.warn("JDBC::store: Write queue was full, dropped {} states. Consider increasing queueCapacity.",
+                    dropped);
+        }
         if (!checkDBAccessability()) {
+            if (journal != null && appendToJournal(journal, pendingValues)) {
+                logger.debug("JDBC::store: No connection to database. Journaled {} states.", pendingValues.size());
+                return;
+            }
             logger.warn(
-                    "JDBC::store: No connection to database. Cannot persist state '{}' for item '{}'! Will retry connecting to database when error count:{} equals errReconnectThreshold:{}",
-                    state, item, errCnt, conf.getErrReconnectThreshold());
+                    "JDBC::store: No connection to database. Cannot persist {} states! Will retry connecting to database when error count:{} equals errReconnectThreshold:{}",
+                    pendingValues.size(), errCnt, conf.getErrReconnectThreshold());
             return;
         }
+
+        long timerStart = System.currentTimeMillis();
+        int stored = 0;
+        if (journal != null && !journal.isEmpty()) {
+            stored += replayJournal(journal);
+            if (!journal.isEmpty()) {
+                // keep the order of the states, the new ones are written after the journaled ones
+                appendToJournal(journal, pendingValues);
+                pendingValues = List.of();
+            }
+        }
+        List<PendingValue> unwrittenValues = storeValues(pendingValues);
+        stored += pendingValues.size() - unwrittenValues.size();
+        if (!unwrittenValues.isEmpty()) {
+            if (journal != null && appendToJournal(journal, unwrittenValues)) {
+                logger.debug("JDBC::store: Lost connection to database. Journaled {} states.",
+                        unwrittenValues.size());
+            } else {
+                logger.warn("JDBC::store: Lost connection to database. Cannot persist {} states!",
+                        unwrittenValues.size());
+            }
+        }
+        long timerStop = System.currentTimeMillis();
+        synchronized (queue) {
+            storedValues += stored;
+            lastFlushMillis = timerStop - timerStart;
+            valuesPerSecond = lastFlushStart == 0 ? 0 : stored * 1000.0 / Math.max(1, timerStop - lastFlushStart);
+            lastFlushStart = timerStart;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("JDBC: Stored {} states in SQL database at {} in {} ms.", stored, new Date(),
+                    timerStop - timerStart);
+        }
+    }
+
+    /**
+     * Writes the states grouped by item, each item has its own table. States the database rejects are dropped, if the
+     * connection to the database is lost, the states from there on are not written.
+     *
+     * @return the states that were not written because the connection to the database was lost
+     */
+    private List<PendingValue> storeValues(List<PendingValue> pendingValues) {
+        Map<String, List<PendingValue>> valuesByItem = new LinkedHashMap<>();
+        for (PendingValue value : pendingValues) {
+            valuesByItem.computeIfAbsent(value.item.getName(), name -> new ArrayList<>()).add(value);
+        }
+
+        List<PendingValue> unwrittenValues = new ArrayList<>();
+        for (List<PendingValue> itemValues : valuesByItem.values()) {
+            if (!unwrittenValues.isEmpty()) {
+                unwrittenValues.addAll(itemValues);
+                continue;
+            }
+            Item item = itemValues.get(0).item;
+            List<Entry<ZonedDateTime, State>> values = itemValues.stream().map(v -> Map.entry(v.date, v.state))
+                    .toList();
+            try {
+                storeItemValues(item, values);
+            } catch (JdbcException e) {
+                // a single row may fail the whole batch (i.e. a duplicate time without upsert support)
+                logger.debug("JDBC::store: Unable to store {} states of item '{}' as batch, storing one by one: {}",
+                        itemValues.size(), item.getName(), e.getMessage());
+                for (PendingValue value : itemValues) {
+                    if (!unwrittenValues.isEmpty()) {
+                        unwrittenValues.add(value);
+                        continue;
+                    }
+                    try {
+                        storeItemValue(item, value.state, value.date);
+                    } catch (JdbcException e1) {
+                        if (isDBReachable()) {
+                            logger.warn("JDBC::store: Database rejected state '{}' of item '{}', dropping it: {}",
+                                    value.state, item.getName(), e1.getMessage());
+                        } else {
+                            logger.warn("JDBC::store: Lost connection to database while storing item '{}': {}",
+                                    item.getName(), e1.getMessage());
+                            unwrittenValues.add(value);
+                        }
+                    }
+                }
+            }
+            if (unwrittenValues.isEmpty() && isRollupItem(item)) {
+                try {
+                    storeRollups(item, values);
+                } catch (JdbcException e) {
+                    logger.warn("JDBC::store: Unable to update rollups of item '{}'", item.getName(), e);
+                }
+            }
+        }
+        return unwrittenValues;
+    }
+
+    /**
+     * Writes the journaled states while the database is reachable. If the connection is lost during a batch, the
+     * states that were not written are journaled again, so the batch is not written twice.
+     *
+     * @return the number of states written
+     */
+    private int replayJournal(PersistenceJournal<PendingValue> journal) {
+        int[] stored = { 0 };
+        boolean[] connectionLost = { false };
         try {
-            long timerStart = System.currentTimeMillis();
-            storeItemValue(item, state, date);
-            if (logger.isDebugEnabled()) {
-                logger.debug("JDBC: Stored item '{}' as '{}' in SQL database at {} in {} ms.", item.getName(), state,
-                        new Date(), System.currentTimeMillis() - timerStart);
+            int replayed = journal.replay(batchSize, values -> {
+                if (connectionLost[0] || !checkDBAccessability()) {
+                    return false;
+                }
+                List<PendingValue> unwrittenValues = storeValues(values);
+                stored[0] += values.size() - unwrittenValues.size();
+                if (unwrittenValues.isEmpty()) {
+                    return true;
+                }
+                connectionLost[0] = true;
+                return appendToJournal(journal, unwrittenValues);
+            });
+            logger.debug("JDBC::store: Replayed {} journaled states.", replayed);
+        } catch (IOException e) {
+            logger.warn("JDBC::store: Unable to read the journal: {}", e.getMessage());
+        }
+        return stored[0];
+    }
+
+    private boolean appendToJournal(PersistenceJournal<PendingValue> journal, List<PendingValue> pendingValues) {
+        try {
+            journal.append(pendingValues);
+            return true;
+        } catch (IOException e) {
+            logger.warn("JDBC::store: Unable to journal {} states: {}", pendingValues.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized void openJournal() {
+        closeJournal();
+        if (conf.getJournal()) {
+            try {
+                journal = new PersistenceJournal<>(
+                        PersistenceJournal.getDefaultDirectory(JdbcPersistenceServiceConstants.SERVICE_ID),
+                        new JdbcJournalCodec(itemRegistry));
+            } catch (IOException e) {
+                logger.warn("JDBC::updateConfig: Unable to open the journal: {}", e.getMessage());
             }
-        } catch (JdbcException e) {
-            logger.warn("JDBC::store: Unable to store item", e);
+        }
+    }
+
+    private synchronized void closeJournal() {
+        PersistenceJournal<PendingValue> journal = this.journal;
+        if (journal != null) {
+            journal.close();
+            this.journal = null;
+        }
+    }
+
+    /**
+     * Get the number of states waiting to be written.
+     */
+    public int getQueueSize() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Get the number of states dropped because the write queue was full.
+     */
+    public long getDroppedValues() {
+        synchronized (queue) {
+            return droppedValues;
+        }
+    }
+
+    /**
+     * Get the number of states written since the service was started.
+     */
+    public long getStoredValues() {
+        synchronized (queue) {
+            return storedValues;
+        }
+    }
+
+    /**
+     * Get the number of states in the journal waiting to be written.
+     */
+    public long getJournaledValues() {
+        PersistenceJournal<PendingValue> journal = this.journal;
+        return journal == null ? 0 : journal.getPendingValues();
+    }
+
+    /**
+     * Get the size of the journal in bytes.
+     */
+    public long getJournaledBytes() {
+        PersistenceJournal<PendingValue> journal = this.journal;
+        return journal == null ? 0 : journal.getPendingBytes();
+    }
+
+    /**
+     * Get the duration of the last flush of the write queue in milliseconds.
+     */
+    public long getLastFlushMillis() {
+        synchronized (queue) {
+            return lastFlushMillis;
+        }
+    }
+
+    /**
+     * Get the number of states written per second, measured between the last two flushes.
+     */
+    public double getValuesPerSecond() {
+        synchronized (queue) {
+            return valuesPerSecond;
         }
     }
 
@@ -196,6 +526,8 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
      */
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
+        // write the queued states first, so they are part of the result
+        flush();
         if (!checkDBAccessability()) {
             logger.warn("JDBC::query: database not connected, query aborted for item '{}'", filter.getItemName());
             return List.of();
@@ -239,7 +571,15 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
 
         try {
             long timerStart = System.currentTimeMillis();
-            List<HistoricItem> items = getHistItemFilterQuery(filter, conf.getNumberDecimalcount(), table, item);
+            RollupResolution resolution = getRollupResolution(filter, table, item);
+            if (resolution == null && conf.getQueryFetchSize() > 0 && filter.getPageSize() == Integer.MAX_VALUE) {
+                // unpaged results may be large, rows are read while the result is iterated
+                errCnt = 0;
+                return getHistItemFilterCursor(filter, conf.getNumberDecimalcount(), table, item);
+            }
+            List<HistoricItem> items = resolution == null
+                    ? getHistItemFilterQuery(filter, conf.getNumberDecimalcount(), table, item)
+                    : getRollupFilterQuery(filter, conf.getNumberDecimalcount(), table, item, resolution);
             if (logger.isDebugEnabled()) {
                 logger.debug("JDBC: Query for item '{}' returned {} rows in {} ms", itemName, items.size(),
                         System.currentTimeMillis() - timerStart);
@@ -257,6 +597,17 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
         logger.debug("JDBC::updateConfig");
 
         conf = new JdbcConfiguration(configuration);
+        synchronized (queue) {
+            batchSize = conf.getBatchSize();
+            queueCapacity = Math.max(conf.getQueueCapacity(), batchSize);
+        }
+        ScheduledFuture<?> flushJob = this.flushJob;
+        if (flushJob != null) {
+            flushJob.cancel(false);
+        }
+        openJournal();
+        this.flushJob = scheduler.scheduleWithFixedDelay(this::flush, conf.getBatchInterval(),
+                conf.getBatchInterval(), TimeUnit.MILLISECONDS);
         if (conf.valid && checkDBAccessability()) {
             namingStrategy = new NamingStrategy(conf);
             try {
@@ -281,6 +632,8 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
 
     @Override
     public boolean remove(FilterCriteria filter) throws IllegalArgumentException {
+        // write the queued states first, so they are removed as well
+        flush();
         if (!checkDBAccessability()) {
             logger.warn("JDBC::remove: database not connected, remove aborted for item '{}'", filter.getItemName());
             return false;
@@ -559,4 +912,16 @@ public class JdbcPersistenceService extends JdbcMapper implements ModifiablePers
                 return false;
         }
     }
+
+    static class PendingValue {
+        final Item item;
+        final ZonedDateTime date;
+        final State state;
+
+        PendingValue(Item item, ZonedDateTime date, State state) {
+            this.item = item;
+            this.date = date;
+            this.state = state;
+        }
+    }
 }
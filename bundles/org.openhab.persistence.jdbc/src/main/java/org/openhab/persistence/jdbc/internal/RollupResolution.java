@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Resolutions of the rollup tables maintained next to the item tables, ordered from fine to coarse.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public enum RollupResolution {
+    MINUTE("1m", ChronoUnit.MINUTES),
+    HOUR("1h", ChronoUnit.HOURS),
+    DAY("1d", ChronoUnit.DAYS);
+
+    private static final String TABLE_SUFFIX = "_rollup_";
+
+    private final String suffix;
+    private final ChronoUnit unit;
+
+    RollupResolution(String suffix, ChronoUnit unit) {
+        this.suffix = suffix;
+        this.unit = unit;
+    }
+
+    /**
+     * Get the name of the rollup table of an item table.
+     */
+    public String getTableName(String itemTableName) {
+        return itemTableName + TABLE_SUFFIX + suffix;
+    }
+
+    public Duration getDuration() {
+        return unit.getDuration();
+    }
+
+    /**
+     * Get the start of the bucket a time belongs to.
+     */
+    public ZonedDateTime truncate(ZonedDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * Get the start of the bucket following the bucket starting at the given time.
+     */
+    public ZonedDateTime next(ZonedDateTime bucket) {
+        return bucket.plus(1, unit);
+    }
+
+    /**
+     * Get the names of the rollup tables of the given tables in lower case, because table names may have been changed
+     * to upper or lower case by the database. A table that is only named like a rollup table, i.e. the item table of
+     * an item Power_rollup_1h without a table Power, is not among them.
+     */
+    public static Set<String> getRollupTableNames(Collection<String> tableNames) {
+        Set<String> rollupTableNames = new HashSet<>();
+        for (String tableName : tableNames) {
+            for (RollupResolution resolution : values()) {
+                rollupTableNames.add(resolution.getTableName(tableName).toLowerCase());
+            }
+        }
+        return rollupTableNames;
+    }
+}
@@ -35,6 +35,7 @@ import org.openhab.persistence.jdbc.internal.ItemTableCheckEntryStatus;
 import org.openhab.persistence.jdbc.internal.JdbcPersistenceService;
 import org.openhab.persistence.jdbc.internal.JdbcPersistenceServiceConstants;
 import org.openhab.persistence.jdbc.internal.exceptions.JdbcSQLException;
+import org.openhab.persistence.jdbc.internal.utils.LatencyTracker;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
@@ -51,6 +52,7 @@ public class JdbcCommandExtension extends AbstractConsoleCommandExtension implem
     private static final String CMD_SCHEMA = "schema";
     private static final String CMD_TABLES = "tables";
     private static final String CMD_RELOAD = "reload";
+    private static final String CMD_STATS = "stats";
     private static final String SUBCMD_SCHEMA_CHECK = "check";
     private static final String SUBCMD_SCHEMA_FIX = "fix";
     private static final String SUBCMD_TABLES_LIST = "list";
@@ -58,7 +60,7 @@ public class JdbcCommandExtension extends AbstractConsoleCommandExtension implem
     private static final String PARAMETER_ALL = "all";
     private static final String PARAMETER_FORCE = "force";
     private static final StringsCompleter CMD_COMPLETER = new StringsCompleter(
-            List.of(CMD_SCHEMA, CMD_TABLES, CMD_RELOAD), false);
+            List.of(CMD_SCHEMA, CMD_TABLES, CMD_RELOAD, CMD_STATS), false);
     private static final StringsCompleter SUBCMD_SCHEMA_COMPLETER = new StringsCompleter(
             List.of(SUBCMD_SCHEMA_CHECK, SUBCMD_SCHEMA_FIX), false);
     private static final StringsCompleter SUBCMD_TABLES_COMPLETER = new StringsCompleter(
@@ -135,6 +137,9 @@ public class JdbcCommandExtension extends AbstractConsoleCommandExtension implem
         } else if (args.length == 1 && CMD_RELOAD.equalsIgnoreCase(args[0])) {
             reload(persistenceService, console);
             return true;
+        } else if (args.length == 1 && CMD_STATS.equalsIgnoreCase(args[0])) {
+            printStats(persistenceService, console);
+            return true;
         }
         return false;
     }
@@ -252,6 +257,26 @@ public class JdbcCommandExtension extends AbstractConsoleCommandExtension implem
         console.println("Item index reloaded.");
     }
 
+    private void printStats(JdbcPersistenceService persistenceService, Console console) {
+        console.println("Write queue size:     " + persistenceService.getQueueSize());
+        console.println("Dropped states:       " + persistenceService.getDroppedValues());
+        console.println("Journaled states:     " + persistenceService.getJournaledValues());
+        console.println("Stored states:        " + persistenceService.getStoredValues());
+        console.println("Last flush:           " + persistenceService.getLastFlushMillis() + " ms");
+        console.println(String.format("Stored states/second: %.1f", persistenceService.getValuesPerSecond()));
+        console.println("");
+        console.println("Latency (ms)          p50      p95      p99    count");
+        printLatency(console, "Store", persistenceService.getStoreLatency());
+        printLatency(console, "Query", persistenceService.getQueryLatency());
+        printLatency(console, "Connection acquire", persistenceService.getConnectionLatency());
+    }
+
+    private void printLatency(Console console, String operation, LatencyTracker latency) {
+        console.println(String.format("%1$-18s%2$8.1f %3$8.1f %4$8.1f %5$8d", operation,
+                latency.getPercentile(50) / 1e6, latency.getPercentile(95) / 1e6, latency.getPercentile(99) / 1e6,
+                latency.getCount()));
+    }
+
     @Override
     public List<String> getUsages() {
         return Arrays.asList(buildCommandUsage(CMD_SCHEMA + " " + SUBCMD_SCHEMA_CHECK, "check schema integrity"),
@@ -261,7 +286,8 @@ public class JdbcCommandExtension extends AbstractConsoleCommandExtension implem
                 buildCommandUsage(
                         CMD_TABLES + " " + SUBCMD_TABLES_CLEAN + " [<itemName>]" + " [" + PARAMETER_FORCE + "]",
                         "clean inconsistent items (remove from index and drop tables)"),
-                buildCommandUsage(CMD_RELOAD, "reload item index/schema"));
+                buildCommandUsage(CMD_RELOAD, "reload item index/schema"),
+                buildCommandUsage(CMD_STATS, "show write queue statistics"));
     }
 
     @Override
@@ -13,17 +13,24 @@
 package org.openhab.persistence.jdbc.internal.db;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import javax.measure.Quantity;
@@ -56,10 +63,12 @@ import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.types.State;
 import org.openhab.core.types.TypeParser;
+import org.openhab.persistence.jdbc.internal.RollupResolution;
 import org.openhab.persistence.jdbc.internal.dto.Column;
 import org.openhab.persistence.jdbc.internal.dto.ItemVO;
 import org.openhab.persistence.jdbc.internal.dto.ItemsVO;
 import org.openhab.persistence.jdbc.internal.dto.JdbcHistoricItem;
+import org.openhab.persistence.jdbc.internal.dto.RollupVO;
 import org.openhab.persistence.jdbc.internal.exceptions.JdbcSQLException;
 import org.openhab.persistence.jdbc.internal.utils.DbMetaData;
 import org.openhab.persistence.jdbc.internal.utils.StringUtilsExt;
@@ -82,6 +91,12 @@ public class JdbcBaseDAO {
     // Get Database Meta data
     protected @Nullable DbMetaData dbMeta;
 
+    // Insert statements rendered per item table, see storeItemValueWithDateSql()
+    private final Map<String, RenderedSql> storeItemValueSqlCache = new ConcurrentHashMap<>();
+    // Rollup tables known to exist and the time of their first bucket
+    private final Set<String> rollupTables = ConcurrentHashMap.newKeySet();
+    private final Map<String, ZonedDateTime> rollupStarts = new ConcurrentHashMap<>();
+
     protected String sqlPingDB = "SELECT 1";
     protected String sqlGetDB = "SELECT DATABASE()";
     protected String sqlIfTableExists = "SHOW TABLES LIKE '#searchTable#'";
@@ -97,6 +112,11 @@ public class JdbcBaseDAO {
     protected String sqlAlterTableColumn = "ALTER TABLE #tableName# MODIFY COLUMN #columnName# #columnType#";
     protected String sqlInsertItemValue = "INSERT INTO #tableName# (time, value) VALUES( #tablePrimaryValue#, ? ) ON DUPLICATE KEY UPDATE VALUE= ?";
     protected String sqlGetRowCount = "SELECT COUNT(*) FROM #tableName#";
+    protected String sqlCreateRollupTable = "CREATE TABLE IF NOT EXISTS #tableName# (time #tablePrimaryKey# NOT NULL, samples BIGINT NOT NULL, total DOUBLE PRECISION, minimum DOUBLE PRECISION, maximum DOUBLE PRECISION, latest DOUBLE PRECISION, PRIMARY KEY(time))";
+    protected String sqlUpsertRollup = "INSERT INTO #tableName# (time, samples, total, minimum, maximum, latest) VALUES( ?, ?, ?, ?, ?, ? ) ON DUPLICATE KEY UPDATE samples=VALUES(samples), total=VALUES(total), minimum=VALUES(minimum), maximum=VALUES(maximum), latest=VALUES(latest)";
+    protected String sqlGetRollupValues = "SELECT time, value FROM #tableName# WHERE time>=? AND time<? ORDER BY time";
+    protected String sqlGetRollupBuckets = "SELECT time, samples, total, minimum, maximum, latest FROM #tableName# WHERE time>=? AND time<? ORDER BY time";
+    protected String sqlGetRollupStart = "SELECT MIN(time) FROM #tableName#";
 
     /********
      * INIT *
@@ -444,10 +464,9 @@ public class JdbcBaseDAO {
 
     public void doStoreItemValue(Item item, State itemState, ItemVO vo, ZonedDateTime date) throws JdbcSQLException {
         ItemVO storedVO = storeItemValueProvider(item, itemState, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
-                new String[] { "#tableName#", "#tablePrimaryValue#" }, new String[] { storedVO.getTableName(), "?" });
+        String sql = storeItemValueWithDateSql(storedVO);
         java.sql.Timestamp timestamp = new java.sql.Timestamp(date.toInstant().toEpochMilli());
-        Object[] params = { timestamp, storedVO.getValue(), storedVO.getValue() };
+        Object[] params = storeItemValueWithDateParams(storedVO, timestamp);
         logger.debug("JDBC::doStoreItemValue sql={} timestamp={} value='{}'", sql, timestamp, storedVO.getValue());
         try {
             Yank.execute(sql, params);
@@ -456,6 +475,316 @@ public class JdbcBaseDAO {
         }
     }
 
+    /**
+     * Stores several values of one item with a single batch statement. If values share the same time, only the last
+     * one is stored.
+     *
+     * @param item the item the values belong to
+     * @param vo holds the name of the item table
+     * @param values the values to store with their time, in the order they were received
+     * @throws JdbcSQLException on SQL errors
+     */
+    public void doStoreItemValues(Item item, ItemVO vo, List<Map.Entry<ZonedDateTime, State>> values)
+            throws JdbcSQLException {
+        String sql = null;
+        Map<Long, Object[]> rows = new LinkedHashMap<>();
+        for (Map.Entry<ZonedDateTime, State> value : values) {
+            ItemVO storedVO = storeItemValueProvider(item, value.getValue(),
+                    new ItemVO(vo.getTableName(), vo.getNewTableName()));
+            if (sql == null) {
+                sql = storeItemValueWithDateSql(storedVO);
+            }
+            long time = value.getKey().toInstant().toEpochMilli();
+            rows.remove(time);
+            rows.put(time, storeItemValueWithDateParams(storedVO, new java.sql.Timestamp(time)));
+        }
+        if (sql == null) {
+            return;
+        }
+        logger.debug("JDBC::doStoreItemValues sql={} rows={}", sql, rows.size());
+        try {
+            Yank.executeBatch(sql, rows.values().toArray(new Object[0][]));
+        } catch (YankSQLException e) {
+            throw new JdbcSQLException(e);
+        }
+    }
+
+    /**
+     * Updates the buckets of the rollup tables that contain the given times. The buckets are recomputed from the item
+     * table (minutes) or the next finer rollup table (hours and days) and written with a single batch upsert per
+     * rollup table, so storing the same values again does not change them. The rollup tables are created if needed.
+     *
+     * @param item the item the values belong to
+     * @param tableName the name of the item table
+     * @param values the values with their time
+     * @param timeZone the time zone the buckets are aligned to
+     * @throws JdbcSQLException on SQL errors
+     */
+    public void doStoreRollups(Item item, String tableName, List<Map.Entry<ZonedDateTime, State>> values,
+            ZoneId timeZone) throws JdbcSQLException {
+        List<ZonedDateTime> times = values.stream().map(Map.Entry::getKey).toList();
+        for (RollupResolution resolution : RollupResolution.values()) {
+            createRollupTableIfNot(resolution.getTableName(tableName));
+        }
+        updateRollups(tableName, times, timeZone);
+    }
+
+    private void updateRollups(String tableName, Collection<ZonedDateTime> times, ZoneId timeZone)
+            throws JdbcSQLException {
+        if (times.isEmpty()) {
+            return;
+        }
+        String sourceTable = tableName;
+        boolean fromValues = true;
+        for (RollupResolution resolution : RollupResolution.values()) {
+            String rollupTable = resolution.getTableName(tableName);
+            TreeSet<ZonedDateTime> buckets = new TreeSet<>();
+            for (ZonedDateTime time : times) {
+                buckets.add(resolution.truncate(time.withZoneSameInstant(timeZone)));
+            }
+            List<RollupVO> rollups = new ArrayList<>();
+            // read contiguous buckets with one query
+            ZonedDateTime rangeStart = buckets.first();
+            ZonedDateTime rangeEnd = rangeStart;
+            for (ZonedDateTime bucket : buckets) {
+                if (!bucket.equals(rangeEnd)) {
+                    rollups.addAll(aggregate(sourceTable, fromValues, resolution, rangeStart, rangeEnd, timeZone));
+                    rangeStart = bucket;
+                }
+                rangeEnd = resolution.next(bucket);
+            }
+            rollups.addAll(aggregate(sourceTable, fromValues, resolution, rangeStart, rangeEnd, timeZone));
+            doUpsertRollups(rollupTable, rollups);
+            sourceTable = rollupTable;
+            fromValues = false;
+        }
+    }
+
+    /**
+     * Computes the buckets of a time range from the values of an item table or the buckets of a finer rollup table.
+     */
+    private List<RollupVO> aggregate(String sourceTable, boolean values, RollupResolution resolution,
+            ZonedDateTime begin, ZonedDateTime end, ZoneId timeZone) throws JdbcSQLException {
+        String sql = StringUtilsExt.replaceArrayMerge(values ? sqlGetRollupValues : sqlGetRollupBuckets,
+                new String[] { "#tableName#" }, new String[] { sourceTable });
+        logger.debug("JDBC::aggregate sql={} begin={} end={}", sql, begin, end);
+        List<Object[]> rows;
+        try {
+            rows = Yank.queryObjectArrays(sql, new Object[] { new java.sql.Timestamp(begin.toInstant().toEpochMilli()),
+                    new java.sql.Timestamp(end.toInstant().toEpochMilli()) });
+        } catch (YankSQLException e) {
+            throw new JdbcSQLException(e);
+        }
+        if (rows == null) {
+            return List.of();
+        }
+        Map<ZonedDateTime, RollupVO> buckets = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            if (row[1] == null) {
+                continue;
+            }
+            ZonedDateTime bucket = resolution.truncate(objectAsZonedDateTime(row[0]).withZoneSameInstant(timeZone));
+            RollupVO rollup = buckets.computeIfAbsent(bucket, RollupVO::new);
+            if (values) {
+                rollup.add(objectAsNumber(row[1]).doubleValue());
+            } else {
+                rollup.merge(new RollupVO(bucket, objectAsNumber(row[1]).longValue(),
+                        objectAsNumber(row[2]).doubleValue(), objectAsNumber(row[3]).doubleValue(),
+                        objectAsNumber(row[4]).doubleValue(), objectAsNumber(row[5]).doubleValue()));
+            }
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * Writes buckets with a single batch, replacing existing buckets with the same time.
+     */
+    protected void doUpsertRollups(String rollupTable, List<RollupVO> rollups) throws JdbcSQLException {
+        if (rollups.isEmpty()) {
+            return;
+        }
+        String sql = StringUtilsExt.replaceArrayMerge(sqlUpsertRollup,
+                new String[] { "#tableName#", "#tablePrimaryKey#" },
+                new String[] { rollupTable, sqlTypes.get("tablePrimaryKey") });
+        logger.debug("JDBC::doUpsertRollups sql={} rows={}", sql, rollups.size());
+        Object[][] params = rollups.stream()
+                .map(rollup -> new Object[] { new java.sql.Timestamp(rollup.getTime().toInstant().toEpochMilli()),
+                        rollup.getSamples(), rollup.getTotal(), rollup.getMinimum(), rollup.getMaximum(),
+                        rollup.getLatest() })
+                .toArray(Object[][]::new);
+        try {
+            Yank.executeBatch(sql, params);
+        } catch (YankSQLException e) {
+            throw new JdbcSQLException(e);
+        }
+    }
+
+    private void createRollupTableIfNot(String rollupTable) throws JdbcSQLException {
+        if (!rollupTables.contains(rollupTable)) {
+            doCreateRollupTable(rollupTable);
+            rollupTables.add(rollupTable);
+        }
+    }
+
+    public void doCreateRollupTable(String rollupTable) throws JdbcSQLException {
+        String sql = StringUtilsExt.replaceArrayMerge(sqlCreateRollupTable,
+                new String[] { "#tableName#", "#tablePrimaryKey#" },
+                new String[] { rollupTable, sqlTypes.get("tablePrimaryKey") });
+        logger.debug("JDBC::doCreateRollupTable sql={}", sql);
+        try {
+            Yank.execute(sql, null);
+        } catch (YankSQLException e) {
+            throw new JdbcSQLException(e);
+        }
+    }
+
+    /**
+     * Get the time of the first bucket of a rollup table.
+     *
+     * @param rollupTable the name of the rollup table
+     * @return the time of the first bucket or null if the rollup table is empty
+     * @throws JdbcSQLException on SQL errors
+     */
+    public @Nullable ZonedDateTime doGetRollupStart(String rollupTable) throws JdbcSQLException {
+        ZonedDateTime start = rollupStarts.get(rollupTable);
+        if (start != null) {
+            return start;
+        }
+        createRollupTableIfNot(rollupTable);
+        String sql = StringUtilsExt.replaceArrayMerge(sqlGetRollupStart, new String[] { "#tableName#" },
+                new String[] { rollupTable });
+        logger.debug("JDBC::doGetRollupStart sql={}", sql);
+        Object min;
+        try {
+            min = Yank.queryScalar(sql, Object.class, null);
+        } catch (YankSQLException e) {
+            throw new JdbcSQLException(e);
+        }
+        if (min == null) {
+            return null;
+        }
+        start = objectAsZonedDateTime(min);
+        rollupStarts.put(rollupTable, start);
+        return start;
+    }
+
+    /**
+     * Queries the buckets of a rollup table, each bucket is returned as the average of its values at its start time.
+     */
+    public List<HistoricItem> doGetRollupFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
+            String rollupTable, ZoneId timeZone) throws JdbcSQLException {
+        String sql = rollupFilterQueryProvider(filter, rollupTable, timeZone);
+        logger.debug("JDBC::doGetRollupFilterQuery sql={}", sql);
+        List<Object[]> m;
+        try {
+            m = Yank.queryObjectArrays(sql, null);
+        } catch (YankSQLException e) {
+            throw new JdbcSQLException(e);
+        }
+        if (m == null) {
+            logger.debug("JDBC::doGetRollupFilterQuery Query failed. Returning an empty list.");
+            return List.of();
+        }
+        String itemName = item.getName();
+        Unit<? extends Quantity<?>> unit = item instanceof NumberItem numberItem ? numberItem.getUnit() : null;
+        return m.stream().map(o -> {
+            BigDecimal average = BigDecimal
+                    .valueOf(objectAsNumber(o[2]).doubleValue() / objectAsNumber(o[1]).longValue());
+            if (numberDecimalcount > -1) {
+                average = average.setScale(numberDecimalcount, RoundingMode.HALF_UP);
+            }
+            State state = unit == null ? new DecimalType(average) : QuantityType.valueOf(average.doubleValue(), unit);
+            return new JdbcHistoricItem(itemName, state, objectAsZonedDateTime(o[0]));
+        }).collect(Collectors.<HistoricItem> toList());
+    }
+
+    /**
+     * Updates the rollup tables of an item table after the values within the time range of a filter have been
+     * deleted. The buckets within the time range are deleted and the buckets at its boundaries, which may still
+     * contain values outside of the time range, are recomputed from the item table.
+     */
+    public void doDeleteRollups(FilterCriteria filter, String tableName, ZoneId timeZone) throws JdbcSQLException {
+        ZonedDateTime begin = filter.getBeginDate();
+        ZonedDateTime end = filter.getEndDate();
+        for (RollupResolution resolution : RollupResolution.values()) {
+            String rollupTable = resolution.getTableName(tableName);
+            if (!rollupTableExists(rollupTable)) {
+                return;
+            }
+            String sql = "DELETE FROM " + rollupTable;
+            List<Object> params = new ArrayList<>();
+            if (begin != null) {
+                sql += " WHERE time>=?";
+                params.add(new java.sql.Timestamp(
+                        resolution.truncate(begin.withZoneSameInstant(timeZone)).toInstant().toEpochMilli()));
+            }
+            if (end != null) {
+                sql += begin != null ? " AND time<?" : " WHERE time<?";
+                params.add(new java.sql.Timestamp(
+                        resolution.next(resolution.truncate(end.withZoneSameInstant(timeZone))).toInstant()
+                                .toEpochMilli()));
+            }
+            logger.debug("JDBC::doDeleteRollups sql={}", sql);
+            try {
+                Yank.execute(sql, params.toArray());
+            } catch (YankSQLException e) {
+                throw new JdbcSQLException(e);
+            }
+            rollupStarts.remove(rollupTable);
+        }
+        List<ZonedDateTime> boundaries = new ArrayList<>();
+        if (begin != null) {
+            boundaries.add(begin);
+        }
+        if (end != null) {
+            boundaries.add(end);
+        }
+        updateRollups(tableName, boundaries, timeZone);
+    }
+
+    /**
+     * Drops the rollup tables of an item table.
+     */
+    public void doDropRollupTables(String tableName) throws JdbcSQLException {
+        for (RollupResolution resolution : RollupResolution.values()) {
+            String rollupTable = resolution.getTableName(tableName);
+            if (rollupTableExists(rollupTable)) {
+                doDropTable(rollupTable);
+            }
+            rollupTables.remove(rollupTable);
+            rollupStarts.remove(rollupTable);
+        }
+    }
+
+    /**
+     * Renames the rollup tables of renamed item tables.
+     */
+    public void doUpdateRollupTableNames(List<ItemVO> vol) throws JdbcSQLException {
+        List<ItemVO> rollupVol = new ArrayList<>();
+        for (ItemVO itemTable : vol) {
+            String newTableName = itemTable.getNewTableName();
+            if (newTableName == null) {
+                continue;
+            }
+            for (RollupResolution resolution : RollupResolution.values()) {
+                String rollupTable = resolution.getTableName(itemTable.getTableName());
+                if (rollupTableExists(rollupTable)) {
+                    rollupVol.add(new ItemVO(rollupTable, resolution.getTableName(newTableName)));
+                }
+            }
+        }
+        doUpdateItemTableNames(rollupVol);
+    }
+
+    private boolean rollupTableExists(String rollupTable) throws JdbcSQLException {
+        if (rollupTables.contains(rollupTable)) {
+            return true;
+        }
+        ItemsVO vo = new ItemsVO();
+        vo.setItemsManageTable(rollupTable);
+        return doIfTableExists(vo);
+    }
+
     public List<HistoricItem> doGetHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
             String table, String name, ZoneId timeZone) throws JdbcSQLException {
         String sql = histItemFilterQueryProvider(filter, numberDecimalcount, table, name, timeZone);
@@ -478,6 +807,23 @@ public class JdbcBaseDAO {
                 .collect(Collectors.<HistoricItem> toList());
     }
 
+    /**
+     * Same as {@link #doGetHistItemFilterQuery} but the rows are read lazily through a forward-only cursor.
+     *
+     * @param fetchSize the number of rows fetched from the database at once
+     */
+    public Iterable<HistoricItem> doGetHistItemFilterCursor(Item item, FilterCriteria filter, int numberDecimalcount,
+            String table, String name, ZoneId timeZone, int fetchSize) {
+        String sql = histItemFilterQueryProvider(filter, numberDecimalcount, table, name, timeZone);
+        logger.debug("JDBC::doGetHistItemFilterCursor sql={} fetchSize={}", sql, fetchSize);
+        // we already retrieve the unit here once as it is a very costly operation
+        String itemName = item.getName();
+        Unit<? extends Quantity<?>> unit = item instanceof NumberItem numberItem ? numberItem.getUnit() : null;
+        return new JdbcHistoricItemCursor(Yank.getDefaultConnectionPool(), sql, fetchSize,
+                (time, value) -> new JdbcHistoricItem(itemName, objectAsState(item, unit, value),
+                        objectAsZonedDateTime(time)));
+    }
+
     public void doDeleteItemValues(FilterCriteria filter, String table, ZoneId timeZone) throws JdbcSQLException {
         String sql = histItemFilterDeleteProvider(filter, table, timeZone);
         logger.debug("JDBC::doDeleteItemValues sql={}", sql);
@@ -553,12 +899,67 @@ public class JdbcBaseDAO {
         return filterString;
     }
 
+    protected String rollupFilterQueryProvider(FilterCriteria filter, String rollupTable, ZoneId timeZone) {
+        String queryString = "SELECT time, samples, total FROM " + rollupTable + resolveTimeFilter(filter, timeZone);
+        queryString += (filter.getOrdering() == Ordering.ASCENDING) ? " ORDER BY time ASC" : " ORDER BY time DESC";
+        logger.debug("JDBC::query queryString = {}", queryString);
+        return queryString;
+    }
+
     private String updateItemTableNamesProvider(ItemVO itemTable) {
         String queryString = "ALTER TABLE " + itemTable.getTableName() + " RENAME TO " + itemTable.getNewTableName();
         logger.debug("JDBC::query queryString = {}", queryString);
         return queryString;
     }
 
+    /**
+     * Returns the insert statement for a value with a given time. The statement is rendered once per item table and
+     * reused until {@link #evictSqlCache(String)} is called for the table.
+     */
+    protected String storeItemValueWithDateSql(ItemVO storedVO) {
+        RenderedSql rendered = storeItemValueSqlCache.get(storedVO.getTableName());
+        if (rendered == null || !Objects.equals(rendered.dbType, storedVO.getDbType())) {
+            rendered = new RenderedSql(storedVO.getDbType(), storeItemValueWithDateSqlProvider(storedVO));
+            storeItemValueSqlCache.put(storedVO.getTableName(), rendered);
+        }
+        return rendered.sql;
+    }
+
+    /**
+     * Discards the statements rendered for a table, i.e. after the table was dropped, renamed or altered.
+     */
+    public void evictSqlCache(String tableName) {
+        storeItemValueSqlCache.remove(tableName);
+        for (RollupResolution resolution : RollupResolution.values()) {
+            rollupTables.remove(resolution.getTableName(tableName));
+            rollupStarts.remove(resolution.getTableName(tableName));
+        }
+    }
+
+    /**
+     * Discards the statements rendered for all tables.
+     */
+    public void evictSqlCache() {
+        storeItemValueSqlCache.clear();
+        rollupTables.clear();
+        rollupStarts.clear();
+    }
+
+    /**
+     * Renders the insert statement for a value with a given time, the time being the first parameter.
+     */
+    protected String storeItemValueWithDateSqlProvider(ItemVO storedVO) {
+        return StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
+                new String[] { "#tableName#", "#tablePrimaryValue#" }, new String[] { storedVO.getTableName(), "?" });
+    }
+
+    /**
+     * Returns the parameters of the statement rendered by {@link #storeItemValueWithDateSqlProvider(ItemVO)}.
+     */
+    protected Object[] storeItemValueWithDateParams(ItemVO storedVO, java.sql.Timestamp timestamp) {
+        return new Object[] { timestamp, storedVO.getValue(), storedVO.getValue() };
+    }
+
     protected ItemVO storeItemValueProvider(Item item, State itemState, ItemVO vo) {
         String itemType = getItemType(item);
 
@@ -799,4 +1200,14 @@ public class JdbcBaseDAO {
         }
         return dataType;
     }
+
+    private static class RenderedSql {
+        final @Nullable String dbType;
+        final String sql;
+
+        RenderedSql(@Nullable String dbType, String sql) {
+            this.dbType = dbType;
+            this.sql = sql;
+        }
+    }
 }
@@ -34,6 +34,7 @@ import org.openhab.core.types.State;
 import org.openhab.persistence.jdbc.internal.dto.ItemVO;
 import org.openhab.persistence.jdbc.internal.dto.ItemsVO;
 import org.openhab.persistence.jdbc.internal.dto.JdbcHistoricItem;
+import org.openhab.persistence.jdbc.internal.dto.RollupVO;
 import org.openhab.persistence.jdbc.internal.exceptions.JdbcSQLException;
 import org.openhab.persistence.jdbc.internal.utils.StringUtilsExt;
 import org.slf4j.Logger;
@@ -74,6 +75,9 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
         // http://www.codeproject.com/Questions/162627/how-to-insert-new-record-in-my-table-if-not-exists
         sqlInsertItemValue = "INSERT INTO #tableName# (TIME, VALUE) VALUES( #tablePrimaryValue#, CAST( ? as #dbType#) )";
         sqlAlterTableColumn = "ALTER TABLE #tableName# ALTER COLUMN #columnName# SET DATA TYPE #columnType#";
+        sqlCreateRollupTable = "CREATE TABLE #tableName# (time #tablePrimaryKey# NOT NULL, samples BIGINT NOT NULL, total DOUBLE PRECISION, minimum DOUBLE PRECISION, maximum DOUBLE PRECISION, latest DOUBLE PRECISION, PRIMARY KEY(time))";
+        // No upsert for single rows, see doUpsertRollups()
+        sqlUpsertRollup = "INSERT INTO #tableName# (time, samples, total, minimum, maximum, latest) VALUES( ?, ?, ?, ?, ?, ? )";
     }
 
     private void initSqlTypes() {
@@ -178,6 +182,34 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
         }
     }
 
+    @Override
+    public void doCreateRollupTable(String rollupTable) throws JdbcSQLException {
+        ItemsVO vo = new ItemsVO();
+        vo.setItemsManageTable(rollupTable);
+        if (!doIfTableExists(vo)) {
+            super.doCreateRollupTable(rollupTable);
+        }
+    }
+
+    @Override
+    protected void doUpsertRollups(String rollupTable, List<RollupVO> rollups) throws JdbcSQLException {
+        if (rollups.isEmpty()) {
+            return;
+        }
+        // a bucket that fails to be inserted after it was deleted is restored when its next value is stored
+        String sql = "DELETE FROM " + rollupTable + " WHERE time=?";
+        Object[][] params = rollups.stream()
+                .map(rollup -> new Object[] { new java.sql.Timestamp(rollup.getTime().toInstant().toEpochMilli()) })
+                .toArray(Object[][]::new);
+        logger.debug("JDBC::doUpsertRollups sql={} rows={}", sql, rollups.size());
+        try {
+            Yank.executeBatch(sql, params);
+        } catch (YankSQLException e) {
+            throw new JdbcSQLException(e);
+        }
+        super.doUpsertRollups(rollupTable, rollups);
+    }
+
     @Override
     public void doStoreItemValue(Item item, State itemState, ItemVO vo) throws JdbcSQLException {
         ItemVO storedVO = storeItemValueProvider(item, itemState, vo);
@@ -195,19 +227,15 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
     }
 
     @Override
-    public void doStoreItemValue(Item item, State itemState, ItemVO vo, ZonedDateTime date) throws JdbcSQLException {
-        ItemVO storedVO = storeItemValueProvider(item, itemState, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
+    protected String storeItemValueWithDateSqlProvider(ItemVO storedVO) {
+        return StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
                 new String[] { "#tableName#", "#dbType#", "#tablePrimaryValue#" },
                 new String[] { storedVO.getTableName().toUpperCase(), storedVO.getDbType(), "?" });
-        java.sql.Timestamp timestamp = new java.sql.Timestamp(date.toInstant().toEpochMilli());
-        Object[] params = { timestamp, storedVO.getValue() };
-        logger.debug("JDBC::doStoreItemValue sql={} timestamp={} value='{}'", sql, timestamp, storedVO.getValue());
-        try {
-            Yank.execute(sql, params);
-        } catch (YankSQLException e) {
-            throw new JdbcSQLException(e);
-        }
+    }
+
+    @Override
+    protected Object[] storeItemValueWithDateParams(ItemVO storedVO, java.sql.Timestamp timestamp) {
+        return new Object[] { timestamp, storedVO.getValue() };
     }
 
     @Override
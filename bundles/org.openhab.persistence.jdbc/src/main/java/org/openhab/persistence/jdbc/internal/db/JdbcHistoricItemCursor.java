@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal.db;
+
+import java.lang.ref.Cleaner;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+
+import javax.sql.DataSource;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.persistence.HistoricItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lazy query result that reads the rows of a query through a forward-only cursor. Each call of {@link #iterator()}
+ * runs the query on its own connection, which is released as soon as the last row has been read, the iterator is
+ * closed or a database error occurs. Rows are fetched from the database in chunks of the fetch size and mapped to
+ * {@link HistoricItem}s one by one, so only one chunk is held in memory.
+ * <br>
+ * Iterators that are abandoned before their last row are closed when they are garbage collected.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class JdbcHistoricItemCursor implements Iterable<HistoricItem> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcHistoricItemCursor.class);
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final DataSource dataSource;
+    private final String sql;
+    private final int fetchSize;
+    private final BiFunction<Object, Object, HistoricItem> rowMapper;
+
+    /**
+     * @param dataSource the pool the connections are taken from
+     * @param sql the query, selecting the time in the first and the value in the second column
+     * @param fetchSize the number of rows fetched from the database at once
+     * @param rowMapper maps the time and value of a row to a {@link HistoricItem}
+     */
+    public JdbcHistoricItemCursor(DataSource dataSource, String sql, int fetchSize,
+            BiFunction<Object, Object, HistoricItem> rowMapper) {
+        this.dataSource = dataSource;
+        this.sql = sql;
+        this.fetchSize = fetchSize;
+        this.rowMapper = rowMapper;
+    }
+
+    @Override
+    public CursorIterator iterator() {
+        return new CursorIterator();
+    }
+
+    /**
+     * Iterator over the rows of one execution of the query.
+     */
+    public class CursorIterator implements Iterator<HistoricItem>, AutoCloseable {
+        private final Resources resources = new Resources();
+        private final Cleaner.Cleanable cleanable = CLEANER.register(this, resources);
+        private @Nullable HistoricItem next;
+
+        private CursorIterator() {
+            try {
+                Connection connection = dataSource.getConnection();
+                resources.connection = connection;
+                // some drivers (i.e. PostgreSQL) only use a cursor within a transaction
+                connection.setAutoCommit(false);
+                Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                resources.statement = statement;
+                statement.setFetchSize(fetchSize);
+                resources.resultSet = statement.executeQuery(sql);
+                advance();
+            } catch (SQLException e) {
+                LOGGER.warn("JDBC::query: Unable to open cursor for '{}': {}", sql, e.getMessage());
+                close();
+            }
+        }
+
+        /**
+         * Reads the next row ahead, so the connection is already released when the last row is handed out.
+         */
+        private void advance() {
+            ResultSet resultSet = resources.resultSet;
+            next = null;
+            if (resultSet == null) {
+                return;
+            }
+            try {
+                if (resultSet.next()) {
+                    next = rowMapper.apply(resultSet.getObject(1), resultSet.getObject(2));
+                    return;
+                }
+            } catch (SQLException e) {
+                LOGGER.warn("JDBC::query: Unable to read row of '{}': {}", sql, e.getMessage());
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            close();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public HistoricItem next() {
+            HistoricItem item = next;
+            if (item == null) {
+                throw new NoSuchElementException();
+            }
+            advance();
+            return item;
+        }
+
+        /**
+         * Releases the connection, further rows are not read.
+         */
+        @Override
+        public void close() {
+            next = null;
+            cleanable.clean();
+        }
+
+        /**
+         * @return true if the connection of this iterator has been released
+         */
+        public boolean isClosed() {
+            return resources.connection == null;
+        }
+    }
+
+    /**
+     * The database resources of an iterator. Kept apart from the iterator so they can be released when the
+     * iterator becomes unreachable.
+     */
+    private static class Resources implements Runnable {
+        private @Nullable Connection connection;
+        private @Nullable Statement statement;
+        private @Nullable ResultSet resultSet;
+
+        @Override
+        public void run() {
+            ResultSet resultSet = this.resultSet;
+            Statement statement = this.statement;
+            Connection connection = this.connection;
+            this.resultSet = null;
+            this.statement = null;
+            this.connection = null;
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (statement != null) {
+                    statement.close();
+                }
+            } catch (SQLException e) {
+                LOGGER.debug("JDBC::query: Unable to close cursor: {}", e.getMessage());
+            }
+            if (connection != null) {
+                try {
+                    // ends the read-only transaction the cursor was opened in
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    LOGGER.debug("JDBC::query: Unable to end cursor transaction: {}", e.getMessage());
+                }
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    LOGGER.debug("JDBC::query: Unable to release connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -12,8 +12,6 @@
  */
 package org.openhab.persistence.jdbc.internal.db;
 
-import java.time.ZonedDateTime;
-
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.knowm.yank.Yank;
@@ -67,6 +65,16 @@ public class JdbcHsqldbDAO extends JdbcBaseDAO {
                 USING (VALUES #tablePrimaryValue#, CAST( ? as #dbType#)) temp (TIME, VALUE) ON (#tableName#.TIME=temp.TIME) \
                 WHEN NOT MATCHED THEN INSERT (TIME, VALUE) VALUES (temp.TIME, temp.VALUE)\
                 """;
+        sqlUpsertRollup = """
+                MERGE INTO #tableName# \
+                USING (VALUES (CAST( ? as #tablePrimaryKey#), CAST( ? as BIGINT), CAST( ? as DOUBLE), CAST( ? as DOUBLE),\
+                 CAST( ? as DOUBLE), CAST( ? as DOUBLE))) temp (time, samples, total, minimum, maximum, latest)\
+                 ON (#tableName#.time=temp.time) \
+                WHEN MATCHED THEN UPDATE SET samples=temp.samples, total=temp.total, minimum=temp.minimum,\
+                 maximum=temp.maximum, latest=temp.latest \
+                WHEN NOT MATCHED THEN INSERT (time, samples, total, minimum, maximum, latest)\
+                 VALUES (temp.time, temp.samples, temp.total, temp.minimum, temp.maximum, temp.latest)\
+                """;
     }
 
     /**
@@ -144,19 +152,15 @@ public class JdbcHsqldbDAO extends JdbcBaseDAO {
     }
 
     @Override
-    public void doStoreItemValue(Item item, State itemState, ItemVO vo, ZonedDateTime date) throws JdbcSQLException {
-        ItemVO storedVO = storeItemValueProvider(item, itemState, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
+    protected String storeItemValueWithDateSqlProvider(ItemVO storedVO) {
+        return StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
                 new String[] { "#tableName#", "#dbType#", "#tableName#", "#tablePrimaryValue#" },
                 new String[] { storedVO.getTableName(), storedVO.getDbType(), storedVO.getTableName(), "?" });
-        java.sql.Timestamp timestamp = new java.sql.Timestamp(date.toInstant().toEpochMilli());
-        Object[] params = { timestamp, storedVO.getValue() };
-        logger.debug("JDBC::doStoreItemValue sql={} timestamp={} value='{}'", sql, timestamp, storedVO.getValue());
-        try {
-            Yank.execute(sql, params);
-        } catch (YankSQLException e) {
-            throw new JdbcSQLException(e);
-        }
+    }
+
+    @Override
+    protected Object[] storeItemValueWithDateParams(ItemVO storedVO, java.sql.Timestamp timestamp) {
+        return new Object[] { timestamp, storedVO.getValue() };
     }
 
     /****************************
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal.dto;
+
+import java.time.ZonedDateTime;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Represents one bucket of a rollup table: the number of values, their sum, minimum, maximum and the last value.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class RollupVO {
+    private final ZonedDateTime time;
+    private long samples;
+    private double total;
+    private double minimum = Double.POSITIVE_INFINITY;
+    private double maximum = Double.NEGATIVE_INFINITY;
+    private double latest;
+
+    public RollupVO(ZonedDateTime time) {
+        this.time = time;
+    }
+
+    public RollupVO(ZonedDateTime time, long samples, double total, double minimum, double maximum, double latest) {
+        this.time = time;
+        this.samples = samples;
+        this.total = total;
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.latest = latest;
+    }
+
+    /**
+     * Adds a value, values have to be added in the order of their time.
+     */
+    public void add(double value) {
+        samples++;
+        total += value;
+        minimum = Math.min(minimum, value);
+        maximum = Math.max(maximum, value);
+        latest = value;
+    }
+
+    /**
+     * Adds the values of a bucket holding later values of the same time range.
+     */
+    public void merge(RollupVO later) {
+        samples += later.samples;
+        total += later.total;
+        minimum = Math.min(minimum, later.minimum);
+        maximum = Math.max(maximum, later.maximum);
+        latest = later.latest;
+    }
+
+    public ZonedDateTime getTime() {
+        return time;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public double getMinimum() {
+        return minimum;
+    }
+
+    public double getMaximum() {
+        return maximum;
+    }
+
+    public double getLatest() {
+        return latest;
+    }
+
+    public double getAverage() {
+        return samples == 0 ? 0 : total / samples;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal.utils;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Keeps the last values of a series (i.e. durations) in a ring buffer of primitives and calculates their average
+ * and percentiles. Adding a value does not allocate.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class LatencyTracker {
+
+    private final long[] window;
+    private final long[] sorted;
+    private int size;
+    private int next;
+    private long count;
+
+    public LatencyTracker(int capacity) {
+        assert capacity > 0 : "Capacity must be a positive integer";
+        this.window = new long[capacity];
+        this.sorted = new long[capacity];
+    }
+
+    public synchronized void add(long value) {
+        window[next] = value;
+        next = (next + 1) % window.length;
+        if (size < window.length) {
+            size++;
+        }
+        count++;
+    }
+
+    /**
+     * @return the number of values added since creation, including those no longer in the window
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the average of all values in the window, 0 if there are none
+     */
+    public double getAverage() {
+        return getAverage(window.length);
+    }
+
+    /**
+     * @param last the number of most recent values to average
+     * @return the average of the most recent values, 0 if there are none
+     */
+    public synchronized double getAverage(int last) {
+        int n = Math.min(last, size);
+        if (n == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += window[(next - i + window.length) % window.length];
+        }
+        return (double) sum / n;
+    }
+
+    /**
+     * @param percentile the percentile between 0 and 100 (i.e. 95 for p95)
+     * @return the value below or at which the given percentage of the values in the window fall (nearest rank), 0 if
+     *         there are none
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        System.arraycopy(window, 0, sorted, 0, size);
+        Arrays.sort(sorted, 0, size);
+        int rank = (int) Math.ceil(percentile / 100 * size);
+        return sorted[Math.min(size, Math.max(1, rank)) - 1];
+    }
+}
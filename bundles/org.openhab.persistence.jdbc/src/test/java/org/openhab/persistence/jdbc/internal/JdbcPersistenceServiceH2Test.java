@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.mock;
+
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knowm.yank.Yank;
+import org.openhab.core.i18n.TimeZoneProvider;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.persistence.jdbc.internal.exceptions.JdbcException;
+
+/**
+ * Stores states through the write queue of the {@link JdbcPersistenceService} into an H2 database.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class JdbcPersistenceServiceH2Test {
+
+    private final JdbcPersistenceService service = new JdbcPersistenceService(mock(ItemRegistry.class),
+            mock(TimeZoneProvider.class));
+    private final NumberItem power = new NumberItem("Power");
+    private final NumberItem energy = new NumberItem("Energy");
+    private final ZonedDateTime now = ZonedDateTime.now();
+    private @TempDir @NonNullByDefault({}) Path databaseDirectory;
+
+    private void configure(Map<Object, Object> configuration) {
+        configuration.put("url", "jdbc:h2:file:" + databaseDirectory.resolve("openhab").toAbsolutePath());
+        // only flush when the test asks for it
+        configuration.put("batchInterval", "3600000");
+        service.updateConfig(configuration);
+        assertThat(service.checkDBAccessability(), is(true));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.deactivate(0);
+        service.closeConnection();
+    }
+
+    @Test
+    void queuedStatesAreStoredWithOneBatchPerItem() throws JdbcException {
+        configure(new HashMap<>(Map.of("batchSize", "100")));
+        for (int i = 0; i < 10; i++) {
+            service.store(power, now.plusSeconds(i), new DecimalType(i));
+        }
+        for (int i = 0; i < 5; i++) {
+            service.store(energy, now.plusSeconds(i), new DecimalType(i));
+        }
+        assertThat(service.getQueueSize(), is(15));
+
+        service.flush();
+        assertThat(service.getQueueSize(), is(0));
+        assertThat(service.getStoredValues(), is(15L));
+        assertThat(service.getDroppedValues(), is(0L));
+        assertThat(service.getRowCount(service.getTable(power)), is(10L));
+        assertThat(service.getRowCount(service.getTable(energy)), is(5L));
+        // a single batch statement per item
+        assertThat(service.getStoreLatency().getCount(), is(2L));
+    }
+
+    @Test
+    void oldestStatesAreDroppedIfTheQueueIsFull() throws JdbcException {
+        configure(new HashMap<>(Map.of("batchSize", "5", "queueCapacity", "5")));
+        // the flush requested by a full batch waits until all states are queued
+        synchronized (service) {
+            for (int i = 0; i < 8; i++) {
+                service.store(power, now.plusSeconds(i), new DecimalType(i));
+            }
+            assertThat(service.getQueueSize(), is(5));
+            assertThat(service.getDroppedValues(), is(3L));
+        }
+
+        service.flush();
+        String table = service.getTable(power);
+        assertThat(service.getRowCount(table), is(5L));
+        assertThat(Yank.queryScalar("SELECT MIN(VALUE) FROM " + table, Double.class, new Object[0]), is(3.0));
+    }
+}
@@ -12,15 +12,38 @@
  */
 package org.openhab.persistence.jdbc.internal;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.Mockito.mock;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.openhab.core.i18n.TimeZoneProvider;
+import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.types.State;
+import org.openhab.persistence.jdbc.internal.JdbcPersistenceService.PendingValue;
+import org.openhab.persistence.jdbc.internal.exceptions.JdbcException;
+import org.openhab.persistence.journal.PersistenceJournal;
 
 /**
  * Tests the {@link JdbcPersistenceService}.
@@ -38,14 +61,118 @@ public class JdbcPersistenceServiceTest {
         }
     };
     private @NonNullByDefault({}) FilterCriteria filter;
+    private @TempDir @NonNullByDefault({}) Path journalDirectory;
+
+    private final NumberItem a = new NumberItem("a");
+    private final NumberItem b = new NumberItem("b");
+    private final NumberItem c = new NumberItem("c");
+    private final ZonedDateTime now = ZonedDateTime.now();
+    private final Set<String> rejectedItems = new HashSet<>();
+    private final List<String> stored = new ArrayList<>();
+    private int writesUntilConnectionLost = Integer.MAX_VALUE;
+    private @NonNullByDefault({}) JdbcPersistenceService service;
+    private @NonNullByDefault({}) PersistenceJournal<PendingValue> journal;
 
     @BeforeEach
-    public void setup() {
+    public void setup() throws IOException {
         filter = new FilterCriteria();
+
+        Map<String, Item> items = Map.of("a", a, "b", b, "c", c);
+        ItemRegistry itemRegistry = mock(ItemRegistry.class);
+        when(itemRegistry.get(anyString())).thenAnswer(invocation -> items.get(invocation.getArgument(0)));
+        service = new JdbcPersistenceService(itemRegistry, mock(TimeZoneProvider.class)) {
+            @Override
+            protected boolean checkDBAccessability() {
+                return writesUntilConnectionLost > 0;
+            }
+
+            @Override
+            protected boolean isDBReachable() {
+                return writesUntilConnectionLost > 0;
+            }
+
+            @Override
+            protected boolean isRollupItem(Item item) {
+                return false;
+            }
+
+            @Override
+            protected void storeItemValues(Item item, List<Entry<ZonedDateTime, State>> values)
+                    throws JdbcException {
+                for (Entry<ZonedDateTime, State> value : values) {
+                    storeItemValue(item, value.getValue(), value.getKey());
+                }
+            }
+
+            @Override
+            protected void storeItemValue(Item item, State itemState, @Nullable ZonedDateTime date)
+                    throws JdbcException {
+                if (writesUntilConnectionLost <= 0) {
+                    throw new JdbcException("connection lost");
+                }
+                if (rejectedItems.contains(item.getName())) {
+                    throw new JdbcException("value too long");
+                }
+                writesUntilConnectionLost--;
+                stored.add(item.getName() + "=" + itemState);
+            }
+        };
+        journal = new PersistenceJournal<>(journalDirectory, new JdbcJournalCodec(itemRegistry));
+        service.journal = journal;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        journal.close();
     }
 
     @Test
     void removeThrowsIllegalArgumentExceptionIfItemNameOfFilterIsNull() {
         assertThrows(IllegalArgumentException.class, () -> jdbcPersistenceService.remove(filter));
     }
+
+    @Test
+    void rejectedStatesDoNotBlockOtherItems() throws IOException {
+        rejectedItems.add("b");
+        service.store(a, now, new DecimalType(1));
+        service.store(b, now, new DecimalType(2));
+        service.store(c, now, new DecimalType(3));
+        service.flush();
+        assertThat(stored, contains("a=1", "c=3"));
+        assertThat(journal.isEmpty(), is(true));
+
+        service.store(b, now.plusSeconds(1), new DecimalType(4));
+        service.store(a, now.plusSeconds(1), new DecimalType(5));
+        service.flush();
+        assertThat(stored, contains("a=1", "c=3", "a=5"));
+        assertThat(journal.isEmpty(), is(true));
+    }
+
+    @Test
+    void statesAreJournaledWhileTheConnectionIsLost() throws IOException {
+        // the connection is lost after the first state
+        writesUntilConnectionLost = 1;
+        service.store(a, now, new DecimalType(1));
+        service.store(b, now, new DecimalType(2));
+        service.store(c, now, new DecimalType(3));
+        service.flush();
+        assertThat(stored, contains("a=1"));
+        assertThat(journal.getPendingValues(), is(2L));
+
+        service.store(a, now.plusSeconds(1), new DecimalType(4));
+        service.flush();
+        assertThat(stored, contains("a=1"));
+        assertThat(journal.getPendingValues(), is(3L));
+
+        // the connection is lost again while replaying, the written state is not replayed twice
+        writesUntilConnectionLost = 1;
+        service.flush();
+        assertThat(stored, contains("a=1", "b=2"));
+        assertThat(journal.getPendingValues(), is(2L));
+
+        writesUntilConnectionLost = Integer.MAX_VALUE;
+        service.flush();
+        assertThat(stored, contains("a=1", "b=2", "c=3", "a=4"));
+        assertThat(journal.isEmpty(), is(true));
+    }
 }
@@ -16,6 +16,8 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.time.Instant;
@@ -24,6 +26,7 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import javax.measure.Quantity;
@@ -66,6 +69,9 @@ import org.openhab.core.library.unit.SIUnits;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.types.State;
+import org.openhab.persistence.jdbc.internal.RollupResolution;
+import org.openhab.persistence.jdbc.internal.dto.ItemVO;
+import org.openhab.persistence.jdbc.internal.dto.RollupVO;
 
 /**
  * Tests the {@link JdbcBaseDAO}.
@@ -194,6 +200,102 @@ public class JdbcBaseDAOTest {
         assertThat(sql, is("SELECT time, value FROM " + DB_TABLE_NAME + " ORDER BY time DESC LIMIT 0,1"));
     }
 
+    @Test
+    void testStoreItemValueWithDateSqlProviderReturnsInsertQueryWithTimeParameter() {
+        String sql = jdbcBaseDAO.storeItemValueWithDateSqlProvider(new ItemVO(DB_TABLE_NAME, null));
+        assertThat(sql, is("INSERT INTO " + DB_TABLE_NAME
+                + " (time, value) VALUES( ?, ? ) ON DUPLICATE KEY UPDATE VALUE= ?"));
+    }
+
+    @Test
+    void testStoreItemValueWithDateSqlProviderOfH2ReturnsMergeQueryWithTimeParameter() {
+        ItemVO vo = new ItemVO(DB_TABLE_NAME, null);
+        vo.setValueTypes("DOUBLE", Double.class);
+        String sql = new JdbcH2DAO().storeItemValueWithDateSqlProvider(vo);
+        assertThat(sql, is("MERGE INTO " + DB_TABLE_NAME + " (TIME, VALUE) VALUES( ?, CAST( ? as DOUBLE) )"));
+    }
+
+    @Test
+    void testStoreItemValueWithDateSqlIsRenderedOncePerTable() {
+        ItemVO vo = new ItemVO(DB_TABLE_NAME, null);
+        vo.setValueTypes("DOUBLE", Double.class);
+        String sql = jdbcBaseDAO.storeItemValueWithDateSql(vo);
+        assertSame(sql, jdbcBaseDAO.storeItemValueWithDateSql(vo));
+
+        jdbcBaseDAO.evictSqlCache(DB_TABLE_NAME);
+        String renderedAgain = jdbcBaseDAO.storeItemValueWithDateSql(vo);
+        assertNotSame(sql, renderedAgain);
+        assertEquals(sql, renderedAgain);
+    }
+
+    @Test
+    void testStoreItemValueWithDateSqlIsRenderedAgainForOtherDbType() {
+        ItemVO vo = new ItemVO(DB_TABLE_NAME, null);
+        vo.setValueTypes("DOUBLE", Double.class);
+        JdbcH2DAO jdbcH2DAO = new JdbcH2DAO();
+        jdbcH2DAO.storeItemValueWithDateSql(vo);
+        vo.setValueTypes("VARCHAR(65500)", String.class);
+        assertThat(jdbcH2DAO.storeItemValueWithDateSql(vo),
+                is("MERGE INTO " + DB_TABLE_NAME + " (TIME, VALUE) VALUES( ?, CAST( ? as VARCHAR(65500)) )"));
+    }
+
+    @Test
+    void testStoreItemValueWithDateParamsReturnsValueForUpdate() {
+        ItemVO vo = new ItemVO(DB_TABLE_NAME, null);
+        vo.setValue(1.5);
+        java.sql.Timestamp timestamp = new java.sql.Timestamp(0);
+        Object[] params = jdbcBaseDAO.storeItemValueWithDateParams(vo, timestamp);
+        assertThat(params, is(new Object[] { timestamp, 1.5, 1.5 }));
+    }
+
+    @Test
+    void testRollupFilterQueryProviderWithStartDateReturnsSelectQueryOfRollupTableAscendingOrder() {
+        filter.setBeginDate(parseDateTimeString("2022-01-10T15:01:44"));
+        filter.setOrdering(Ordering.ASCENDING);
+        String rollupTable = RollupResolution.HOUR.getTableName(DB_TABLE_NAME);
+
+        String sql = jdbcBaseDAO.rollupFilterQueryProvider(filter, rollupTable, UTC_ZONE_ID);
+        assertThat(sql, is("SELECT time, samples, total FROM " + DB_TABLE_NAME + "_rollup_1h WHERE TIME>='" //
+                + JdbcBaseDAO.JDBC_DATE_FORMAT.format(Objects.requireNonNull(filter.getBeginDate()))
+                + "' ORDER BY time ASC"));
+        Set<String> rollupTableNames = RollupResolution.getRollupTableNames(Set.of(DB_TABLE_NAME.toUpperCase()));
+        assertThat(rollupTableNames.contains(rollupTable.toLowerCase()), is(true));
+        assertThat(rollupTableNames.contains(DB_TABLE_NAME.toLowerCase()), is(false));
+        // an item named like a rollup table without the item the name refers to
+        assertThat(RollupResolution.getRollupTableNames(Set.of(rollupTable)).contains(rollupTable.toLowerCase()),
+                is(false));
+    }
+
+    @Test
+    void testRollupBucketsAreMergedInTimeOrder() {
+        ZonedDateTime time = RollupResolution.MINUTE.truncate(parseDateTimeString("2022-01-10T15:01:44"));
+        RollupVO bucket = new RollupVO(time);
+        bucket.add(2.0);
+        bucket.add(6.0);
+        RollupVO later = new RollupVO(time);
+        later.add(1.0);
+        bucket.merge(later);
+
+        assertThat(bucket.getTime(), is(parseDateTimeString("2022-01-10T15:01:00")));
+        assertThat(bucket.getSamples(), is(3L));
+        assertThat(bucket.getAverage(), is(3.0));
+        assertThat(bucket.getMinimum(), is(1.0));
+        assertThat(bucket.getMaximum(), is(6.0));
+        assertThat(bucket.getLatest(), is(1.0));
+    }
+
+    @Test
+    void testRollupBucketsFollowTheCalendarOfTheTimeZone() {
+        ZonedDateTime time = ZonedDateTime.of(2022, 3, 27, 15, 1, 44, 0, ZoneId.of("Europe/Berlin"));
+        ZonedDateTime day = RollupResolution.DAY.truncate(time);
+
+        assertThat(day, is(ZonedDateTime.of(2022, 3, 27, 0, 0, 0, 0, ZoneId.of("Europe/Berlin"))));
+        // the day of the change to daylight saving time has 23 hours
+        assertThat(RollupResolution.DAY.next(day).toInstant(), is(day.toInstant().plusSeconds(23 * 3600)));
+        assertThat(RollupResolution.HOUR.next(RollupResolution.HOUR.truncate(time)),
+                is(ZonedDateTime.of(2022, 3, 27, 16, 0, 0, 0, ZoneId.of("Europe/Berlin"))));
+    }
+
     @Test
     void testHistItemFilterDeleteProviderReturnsDeleteQueryWithoutWhereClause() {
         String sql = jdbcBaseDAO.histItemFilterDeleteProvider(filter, DB_TABLE_NAME, UTC_ZONE_ID);
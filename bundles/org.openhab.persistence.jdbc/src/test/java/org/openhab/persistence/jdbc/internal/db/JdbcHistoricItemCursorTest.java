@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal.db;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.persistence.jdbc.internal.db.JdbcHistoricItemCursor.CursorIterator;
+import org.openhab.persistence.jdbc.internal.dto.JdbcHistoricItem;
+
+/**
+ * Tests the {@link JdbcHistoricItemCursor} against an in-memory database.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class JdbcHistoricItemCursorTest {
+    private static final String SQL = "SELECT time, value FROM testitem ORDER BY time ASC";
+
+    private final JdbcDataSource dataSource = new JdbcDataSource();
+    private @NonNullByDefault({}) Connection keepAlive;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        dataSource.setURL("jdbc:h2:mem:cursortest");
+        keepAlive = dataSource.getConnection();
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("CREATE TABLE testitem (time BIGINT NOT NULL, value DOUBLE, PRIMARY KEY(time))");
+            for (int i = 0; i < 10; i++) {
+                statement.execute("INSERT INTO testitem VALUES (" + i + ", " + i * 1.5 + ")");
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("DROP TABLE testitem");
+        }
+        keepAlive.close();
+    }
+
+    private JdbcHistoricItemCursor createCursor(String sql) {
+        return new JdbcHistoricItemCursor(dataSource, sql, 3,
+                (time, value) -> new JdbcHistoricItem("Test", new DecimalType(((Number) value).doubleValue()),
+                        ZonedDateTime.ofInstant(Instant.ofEpochMilli(((Number) time).longValue()), ZoneId.of("UTC"))));
+    }
+
+    @Test
+    void iteratingReturnsAllRowsAndReleasesConnection() {
+        CursorIterator iterator = createCursor(SQL).iterator();
+        List<HistoricItem> items = new ArrayList<>();
+        iterator.forEachRemaining(items::add);
+
+        assertThat(items.size(), is(10));
+        assertThat(items.get(9).getState(), is(new DecimalType(13.5)));
+        assertThat(iterator.isClosed(), is(true));
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    @Test
+    void connectionIsReleasedWhenLastRowIsHandedOut() {
+        CursorIterator iterator = createCursor(SQL + " LIMIT 1").iterator();
+        assertThat(iterator.isClosed(), is(false));
+
+        iterator.next();
+        assertThat(iterator.isClosed(), is(true));
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test
+    void closeReleasesConnectionBeforeLastRow() {
+        CursorIterator iterator = createCursor(SQL).iterator();
+        iterator.next();
+        iterator.close();
+
+        assertThat(iterator.isClosed(), is(true));
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test
+    void eachIterationRunsTheQueryAgain() {
+        JdbcHistoricItemCursor cursor = createCursor(SQL);
+        int first = 0;
+        for (HistoricItem item : cursor) {
+            first++;
+        }
+        int second = 0;
+        for (HistoricItem item : cursor) {
+            second++;
+        }
+
+        assertThat(first, is(10));
+        assertThat(second, is(10));
+    }
+
+    @Test
+    void invalidQueryReturnsNoRows() {
+        CursorIterator iterator = createCursor("SELECT time, value FROM missingtable").iterator();
+
+        assertThat(iterator.hasNext(), is(false));
+        assertThat(iterator.isClosed(), is(true));
+    }
+}
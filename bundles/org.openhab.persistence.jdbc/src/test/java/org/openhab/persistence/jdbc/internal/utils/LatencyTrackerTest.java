@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal.utils;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link LatencyTracker}.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class LatencyTrackerTest {
+
+    @Test
+    void emptyTrackerReturnsZero() {
+        LatencyTracker tracker = new LatencyTracker(10);
+
+        assertThat(tracker.getAverage(), is(0.0));
+        assertThat(tracker.getPercentile(99), is(0L));
+        assertThat(tracker.getCount(), is(0L));
+    }
+
+    @Test
+    void percentilesUseNearestRank() {
+        LatencyTracker tracker = new LatencyTracker(100);
+        for (int i = 100; i >= 1; i--) {
+            tracker.add(i);
+        }
+
+        assertThat(tracker.getPercentile(50), is(50L));
+        assertThat(tracker.getPercentile(95), is(95L));
+        assertThat(tracker.getPercentile(99), is(99L));
+        assertThat(tracker.getPercentile(100), is(100L));
+        assertThat(tracker.getPercentile(0), is(1L));
+    }
+
+    @Test
+    void oldestValuesLeaveTheWindow() {
+        LatencyTracker tracker = new LatencyTracker(4);
+        for (int i = 1; i <= 6; i++) {
+            tracker.add(i);
+        }
+
+        assertThat(tracker.getCount(), is(6L));
+        assertThat(tracker.getAverage(), is(4.5));
+        assertThat(tracker.getAverage(2), is(5.5));
+        assertThat(tracker.getPercentile(0), is(3L));
+        assertThat(tracker.getPercentile(100), is(6L));
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.journal;
+
+import java.io.IOException;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Converts the values of a {@link PersistenceJournal} to and from the records stored in the journal.
+ *
+ * @param <T> the type of the journaled values
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public interface JournalCodec<T> {
+
+    /**
+     * @param value the value to store
+     * @return the record of the value
+     * @throws IOException if the value cannot be encoded
+     */
+    byte[] encode(T value) throws IOException;
+
+    /**
+     * @param record a record created by {@link #encode(Object)}
+     * @return the value of the record, or <code>null</code> if it can no longer be restored, e.g. because its item has
+     *         been removed. The record is skipped.
+     * @throws IOException if the record is invalid, it is skipped
+     */
+    @Nullable
+    T decode(byte[] record) throws IOException;
+}
@@ -0,0 +1,444 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.OpenHAB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only journal of values that could not be written to a database yet, stored in memory-mapped segment
+ * files.
+ * <p>
+ * Values are appended in batches and each batch is forced to disk once. {@link #replay(int, Predicate)} reads the
+ * values back in the order they were appended and removes them once they have been written. The position up to which
+ * values have been replayed is kept in a checkpoint file, so the journal continues where it stopped after a restart.
+ * A value may be replayed twice if the process stops between writing a batch and updating the checkpoint.
+ * <p>
+ * A record consists of the length of its data, the CRC32 of its data and the data. A record that has not been
+ * written completely, e.g. because of a power loss, ends the segment. After opening the journal, values are appended
+ * to a new segment. Segments are deleted once all their values have been replayed.
+ *
+ * @param <T> the type of the journaled values
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class PersistenceJournal<T> implements Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int RECORD_HEADER_SIZE = 8; // length and CRC32 of the data
+    private static final int CHECKPOINT_SIZE = 16; // segment, offset and CRC32
+
+    private final Logger logger = LoggerFactory.getLogger(PersistenceJournal.class);
+
+    private final Path directory;
+    private final JournalCodec<T> codec;
+    private final int segmentSize;
+    private final ReentrantLock replayLock = new ReentrantLock();
+
+    // all fields below are guarded by this
+    private long writeSegment;
+    private MappedByteBuffer writeBuffer;
+    private long readSegment;
+    private int readOffset;
+    private @Nullable ByteBuffer readBuffer;
+    private long readBufferSegment = -1;
+    private long pendingValues;
+    private long pendingBytes;
+    private boolean closed;
+
+    /**
+     * @return the directory of the journal of a persistence service in the userdata folder
+     */
+    public static Path getDefaultDirectory(String serviceId) {
+        return Path.of(OpenHAB.getUserDataFolder(), "persistence", serviceId, "journal");
+    }
+
+    /**
+     * Opens the journal in the directory, creating it if it does not exist.
+     */
+    public PersistenceJournal(Path directory, JournalCodec<T> codec) throws IOException {
+        this(directory, codec, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the journal in the directory, creating it if it does not exist.
+     *
+     * @param segmentSize the size of the segment files, a value larger than a segment gets a segment of its own
+     */
+    public PersistenceJournal(Path directory, JournalCodec<T> codec, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.codec = codec;
+        this.segmentSize = Math.max(RECORD_HEADER_SIZE, segmentSize);
+        Files.createDirectories(directory);
+
+        List<Long> segments = listSegments();
+        long lastSegment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        if (!readCheckpoint()) {
+            readSegment = segments.isEmpty() ? 0 : segments.get(0);
+            readOffset = 0;
+        }
+        // never append behind records that may have been torn
+        writeSegment = Math.max(lastSegment + 1, readSegment);
+        writeBuffer = map(writeSegment, this.segmentSize);
+
+        // count the values left to replay
+        for (long segment : segments) {
+            if (segment >= readSegment) {
+                ByteBuffer buffer = segmentBuffer(segment);
+                int offset = segment == readSegment ? readOffset : 0;
+                int end;
+                while ((end = recordEnd(buffer, offset)) > 0) {
+                    pendingValues++;
+                    pendingBytes += end - offset;
+                    offset = end;
+                }
+            }
+        }
+        if (pendingValues == 0) {
+            readSegment = writeSegment;
+            readOffset = 0;
+            writeCheckpoint();
+        }
+        deleteSegmentsBefore(readSegment);
+        logger.debug("Opened journal {} with {} values to replay.", directory, pendingValues);
+    }
+
+    /**
+     * Appends values to the journal and forces them to disk.
+     */
+    public synchronized void append(Collection<? extends T> values) throws IOException {
+        if (closed) {
+            throw new IOException("Journal " + directory + " is closed");
+        }
+        if (values.isEmpty()) {
+            return;
+        }
+        MappedByteBuffer buffer = writeBuffer;
+        CRC32 crc = new CRC32();
+        for (T value : values) {
+            byte[] data = codec.encode(value);
+            int size = RECORD_HEADER_SIZE + data.length;
+            if (buffer.remaining() < size) {
+                buffer.force();
+                writeSegment++;
+                buffer = writeBuffer = map(writeSegment, Math.max(segmentSize, size));
+            }
+            crc.reset();
+            crc.update(data);
+            int offset = buffer.position();
+            buffer.position(offset + Integer.BYTES);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(data);
+            // the length is written last, a record is not valid before it is complete
+            buffer.putInt(offset, data.length);
+            pendingValues++;
+            pendingBytes += size;
+        }
+        buffer.force();
+    }
+
+    /**
+     * Passes the journaled values in batches to the writer, in the order they were appended, until the journal is
+     * empty or the writer fails. Values are removed from the journal once the writer succeeded. Does nothing if
+     * another thread is replaying the journal.
+     *
+     * @param batchSize the maximum number of values passed to the writer at once
+     * @param writer writes the values, returns <code>false</code> if they could not be written and should be
+     *            replayed later
+     * @return the number of values written
+     */
+    public int replay(int batchSize, Predicate<List<T>> writer) throws IOException {
+        if (!replayLock.tryLock()) {
+            return 0;
+        }
+        try {
+            int replayed = 0;
+            while (true) {
+                Batch<T> batch;
+                synchronized (this) {
+                    if (closed) {
+                        break;
+                    }
+                    batch = readBatch(Math.max(1, batchSize));
+                }
+                if (batch.records == 0) {
+                    break;
+                }
+                // the writer runs without holding the lock, so values can be appended meanwhile
+                if (!batch.values.isEmpty() && !writer.test(batch.values)) {
+                    break;
+                }
+                synchronized (this) {
+                    if (closed) {
+                        break;
+                    }
+                    commit(batch);
+                }
+                replayed += batch.values.size();
+            }
+            return replayed;
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    /**
+     * @return whether there are no values left to replay
+     */
+    public synchronized boolean isEmpty() {
+        return pendingValues == 0;
+    }
+
+    /**
+     * @return the number of values left to replay
+     */
+    public synchronized long getPendingValues() {
+        return pendingValues;
+    }
+
+    /**
+     * @return the size of the records left to replay in bytes
+     */
+    public synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * Forces the journal to disk. Values that have not been replayed yet are replayed after the journal is opened
+     * again.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            writeBuffer.force();
+            readBuffer = null;
+        }
+    }
+
+    private Batch<T> readBatch(int batchSize) throws IOException {
+        Batch<T> batch = new Batch<>(readSegment, readOffset);
+        while (batch.values.size() < batchSize) {
+            ByteBuffer buffer = segmentBuffer(batch.segment);
+            int end = recordEnd(buffer, batch.offset);
+            if (end < 0) {
+                if (batch.segment >= writeSegment) {
+                    break;
+                }
+                batch.segment = nextSegment(batch.segment);
+                batch.offset = 0;
+                continue;
+            }
+            byte[] data = new byte[end - batch.offset - RECORD_HEADER_SIZE];
+            buffer.get(batch.offset + RECORD_HEADER_SIZE, data);
+            try {
+                T value = codec.decode(data);
+                if (value != null) {
+                    batch.values.add(value);
+                }
+            } catch (IOException e) {
+                logger.warn("Skipping invalid record in journal {}: {}", directory, e.getMessage());
+            }
+            batch.records++;
+            batch.bytes += end - batch.offset;
+            batch.offset = end;
+        }
+        return batch;
+    }
+
+    private void commit(Batch<T> batch) throws IOException {
+        pendingValues -= batch.records;
+        pendingBytes -= batch.bytes;
+        long previousSegment = readSegment;
+        readSegment = batch.segment;
+        readOffset = batch.offset;
+        if (pendingValues == 0) {
+            // everything has been replayed, start over with an empty segment
+            if (writeBuffer.position() > 0) {
+                writeBuffer.force();
+                writeSegment++;
+                writeBuffer = map(writeSegment, segmentSize);
+            }
+            readSegment = writeSegment;
+            readOffset = 0;
+        }
+        writeCheckpoint();
+        if (readSegment != previousSegment) {
+            deleteSegmentsBefore(readSegment);
+        }
+    }
+
+    /**
+     * @return the offset after the record at the offset, or -1 if there is no complete record
+     */
+    private static int recordEnd(ByteBuffer buffer, int offset) {
+        if (offset > buffer.limit() - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > buffer.limit() - offset - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        byte[] data = new byte[length];
+        buffer.get(offset + RECORD_HEADER_SIZE, data);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return buffer.getInt(offset + Integer.BYTES) == (int) crc.getValue() ? offset + RECORD_HEADER_SIZE + length
+                : -1;
+    }
+
+    /**
+     * @return a buffer holding the records of the segment, the segment being written ends at its last record
+     */
+    private ByteBuffer segmentBuffer(long segment) throws IOException {
+        if (segment == writeSegment) {
+            return writeBuffer.duplicate().flip();
+        }
+        ByteBuffer buffer = readBuffer;
+        if (buffer == null || readBufferSegment != segment) {
+            try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (NoSuchFileException e) {
+                buffer = ByteBuffer.allocate(0);
+            }
+            readBuffer = buffer;
+            readBufferSegment = segment;
+        }
+        return buffer;
+    }
+
+    private long nextSegment(long segment) throws IOException {
+        return listSegments().stream().filter(s -> s > segment).findFirst().orElse(writeSegment);
+    }
+
+    private MappedByteBuffer map(long segment, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%019d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                        } catch (NumberFormatException e) {
+                            logger.debug("Ignoring unexpected file {} in journal {}", name, directory);
+                        }
+                    });
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private void deleteSegmentsBefore(long segment) throws IOException {
+        if (readBufferSegment < segment) {
+            readBuffer = null;
+            readBufferSegment = -1;
+        }
+        for (long s : listSegments()) {
+            if (s < segment) {
+                try {
+                    Files.deleteIfExists(segmentPath(s));
+                } catch (IOException e) {
+                    // e.g. still mapped on Windows, retried with the next compaction
+                    logger.debug("Failed to delete journal segment {}: {}", segmentPath(s), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private boolean readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+        if (buffer.remaining() != CHECKPOINT_SIZE) {
+            logger.warn("Ignoring invalid checkpoint of journal {}, replaying all values.", directory);
+            return false;
+        }
+        long segment = buffer.getLong();
+        int offset = buffer.getInt();
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, CHECKPOINT_SIZE - Integer.BYTES);
+        if (buffer.getInt() != (int) crc.getValue() || segment < 0 || offset < 0) {
+            logger.warn("Ignoring invalid checkpoint of journal {}, replaying all values.", directory);
+            return false;
+        }
+        readSegment = segment;
+        readOffset = offset;
+        return true;
+    }
+
+    private void writeCheckpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_SIZE);
+        buffer.putLong(readSegment).putInt(readOffset);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, CHECKPOINT_SIZE - Integer.BYTES);
+        buffer.putInt((int) crc.getValue()).flip();
+
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class Batch<T> {
+        private final List<T> values = new ArrayList<>();
+        private long segment;
+        private int offset;
+        private int records;
+        private long bytes;
+
+        private Batch(long segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.journal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class PersistenceJournalTest {
+    private static final JournalCodec<String> CODEC = new JournalCodec<>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] record) {
+            return new String(record, StandardCharsets.UTF_8);
+        }
+    };
+
+    private @TempDir @NonNullByDefault({}) Path directory;
+
+    private static List<String> replayAll(PersistenceJournal<String> journal) throws IOException {
+        List<String> replayed = new ArrayList<>();
+        journal.replay(2, replayed::addAll);
+        return replayed;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).count();
+        }
+    }
+
+    @Test
+    public void valuesAreReplayedInOrder() throws IOException {
+        PersistenceJournal<String> journal = new PersistenceJournal<>(directory, CODEC);
+        journal.append(List.of("a", "b", "c"));
+        journal.append(List.of("d"));
+
+        assertThat(journal.getPendingValues(), is(4L));
+        assertThat(replayAll(journal), contains("a", "b", "c", "d"));
+        assertThat(journal.isEmpty(), is(true));
+        assertThat(journal.getPendingBytes(), is(0L));
+    }
+
+    @Test
+    public void failedReplayKeepsValues() throws IOException {
+        PersistenceJournal<String> journal = new PersistenceJournal<>(directory, CODEC);
+        journal.append(List.of("a", "b", "c"));
+
+        List<String> written = new ArrayList<>();
+        int replayed = journal.replay(2, values -> written.isEmpty() && written.addAll(values));
+
+        assertThat(replayed, is(2));
+        assertThat(journal.getPendingValues(), is(1L));
+        assertThat(replayAll(journal), contains("c"));
+    }
+
+    @Test
+    public void valuesAreReplayedAfterReopening() throws IOException {
+        PersistenceJournal<String> journal = new PersistenceJournal<>(directory, CODEC);
+        journal.append(List.of("a", "b", "c"));
+        journal.replay(1, values -> values.equals(List.of("a")));
+        journal.close();
+
+        journal = new PersistenceJournal<>(directory, CODEC);
+        journal.append(List.of("d"));
+
+        assertThat(journal.getPendingValues(), is(3L));
+        assertThat(replayAll(journal), contains("b", "c", "d"));
+    }
+
+    @Test
+    public void replayedSegmentsAreDeleted() throws IOException {
+        PersistenceJournal<String> journal = new PersistenceJournal<>(directory, CODEC, 20);
+        journal.append(List.of("first value", "second value", "third value"));
+        assertThat(segmentCount(), is(3L));
+
+        assertThat(replayAll(journal), contains("first value", "second value", "third value"));
+        assertThat(segmentCount(), is(1L));
+
+        journal.close();
+        assertThat(new PersistenceJournal<>(directory, CODEC).isEmpty(), is(true));
+    }
+
+    @Test
+    public void tornRecordEndsJournal() throws IOException {
+        PersistenceJournal<String> journal = new PersistenceJournal<>(directory, CODEC);
+        journal.append(List.of("a", "b"));
+        journal.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.toString().endsWith(".journal")).findFirst().orElseThrow();
+        }
+        // the data of the second record
+        try (SeekableByteChannel channel = Files.newByteChannel(segment, StandardOpenOption.WRITE)) {
+            channel.position(17).write(ByteBuffer.wrap(new byte[] { 'x' }));
+        }
+
+        journal = new PersistenceJournal<>(directory, CODEC);
+        assertThat(journal.getPendingValues(), is(1L));
+        journal.append(List.of("c"));
+        assertThat(replayAll(journal), contains("a", "c"));
+    }
+}
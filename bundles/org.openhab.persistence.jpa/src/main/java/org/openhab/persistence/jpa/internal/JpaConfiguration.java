@@ -35,12 +35,19 @@ public class JpaConfiguration {
     private static final String CFG_USERNAME = "user";
     private static final String CFG_PASSWORD = "password";
     private static final String CFG_SYNCMAPPING = "syncmappings";
+    private static final String CFG_WRITE_BATCH_SIZE = "writeBatchSize";
+    private static final String CFG_WRITE_INTERVAL = "writeInterval";
+
+    private static final int WRITE_BATCH_SIZE_DEFAULT = 100;
+    private static final int WRITE_INTERVAL_DEFAULT = 1000;
 
     public final String dbConnectionUrl;
     public final String dbDriverClass;
     public final String dbUserName;
     public final String dbPassword;
     public final String dbSyncMapping;
+    public final int writeBatchSize;
+    public final int writeInterval;
 
     public JpaConfiguration(final Map<String, @Nullable Object> properties) throws IllegalArgumentException {
         logger.debug("Creating JPA config...");
@@ -81,6 +88,25 @@ public class JpaConfiguration {
         }
         dbSyncMapping = param == null ? "" : param;
 
+        writeBatchSize = Math.max(1, getInt(properties, CFG_WRITE_BATCH_SIZE, WRITE_BATCH_SIZE_DEFAULT));
+        writeInterval = Math.max(0, getInt(properties, CFG_WRITE_INTERVAL, WRITE_INTERVAL_DEFAULT));
+        logger.debug("writeBatchSize: {}, writeInterval: {}", writeBatchSize, writeInterval);
+
         logger.debug("Creating JPA config... done");
     }
+
+    private static int getInt(Map<String, @Nullable Object> properties, String key, int defaultValue)
+            throws IllegalArgumentException {
+        Object param = properties.get(key);
+        if (param == null) {
+            return defaultValue;
+        } else if (param instanceof Number number) {
+            return number.intValue();
+        }
+        try {
+            return Integer.parseInt(param.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + key + " in JPA configuration: " + param);
+        }
+    }
 }
@@ -12,12 +12,19 @@
  */
 package org.openhab.persistence.jpa.internal;
 
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.EntityExistsException;
 import javax.persistence.EntityManager;
@@ -27,6 +34,7 @@ import javax.persistence.Query;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.ThreadPoolManager;
 import org.openhab.core.config.core.ConfigurableService;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -65,8 +73,12 @@ public class JpaPersistenceService implements QueryablePersistenceService {
     private static final String SERVICE_LABEL = "JPA";
     protected static final String CONFIG_URI = "persistence:jpa";
 
+    private static final int PAGE_CURSOR_CAPACITY = 256;
+
     private final Logger logger = LoggerFactory.getLogger(JpaPersistenceService.class);
 
+    private final ScheduledExecutorService scheduler = ThreadPoolManager.getScheduledPool(getClass().getSimpleName());
+
     private final ItemRegistry itemRegistry;
 
     private @Nullable EntityManagerFactory emf;
@@ -75,6 +87,27 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 
     private boolean initialized;
 
+    /**
+     * items waiting to be persisted in one transaction
+     */
+    private final List<JpaPersistentItem> pendingItems = new ArrayList<>();
+    private @Nullable ScheduledFuture<?> flushJob;
+    private final Object flushLock = new Object();
+
+    /**
+     * the position after the last returned page of recent queries, so the following page can be read from the
+     * timestamp it starts at instead of skipping all previous rows
+     */
+    private final Map<PageKey, PageCursor> pageCursors = Collections
+            .synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.@Nullable Entry<PageKey, PageCursor> eldest) {
+                    return size() > PAGE_CURSOR_CAPACITY;
+                }
+            });
+
     @Activate
     public JpaPersistenceService(BundleContext context, Map<String, @Nullable Object> properties,
             final @Reference ItemRegistry itemRegistry) {
@@ -108,6 +141,9 @@ public class JpaPersistenceService implements QueryablePersistenceService {
     @Deactivate
     public void deactivate() {
         logger.debug("Deactivating JPA persistence service");
+        if (initialized) {
+            flush();
+        }
         closeEntityManagerFactory();
     }
 
@@ -156,28 +192,99 @@ public class JpaPersistenceService implements QueryablePersistenceService {
         pItem.setRealName(item.getName());
         pItem.setTimestamp(new Date());
 
+        if (config.writeBatchSize > 1) {
+            addPendingItem(pItem);
+        } else {
+            persist(List.of(pItem));
+        }
+
+        logger.debug("Storing item...done");
+    }
+
+    /**
+     * Queues an item, it is persisted when the batch is full or the write interval has passed.
+     */
+    private void addPendingItem(JpaPersistentItem pItem) {
+        synchronized (pendingItems) {
+            pendingItems.add(pItem);
+            if (pendingItems.size() >= config.writeBatchSize) {
+                cancelFlushJob();
+                flushJob = scheduler.schedule(this::flush, 0, TimeUnit.MILLISECONDS);
+            } else if (flushJob == null) {
+                flushJob = scheduler.schedule(this::flush, config.writeInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void cancelFlushJob() {
+        ScheduledFuture<?> job = flushJob;
+        if (job != null) {
+            job.cancel(false);
+            flushJob = null;
+        }
+    }
+
+    /**
+     * Persists all queued items.
+     */
+    private void flush() {
+        synchronized (flushLock) {
+            List<JpaPersistentItem> items;
+            synchronized (pendingItems) {
+                cancelFlushJob();
+                if (pendingItems.isEmpty()) {
+                    return;
+                }
+                items = new ArrayList<>(pendingItems);
+                pendingItems.clear();
+            }
+            persist(items);
+        }
+    }
+
+    /**
+     * Persists the items in one transaction, so the provider can send them in JDBC batches. If the transaction
+     * fails, the items are persisted one by one, so a single failing item does not discard the others.
+     */
+    private void persist(List<JpaPersistentItem> items) {
         EntityManager em = getEntityManagerFactory().createEntityManager();
         try {
-            logger.debug("Persisting item...");
+            logger.debug("Persisting {} items...", items.size());
             // In RESOURCE_LOCAL calls to EntityManager require a begin/commit
             em.getTransaction().begin();
-            em.persist(pItem);
+            for (JpaPersistentItem pItem : items) {
+                em.persist(pItem);
+            }
             em.getTransaction().commit();
-            logger.debug("Persisting item...done");
+            logger.debug("Persisting {} items...done", items.size());
         } catch (Exception e) {
-            if (e.getCause() instanceof EntityExistsException) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            if (items.size() > 1) {
+                logger.debug("Failed to persist {} items in one transaction, persisting them one by one: {}",
+                        items.size(), e.getMessage());
+                // the rolled back entities may keep their generated ids, so persist copies
+                items.forEach(pItem -> persist(List.of(copy(pItem))));
+            } else if (e.getCause() instanceof EntityExistsException) {
                 // there's a UNIQUE constraint in the database, and we tried to write
                 // a duplicate timestamp. Just ignore
-                logger.debug("Failed to persist item {} because of duplicate timestamp", name);
+                logger.debug("Failed to persist item {} because of duplicate timestamp", items.get(0).getName());
             } else {
                 logger.error("Error while persisting item! Rolling back!", e);
             }
-            em.getTransaction().rollback();
         } finally {
             em.close();
         }
+    }
 
-        logger.debug("Storing item...done");
+    private static JpaPersistentItem copy(JpaPersistentItem pItem) {
+        JpaPersistentItem copy = new JpaPersistentItem();
+        copy.setName(pItem.getName());
+        copy.setRealName(pItem.getRealName());
+        copy.setTimestamp(Date.from(pItem.getTimestamp().toInstant()));
+        copy.setValue(pItem.getValue());
+        return copy;
     }
 
     @Override
@@ -205,6 +312,11 @@ public class JpaPersistenceService implements QueryablePersistenceService {
             return List.of();
         }
 
+        flush();
+
+        // continue after the previous page if it has been read, otherwise skip the previous pages
+        PageCursor pageCursor = filter.getPageNumber() > 0 ? pageCursors.get(new PageKey(filter)) : null;
+
         String sortOrder;
         if (filter.getOrdering() == Ordering.ASCENDING) {
             sortOrder = "ASC";
@@ -224,6 +336,10 @@ public class JpaPersistenceService implements QueryablePersistenceService {
             queryString += " AND n.timestamp <= :endDate";
             hasEndDate = true;
         }
+        if (pageCursor != null) {
+            queryString += filter.getOrdering() == Ordering.ASCENDING ? " AND n.timestamp >= :pageStart"
+                    : " AND n.timestamp <= :pageStart";
+        }
         queryString += " ORDER BY n.timestamp " + sortOrder;
 
         logger.debug("The query: {}", queryString);
@@ -243,7 +359,14 @@ public class JpaPersistenceService implements QueryablePersistenceService {
                 query.setParameter("endDate", Date.from(filter.getEndDate().toInstant()));
             }
 
-            query.setFirstResult(filter.getPageNumber() * filter.getPageSize());
+            int firstResult;
+            if (pageCursor != null) {
+                query.setParameter("pageStart", pageCursor.timestamp());
+                firstResult = pageCursor.skip();
+            } else {
+                firstResult = (int) Math.min(Integer.MAX_VALUE, (long) filter.getPageNumber() * filter.getPageSize());
+            }
+            query.setFirstResult(firstResult);
             query.setMaxResults(filter.getPageSize());
             logger.debug("Creating query...done");
 
@@ -252,6 +375,8 @@ public class JpaPersistenceService implements QueryablePersistenceService {
             List<JpaPersistentItem> result = query.getResultList();
             logger.debug("Retrieving result list...done");
 
+            rememberNextPage(filter, pageCursor, firstResult, result);
+
             List<HistoricItem> historicList = JpaHistoricItem.fromResultList(result, item);
             logger.debug("Convert to HistoricItem: {}", historicList.size());
 
@@ -268,6 +393,33 @@ public class JpaPersistenceService implements QueryablePersistenceService {
         return List.of();
     }
 
+    /**
+     * Remembers where the page following a full page starts. Rows with the last timestamp of the page have to be
+     * skipped by the next page, which is only known if all of them have been read.
+     */
+    private void rememberNextPage(FilterCriteria filter, @Nullable PageCursor pageCursor, int firstResult,
+            List<JpaPersistentItem> result) {
+        if (result.isEmpty() || result.size() != filter.getPageSize()) {
+            return;
+        }
+        ZonedDateTime lastTimestamp = result.get(result.size() - 1).getTimestamp();
+        int lastTimestampCount = 0;
+        for (int i = result.size() - 1; i >= 0 && result.get(i).getTimestamp().equals(lastTimestamp); i--) {
+            lastTimestampCount++;
+        }
+        Date last = Date.from(lastTimestamp.toInstant());
+
+        int nextSkip = -1;
+        if (lastTimestampCount < result.size() || (pageCursor == null && firstResult == 0)) {
+            nextSkip = lastTimestampCount;
+        } else if (pageCursor != null && pageCursor.timestamp().equals(last)) {
+            nextSkip = firstResult + lastTimestampCount;
+        }
+        if (nextSkip >= 0) {
+            pageCursors.put(new PageKey(filter, filter.getPageNumber() + 1), new PageCursor(last, nextSkip));
+        }
+    }
+
     /**
      * Creates a new EntityManagerFactory with properties read from openhab.cfg via JpaConfiguration.
      *
@@ -292,6 +444,8 @@ public class JpaPersistenceService implements QueryablePersistenceService {
             logger.info("You are setting openjpa.jdbc.SynchronizeMappings, I hope you know what you're doing!");
             properties.put("openjpa.jdbc.SynchronizeMappings", config.dbSyncMapping);
         }
+        // send the inserts of a transaction in JDBC batches
+        properties.put("openjpa.jdbc.DBDictionary", "batchLimit=" + config.writeBatchSize);
 
         EntityManagerFactory factory = Persistence.createEntityManagerFactory(getPersistenceUnitName(), properties);
         logger.debug("Creating EntityManagerFactory...done");
@@ -347,4 +501,27 @@ public class JpaPersistenceService implements QueryablePersistenceService {
     public List<PersistenceStrategy> getDefaultStrategies() {
         return List.of();
     }
+
+    /**
+     * Identifies a page of a query.
+     */
+    private record PageKey(@Nullable String itemName, @Nullable ZonedDateTime beginDate,
+            @Nullable ZonedDateTime endDate, Ordering ordering, int pageSize, int pageNumber) {
+
+        PageKey(FilterCriteria filter) {
+            this(filter, filter.getPageNumber());
+        }
+
+        PageKey(FilterCriteria filter, int pageNumber) {
+            this(filter.getItemName(), filter.getBeginDate(), filter.getEndDate(), filter.getOrdering(),
+                    filter.getPageSize(), pageNumber);
+        }
+    }
+
+    /**
+     * The position a page starts at: the timestamp of its first row and the number of rows with this timestamp
+     * belonging to previous pages.
+     */
+    private record PageCursor(Date timestamp, int skip) {
+    }
 }
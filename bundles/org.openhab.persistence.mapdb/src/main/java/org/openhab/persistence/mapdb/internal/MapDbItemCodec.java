@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.TypeParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary encoding of the timestamp and state of a {@link MapDbItem}. The name is not encoded, it is the key of the
+ * record.
+ * <br>
+ * A record consists of the format version, the timestamp in milliseconds and a tag identifying the type of the
+ * state, followed by the value. The most common states are encoded without their class name and string
+ * representation, all others like the {@link StateTypeAdapter} does.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbItemCodec {
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte TAG_GENERIC = 0;
+    private static final byte TAG_ON = 1;
+    private static final byte TAG_OFF = 2;
+    private static final byte TAG_OPEN = 3;
+    private static final byte TAG_CLOSED = 4;
+    private static final byte TAG_DECIMAL = 5;
+    private static final byte TAG_PERCENT = 6;
+    private static final byte TAG_QUANTITY = 7;
+    private static final byte TAG_STRING = 8;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MapDbItemCodec.class);
+
+    private MapDbItemCodec() {
+        // prevent instantiation
+    }
+
+    public static byte[] encode(MapDbItem item) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(item.getTimestamp().toInstant().toEpochMilli());
+            State state = item.getState();
+            if (state == OnOffType.ON) {
+                out.writeByte(TAG_ON);
+            } else if (state == OnOffType.OFF) {
+                out.writeByte(TAG_OFF);
+            } else if (state == OpenClosedType.OPEN) {
+                out.writeByte(TAG_OPEN);
+            } else if (state == OpenClosedType.CLOSED) {
+                out.writeByte(TAG_CLOSED);
+            } else if (state.getClass() == DecimalType.class) {
+                out.writeByte(TAG_DECIMAL);
+                writeDecimal(out, ((DecimalType) state).toBigDecimal());
+            } else if (state.getClass() == PercentType.class) {
+                out.writeByte(TAG_PERCENT);
+                writeDecimal(out, ((PercentType) state).toBigDecimal());
+            } else if (state.getClass() == QuantityType.class) {
+                out.writeByte(TAG_QUANTITY);
+                writeString(out, state.toFullString());
+            } else if (state.getClass() == StringType.class) {
+                out.writeByte(TAG_STRING);
+                writeString(out, state.toFullString());
+            } else {
+                out.writeByte(TAG_GENERIC);
+                writeString(out, state.getClass().getName());
+                writeString(out, state.toFullString());
+            }
+        } catch (IOException e) {
+            // cannot happen when writing to memory
+            throw new IllegalStateException("Failed to encode " + item, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the timestamp of the record in milliseconds since epoch, without decoding the state
+     */
+    public static long decodeTimestamp(byte[] record) {
+        if (record.length <= Long.BYTES) {
+            return 0;
+        }
+        long timestamp = 0;
+        for (int i = 1; i <= Long.BYTES; i++) {
+            timestamp = (timestamp << 8) | (record[i] & 0xff);
+        }
+        return timestamp;
+    }
+
+    /**
+     * @param name the name of the item
+     * @param record the encoded record
+     * @return the decoded item or null if the record cannot be decoded
+     */
+    public static @Nullable MapDbItem decode(String name, byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                LOGGER.warn("Couldn't decode state of '{}': unknown format version {}", name, version);
+                return null;
+            }
+            long timestamp = in.readLong();
+            State state = readState(in);
+            if (state == null) {
+                LOGGER.warn("Couldn't decode state of '{}'", name);
+                return null;
+            }
+            MapDbItem item = new MapDbItem();
+            item.setName(name);
+            item.setState(state);
+            item.setTimestamp(new Date(timestamp));
+            return item;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Couldn't decode state of '{}': {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private static @Nullable State readState(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_ON:
+                return OnOffType.ON;
+            case TAG_OFF:
+                return OnOffType.OFF;
+            case TAG_OPEN:
+                return OpenClosedType.OPEN;
+            case TAG_CLOSED:
+                return OpenClosedType.CLOSED;
+            case TAG_DECIMAL:
+                return new DecimalType(readDecimal(in));
+            case TAG_PERCENT:
+                return new PercentType(readDecimal(in));
+            case TAG_QUANTITY:
+                return new QuantityType<>(readString(in));
+            case TAG_STRING:
+                return new StringType(readString(in));
+            case TAG_GENERIC:
+                String valueTypeName = readString(in);
+                String valueAsString = readString(in);
+                try {
+                    @SuppressWarnings("unchecked")
+                    Class<? extends State> valueType = (Class<? extends State>) Class.forName(valueTypeName);
+                    return TypeParser.parseState(List.of(valueType), valueAsString);
+                } catch (ClassNotFoundException e) {
+                    LOGGER.warn("Couldn't decode state '{}': unknown type {}", valueAsString, valueTypeName);
+                    return null;
+                }
+            default:
+                LOGGER.warn("Couldn't decode state: unknown type tag {}", tag);
+                return null;
+        }
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(value.scale());
+        out.writeInt(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readInt()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -24,14 +24,18 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
 import org.openhab.core.OpenHAB;
 import org.openhab.core.common.ThreadPoolManager;
 import org.openhab.core.items.Item;
@@ -68,17 +72,35 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
     private static final Path DB_DIR = new File(OpenHAB.getUserDataFolder(), "persistence").toPath().resolve("mapdb");
     private static final Path BACKUP_DIR = DB_DIR.resolve("backup");
     private static final String DB_FILE_NAME = "storage.mapdb";
+    private static final String MAP_NAME = "itemStates";
+    // states stored as JSON by previous versions, converted to MAP_NAME on activation
+    private static final String LEGACY_MAP_NAME = "itemStore";
+
+    // changes are committed together, at the latest after this delay or when this many changes are pending
+    private static final long COMMIT_DELAY_MS = 1000;
+    private static final int COMMIT_BATCH_SIZE = 500;
 
     private final Logger logger = LoggerFactory.getLogger(MapDbPersistenceService.class);
 
-    private final ExecutorService threadPool = ThreadPoolManager.getPool(getClass().getSimpleName());
+    private final ScheduledExecutorService threadPool = ThreadPoolManager
+            .getScheduledPool(getClass().getSimpleName());
 
     /**
      * holds the local instance of the MapDB database
      */
 
     private @NonNullByDefault({}) DB db;
-    private @NonNullByDefault({}) Map<String, String> map;
+    private @NonNullByDefault({}) Map<String, byte[]> map;
+
+    /**
+     * the names of the stored items and the timestamps of their states, so the item infos are available without
+     * reading the database
+     */
+    private final Map<String, Date> index = new ConcurrentHashMap<>();
+
+    private final AtomicInteger uncommitted = new AtomicInteger();
+    private final Object commitLock = new Object();
+    private @Nullable ScheduledFuture<?> commitJob;
 
     private transient Gson mapper = new GsonBuilder().registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
             .create();
@@ -97,8 +119,7 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
         File dbFile = DB_DIR.resolve(DB_FILE_NAME).toFile();
         try {
-            db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
-            map = db.createTreeMap("itemStore").makeOrGet();
+            openDatabase(dbFile);
         } catch (RuntimeException re) {
             Throwable cause = re.getCause();
             if (cause instanceof ClassNotFoundException cnf) {
@@ -129,8 +150,7 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
                     return;
                 }
 
-                db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
-                map = db.createTreeMap("itemStore").makeOrGet();
+                openDatabase(dbFile);
             } else {
                 logger.warn("Failed to create or open the MapDB: {}", re.getMessage());
                 logger.warn("MapDB persistence service activation has failed.");
@@ -139,10 +159,36 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         logger.debug("MapDB persistence service is now activated");
     }
 
+    private void openDatabase(File dbFile) {
+        db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
+        map = db.createTreeMap(MAP_NAME).valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+        if (db.exists(LEGACY_MAP_NAME)) {
+            convertLegacyMap();
+        }
+        index.clear();
+        map.forEach((name, record) -> index.put(name, new Date(MapDbItemCodec.decodeTimestamp(record))));
+    }
+
+    private void convertLegacyMap() {
+        Map<String, String> legacyMap = db.getTreeMap(LEGACY_MAP_NAME);
+        int converted = 0;
+        for (Map.Entry<String, String> entry : legacyMap.entrySet()) {
+            Optional<MapDbItem> item = deserialize(entry.getValue());
+            if (item.isPresent() && !map.containsKey(entry.getKey())) {
+                map.put(entry.getKey(), MapDbItemCodec.encode(item.get()));
+                converted++;
+            }
+        }
+        db.delete(LEGACY_MAP_NAME);
+        db.commit();
+        logger.info("Converted {} stored states to the binary format", converted);
+    }
+
     @Deactivate
     public void deactivate() {
         logger.debug("MapDB persistence service deactivated");
         if (db != null) {
+            commit();
             db.close();
         }
     }
@@ -159,8 +205,12 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     @Override
     public Set<PersistenceItemInfo> getItemInfo() {
-        return map.values().stream().map(this::deserialize).flatMap(MapDbPersistenceService::streamOptional)
-                .collect(Collectors.<PersistenceItemInfo> toUnmodifiableSet());
+        return index.entrySet().stream().map(entry -> {
+            MapDbItem item = new MapDbItem();
+            item.setName(entry.getKey());
+            item.setTimestamp(entry.getValue());
+            return item;
+        }).collect(Collectors.<PersistenceItemInfo> toUnmodifiableSet());
     }
 
     @Override
@@ -184,25 +234,56 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         mItem.setState(state);
         mItem.setTimestamp(new Date());
         threadPool.submit(() -> {
-            String json = serialize(mItem);
-            map.put(localAlias, json);
-            db.commit();
-            logger.debug("Stored '{}' with state '{}' as '{}' in MapDB database", localAlias, state, json);
+            map.put(localAlias, MapDbItemCodec.encode(mItem));
+            index.put(localAlias, mItem.getTimestampDate());
+            logger.debug("Stored '{}' with state '{}' in MapDB database", localAlias, state);
+            scheduleCommit();
         });
     }
 
+    private void scheduleCommit() {
+        if (uncommitted.incrementAndGet() >= COMMIT_BATCH_SIZE) {
+            commit();
+            return;
+        }
+        synchronized (commitLock) {
+            if (commitJob == null) {
+                commitJob = threadPool.schedule(this::commit, COMMIT_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Commits all pending changes in one transaction.
+     */
+    private void commit() {
+        synchronized (commitLock) {
+            ScheduledFuture<?> job = commitJob;
+            if (job != null) {
+                job.cancel(false);
+                commitJob = null;
+            }
+        }
+        int changes = uncommitted.getAndSet(0);
+        if (changes > 0) {
+            try {
+                db.commit();
+                logger.debug("Committed {} changes to MapDB database", changes);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to commit {} changes to MapDB database: {}", changes, e.getMessage());
+            }
+        }
+    }
+
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
-        String json = map.get(filter.getItemName());
-        if (json == null) {
+        String itemName = filter.getItemName();
+        byte[] record = itemName == null ? null : map.get(itemName);
+        if (itemName == null || record == null) {
             return List.of();
         }
-        Optional<MapDbItem> item = deserialize(json);
-        return item.isPresent() ? List.of(item.get()) : List.of();
-    }
-
-    private String serialize(MapDbItem item) {
-        return mapper.toJson(item);
+        MapDbItem item = MapDbItemCodec.decode(itemName, record);
+        return item != null ? List.of(item) : List.of();
     }
 
     @SuppressWarnings("null")
@@ -218,10 +299,6 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         return Optional.of(item);
     }
 
-    private static <T> Stream<T> streamOptional(Optional<T> opt) {
-        return opt.isPresent() ? Stream.of(opt.get()) : Stream.empty();
-    }
-
     @Override
     public List<PersistenceStrategy> getDefaultStrategies() {
         return List.of(PersistenceStrategy.Globals.RESTORE, PersistenceStrategy.Globals.CHANGE);
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.unit.SIUnits;
+import org.openhab.core.library.unit.Units;
+import org.openhab.core.types.State;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbItemCodec;
+
+/**
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbItemCodecTest {
+
+    private static final List<State> VALUES = List.of(OnOffType.ON, OnOffType.OFF, OpenClosedType.OPEN,
+            OpenClosedType.CLOSED, DecimalType.ZERO, new DecimalType(1.123), new DecimalType(-10000000),
+            new DecimalType(new BigDecimal("123456789012345678901234567890.123456789")), PercentType.ZERO,
+            PercentType.HUNDRED, PercentType.valueOf("99.999"), QuantityType.valueOf("1 kW"),
+            QuantityType.valueOf(20, Units.AMPERE), new QuantityType<>(new BigDecimal("21.23"), SIUnits.CELSIUS),
+            StringType.valueOf(""), StringType.valueOf("äöü @@@ 1 2 3"), HSBType.fromRGB(11, 22, 33));
+
+    private static MapDbItem createItem(State state, long timestamp) {
+        MapDbItem item = new MapDbItem();
+        item.setName("test");
+        item.setState(state);
+        item.setTimestamp(new Date(timestamp));
+        return item;
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void encodeDecodeRoundtripShouldRecreateTheEncodedItem(State state) {
+        byte[] record = MapDbItemCodec.encode(createItem(state, 1700000000123L));
+        MapDbItem actual = Objects.requireNonNull(MapDbItemCodec.decode("test", record));
+
+        assertThat(actual.getName(), is("test"));
+        assertThat(actual.getState(), is(equalTo(state)));
+        assertThat(actual.getTimestampDate().getTime(), is(1700000000123L));
+    }
+
+    public static Stream<State> encodeDecodeRoundtripShouldRecreateTheEncodedItem() {
+        return VALUES.stream();
+    }
+
+    @Test
+    public void timestampIsDecodedWithoutState() {
+        byte[] record = MapDbItemCodec.encode(createItem(OnOffType.ON, 1234567890123L));
+
+        assertThat(MapDbItemCodec.decodeTimestamp(record), is(1234567890123L));
+    }
+
+    @Test
+    public void invalidRecordIsNotDecoded() {
+        assertThat(MapDbItemCodec.decode("test", new byte[] { 1, 2, 3 }), is(nullValue()));
+        assertThat(MapDbItemCodec.decode("test", new byte[] { 42, 0, 0, 0, 0, 0, 0, 0, 0, 1 }), is(nullValue()));
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mongodb.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.bson.BsonInvalidOperationException;
+import org.bson.ByteBuf;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.persistence.journal.JournalCodec;
+
+/**
+ * Stores documents in the journal as the name of their collection followed by their BSON representation. The id of
+ * a document is kept, so a document that is written twice is rejected as a duplicate.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+class MongoDBJournalCodec implements JournalCodec<Entry<String, Document>> {
+    private final DocumentCodec documentCodec = new DocumentCodec();
+
+    @Override
+    public byte[] encode(Entry<String, Document> value) throws IOException {
+        ByteBuf bson = new RawBsonDocument(value.getValue(), documentCodec).getByteBuffer();
+        byte[] document = new byte[bson.remaining()];
+        bson.get(document);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(value.getKey());
+            out.write(document);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Entry<String, Document> decode(byte[] record) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            String collectionName = in.readUTF();
+            byte[] document = in.readAllBytes();
+            return Map.entry(collectionName, new RawBsonDocument(document).decode(documentCodec));
+        } catch (BsonInvalidOperationException | IllegalArgumentException e) {
+            throw new IOException("Invalid document", e);
+        }
+    }
+}
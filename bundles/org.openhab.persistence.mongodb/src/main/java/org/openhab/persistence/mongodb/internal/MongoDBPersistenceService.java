@@ -12,26 +12,37 @@
  */
 package org.openhab.persistence.mongodb.internal;
 
+import java.io.IOException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.ThreadPoolManager;
+import org.openhab.core.config.core.ConfigParser;
+import org.openhab.core.io.monitor.MeterRegistryProvider;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.library.items.NumberItem;
 import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.types.RawType;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Operator;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.ModifiablePersistenceService;
@@ -41,21 +52,31 @@ import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.strategy.PersistenceStrategy;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
+import org.openhab.persistence.journal.PersistenceJournal;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ConfigurationPolicy;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.InsertManyOptions;
 import com.mongodb.client.result.DeleteResult;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * This is the implementation of the MongoDB {@link PersistenceService}.
  *
@@ -68,15 +89,54 @@ import com.mongodb.client.result.DeleteResult;
         ModifiablePersistenceService.class }, configurationPid = "org.openhab.mongodb", configurationPolicy = ConfigurationPolicy.REQUIRE)
 public class MongoDBPersistenceService implements ModifiablePersistenceService {
 
+    private static final int WRITE_BATCH_SIZE_DEFAULT = 100;
+    private static final int WRITE_INTERVAL_DEFAULT = 1000;
+    private static final int PAGE_CURSOR_CAPACITY = 256;
+    private static final String METER_PREFIX = "openhab.persistence.mongodb.";
+
     private final Logger logger = LoggerFactory.getLogger(MongoDBPersistenceService.class);
 
+    private final ScheduledExecutorService scheduler = ThreadPoolManager.getScheduledPool(getClass().getSimpleName());
+
     private String url = "";
     private String db = "";
     private String collection = "";
     private boolean collectionPerItem;
+    private int writeBatchSize = WRITE_BATCH_SIZE_DEFAULT;
+    private int writeInterval = WRITE_INTERVAL_DEFAULT;
 
     private boolean initialized = false;
 
+    /**
+     * documents waiting to be written, by collection name
+     */
+    private final Map<String, List<Document>> pendingDocuments = new LinkedHashMap<>();
+    private int pendingCount;
+    private @Nullable ScheduledFuture<?> flushJob;
+    private final Object flushLock = new Object();
+
+    /**
+     * documents that could not be written, with the name of their collection, if enabled
+     */
+    private volatile @Nullable PersistenceJournal<Entry<String, Document>> journal;
+
+    private final List<Meter> meters = new ArrayList<>();
+    private @Nullable MeterRegistry meterRegistry;
+
+    /**
+     * the position after the last returned page of recent queries, so the following page can be read from the index
+     * instead of skipping all previous documents
+     */
+    private final Map<PageKey, PageCursor> pageCursors = Collections
+            .synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.@Nullable Entry<PageKey, PageCursor> eldest) {
+                    return size() > PAGE_CURSOR_CAPACITY;
+                }
+            });
+
     protected final ItemRegistry itemRegistry;
 
     private @Nullable MongoClient cl;
@@ -86,6 +146,34 @@ public class MongoDBPersistenceService implements ModifiablePersistenceService {
         this.itemRegistry = itemRegistry;
     }
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    public void setMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getOHMeterRegistry();
+        synchronized (meters) {
+            removeMeters();
+            this.meterRegistry = meterRegistry;
+            meters.add(Gauge.builder(METER_PREFIX + "journal.values", this, s -> s.getJournaledValues())
+                    .register(meterRegistry));
+            meters.add(Gauge.builder(METER_PREFIX + "journal.bytes", this, s -> s.getJournaledBytes())
+                    .baseUnit("bytes").register(meterRegistry));
+        }
+    }
+
+    public void unsetMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        synchronized (meters) {
+            removeMeters();
+        }
+    }
+
+    private void removeMeters() {
+        MeterRegistry meterRegistry = this.meterRegistry;
+        if (meterRegistry != null) {
+            meters.forEach(meterRegistry::remove);
+        }
+        meters.clear();
+        this.meterRegistry = null;
+    }
+
     @Activate
     public void activate(final BundleContext bundleContext, final Map<String, Object> config) {
         @Nullable
@@ -112,6 +200,20 @@ public class MongoDBPersistenceService implements ModifiablePersistenceService {
         collection = dbCollection == null ? "" : dbCollection;
         collectionPerItem = dbCollection == null || dbCollection.isBlank();
 
+        writeBatchSize = ConfigParser.valueAsOrElse(config.get("writeBatchSize"), Integer.class,
+                WRITE_BATCH_SIZE_DEFAULT);
+        writeInterval = ConfigParser.valueAsOrElse(config.get("writeInterval"), Integer.class, WRITE_INTERVAL_DEFAULT);
+        logger.debug("MongoDB write batch size {}, write interval {} ms", writeBatchSize, writeInterval);
+
+        if (ConfigParser.valueAsOrElse(config.get("journal"), Boolean.class, false)) {
+            try {
+                journal = new PersistenceJournal<>(PersistenceJournal.getDefaultDirectory(getId()),
+                        new MongoDBJournalCodec());
+            } catch (IOException e) {
+                logger.warn("Failed to open the journal: {}", e.getMessage());
+            }
+        }
+
         if (!tryConnectToDatabase()) {
             logger.warn("Failed to connect to MongoDB server. Trying to reconnect later.");
         }
@@ -122,6 +224,12 @@ public class MongoDBPersistenceService implements ModifiablePersistenceService {
     @Deactivate
     public void deactivate(final int reason) {
         logger.debug("MongoDB persistence bundle stopping. Disconnecting from database.");
+        flush();
+        PersistenceJournal<Entry<String, Document>> journal = this.journal;
+        if (journal != null) {
+            journal.close();
+            this.journal = null;
+        }
         disconnectFromDatabase();
     }
 
@@ -246,6 +354,8 @@ public class MongoDBPersistenceService implements ModifiablePersistenceService {
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
+        flush();
+
         MongoCollection<Document> collection = prepareCollection(filter);
         // If collection creation failed, return nothing.
         if (collection == null) {
@@ -272,25 +382,63 @@ public class MongoDBPersistenceService implements ModifiablePersistenceService {
         }
         List<HistoricItem> items = new ArrayList<>();
 
-        logger.debug("Query: {}", query);
+        boolean ascending = filter.getOrdering() == Ordering.ASCENDING;
+        int pageSize = filter.getPageSize();
+
+        // continue after the previous page if it has been read, otherwise skip the previous pages
+        PageCursor pageCursor = filter.getPageNumber() > 0 ? pageCursors.get(new PageKey(filter)) : null;
+        Date startTimestamp = null;
+        int skip;
+        if (pageCursor != null) {
+            startTimestamp = pageCursor.timestamp();
+            Document timestampQuery = new Document();
+            Object dateQueries = query.get(MongoDBFields.FIELD_TIMESTAMP);
+            if (dateQueries instanceof Document dateDocument) {
+                timestampQuery.putAll(dateDocument);
+            }
+            timestampQuery.put(ascending ? "$gte" : "$lte", startTimestamp);
+            query.put(MongoDBFields.FIELD_TIMESTAMP, timestampQuery);
+            skip = pageCursor.skip();
+        } else {
+            skip = (int) Math.min(Integer.MAX_VALUE, (long) filter.getPageNumber() * pageSize);
+        }
 
-        Integer sortDir = (filter.getOrdering() == Ordering.ASCENDING) ? 1 : -1;
-        MongoCursor<Document> cursor = null;
-        try {
-            cursor = collection.find(query).sort(new Document(MongoDBFields.FIELD_TIMESTAMP, sortDir))
-                    .skip(filter.getPageNumber() * filter.getPageSize()).limit(filter.getPageSize()).iterator();
+        logger.debug("Query: {}, skip {}", query, skip);
 
+        Date lastTimestamp = null;
+        int lastTimestampCount = 0;
+        try (MongoCursor<Document> cursor = collection.find(query)
+                .sort(new Document(MongoDBFields.FIELD_TIMESTAMP, ascending ? 1 : -1)).skip(skip).limit(pageSize)
+                .iterator()) {
             while (cursor.hasNext()) {
                 Document obj = cursor.next();
 
                 final State state = MongoDBTypeConversions.getStateFromDocument(item, obj);
+                Date timestamp = obj.getDate(MongoDBFields.FIELD_TIMESTAMP);
+                if (timestamp.equals(lastTimestamp)) {
+                    lastTimestampCount++;
+                } else {
+                    lastTimestamp = timestamp;
+                    lastTimestampCount = 1;
+                }
+
+                items.add(new MongoDBItem(realItemName, state,
+                        ZonedDateTime.ofInstant(timestamp.toInstant(), ZoneId.systemDefault())));
+            }
+        }
 
-                items.add(new MongoDBItem(realItemName, state, ZonedDateTime
-                        .ofInstant(obj.getDate(MongoDBFields.FIELD_TIMESTAMP).toInstant(), ZoneId.systemDefault())));
+        if (lastTimestamp != null && items.size() == pageSize) {
+            // documents with the last timestamp have to be skipped by the next page, which is only known if all
+            // of them have been read
+            int nextSkip = -1;
+            if (lastTimestampCount < items.size() || (startTimestamp == null && skip == 0)) {
+                nextSkip = lastTimestampCount;
+            } else if (lastTimestamp.equals(startTimestamp)) {
+                nextSkip = skip + lastTimestampCount;
             }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
+            if (nextSkip >= 0) {
+                pageCursors.put(new PageKey(filter, filter.getPageNumber() + 1),
+                        new PageCursor(lastTimestamp, nextSkip));
             }
         }
 
@@ -344,18 +492,48 @@ public class MongoDBPersistenceService implements ModifiablePersistenceService {
             return;
         }
 
+        String realItemName = item.getName();
+        String collectionName = collectionPerItem ? realItemName : this.collection;
+        String name = (alias != null) ? alias : realItemName;
+        Object value = MongoDBTypeConversions.convertValue(state);
+
+        Document obj = new Document();
+        obj.put(MongoDBFields.FIELD_ID, new ObjectId());
+        obj.put(MongoDBFields.FIELD_ITEM, name);
+        obj.put(MongoDBFields.FIELD_REALNAME, realItemName);
+        obj.put(MongoDBFields.FIELD_TIMESTAMP, date);
+        obj.put(MongoDBFields.FIELD_VALUE, value);
+        if (item instanceof NumberItem && state instanceof QuantityType<?>) {
+            obj.put(MongoDBFields.FIELD_UNIT, ((QuantityType<?>) state).getUnit().toString());
+        }
+
+        // binary data is written immediately, batching it gains nothing and a document exceeding the maximum size
+        // is reported to the caller
+        if (writeBatchSize > 1 && !(state instanceof RawType)) {
+            addPendingDocument(collectionName, obj);
+            logger.debug("MongoDB queued {}={}", name, value);
+            return;
+        }
+
+        PersistenceJournal<Entry<String, Document>> journal = this.journal;
+        if (journal != null && !journal.isEmpty()) {
+            // the journaled documents are written first
+            flush();
+        }
+
         // Connect to mongodb server if we're not already connected
         // If we can't connect, log.
         if (!tryConnectToDatabase()) {
+            if (journal != null && journalDocuments(journal, List.of(Map.entry(collectionName, obj)))) {
+                logger.debug("mongodb: No connection to database. Journaled item '{}'.", name);
+                return;
+            }
             logger.warn(
                     "mongodb: No connection to database. Cannot persist item '{}'! Will retry connecting to database next time.",
                     item);
             return;
         }
 
-        String realItemName = item.getName();
-        String collectionName = collectionPerItem ? realItemName : this.collection;
-
         @Nullable
         MongoCollection<Document> collection = connectToCollection(collectionName);
 
@@ -364,18 +542,6 @@ public class MongoDBPersistenceService implements ModifiablePersistenceService {
             return;
         }
 
-        String name = (alias != null) ? alias : realItemName;
-        Object value = MongoDBTypeConversions.convertValue(state);
-
-        Document obj = new Document();
-        obj.put(MongoDBFields.FIELD_ID, new ObjectId());
-        obj.put(MongoDBFields.FIELD_ITEM, name);
-        obj.put(MongoDBFields.FIELD_REALNAME, realItemName);
-        obj.put(MongoDBFields.FIELD_TIMESTAMP, date);
-        obj.put(MongoDBFields.FIELD_VALUE, value);
-        if (item instanceof NumberItem && state instanceof QuantityType<?>) {
-            obj.put(MongoDBFields.FIELD_UNIT, ((QuantityType<?>) state).getUnit().toString());
-        }
         try {
             collection.insertOne(obj);
         } catch (org.bson.BsonMaximumSizeExceededException e) {
@@ -385,6 +551,152 @@ public class MongoDBPersistenceService implements ModifiablePersistenceService {
         logger.debug("MongoDB save {}={}", name, value);
     }
 
+    /**
+     * Queues a document, it is written when the batch is full or the write interval has passed.
+     */
+    private void addPendingDocument(String collectionName, Document document) {
+        synchronized (pendingDocuments) {
+            pendingDocuments.computeIfAbsent(collectionName, k -> new ArrayList<>()).add(document);
+            pendingCount++;
+            if (pendingCount >= writeBatchSize) {
+                cancelFlushJob();
+                flushJob = scheduler.schedule(this::flush, 0, TimeUnit.MILLISECONDS);
+            } else if (flushJob == null) {
+                flushJob = scheduler.schedule(this::flush, writeInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void cancelFlushJob() {
+        ScheduledFuture<?> job = flushJob;
+        if (job != null) {
+            job.cancel(false);
+            flushJob = null;
+        }
+    }
+
+    /**
+     * Writes all queued documents, one unordered bulk insert per collection.
+     * <p>
+     * If the journal is enabled, the journaled documents are written first, and documents that cannot be written
+     * because there is no connection to the database are journaled. Until the journal is empty, queued documents are
+     * journaled behind the journaled ones.
+     */
+    void flush() {
+        synchronized (flushLock) {
+            PersistenceJournal<Entry<String, Document>> journal = this.journal;
+            Map<String, List<Document>> documents;
+            int count;
+            synchronized (pendingDocuments) {
+                cancelFlushJob();
+                if (pendingDocuments.isEmpty() && (journal == null || journal.isEmpty())) {
+                    return;
+                }
+                documents = new LinkedHashMap<>(pendingDocuments);
+                count = pendingCount;
+                pendingDocuments.clear();
+                pendingCount = 0;
+            }
+
+            if (!tryConnectToDatabase() || (journal != null && !replayJournal(journal))) {
+                if (journal != null && journalDocuments(journal, documents.entrySet().stream()
+                        .flatMap(e -> e.getValue().stream().map(document -> Map.entry(e.getKey(), document)))
+                        .toList())) {
+                    logger.debug("mongodb: Journaled {} values.", count);
+                    return;
+                }
+                logger.warn(
+                        "mongodb: No connection to database. Cannot persist {} values! Will retry connecting to database next time.",
+                        count);
+                return;
+            }
+
+            documents.forEach((collectionName, collectionDocuments) -> {
+                if (!insertDocuments(collectionName, collectionDocuments) && journal != null) {
+                    journalDocuments(journal,
+                            collectionDocuments.stream().map(document -> Map.entry(collectionName, document)).toList());
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the documents with one unordered bulk insert.
+     *
+     * @return <code>false</code> if the documents could not be written and should be retried
+     */
+    private boolean insertDocuments(String collectionName, List<Document> documents) {
+        @Nullable
+        MongoCollection<Document> collection = connectToCollection(collectionName);
+        if (collection == null) {
+            // Logging is done in connectToCollection()
+            return false;
+        }
+        try {
+            // unordered, so a failing document does not prevent the others from being written
+            collection.insertMany(documents, new InsertManyOptions().ordered(false));
+            logger.debug("MongoDB saved {} values to collection {}", documents.size(), collectionName);
+        } catch (MongoBulkWriteException e) {
+            // the failed documents are rejected by the database, writing them again would fail as well
+            logger.warn("Failed to save {} of {} values to collection {}: {}", e.getWriteErrors().size(),
+                    documents.size(), collectionName, e.getMessage());
+        } catch (org.bson.BsonMaximumSizeExceededException e) {
+            logger.warn("Failed to save {} values to collection {}: {}", documents.size(), collectionName,
+                    e.getMessage());
+        } catch (MongoException e) {
+            logger.warn("Failed to save {} values to collection {}: {}", documents.size(), collectionName,
+                    e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the journaled documents in batches of the write batch size.
+     *
+     * @return whether the journal is empty, so queued documents can be written directly
+     */
+    private boolean replayJournal(PersistenceJournal<Entry<String, Document>> journal) {
+        try {
+            int replayed = journal.replay(Math.max(writeBatchSize, WRITE_BATCH_SIZE_DEFAULT), values -> {
+                Map<String, List<Document>> documents = new LinkedHashMap<>();
+                values.forEach(value -> documents.computeIfAbsent(value.getKey(), k -> new ArrayList<>())
+                        .add(value.getValue()));
+                return documents.entrySet().stream().allMatch(e -> insertDocuments(e.getKey(), e.getValue()));
+            });
+            if (replayed > 0) {
+                logger.debug("MongoDB saved {} journaled values", replayed);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to read the journal: {}", e.getMessage());
+        }
+        return journal.isEmpty();
+    }
+
+    /**
+     * @return whether the documents have been journaled
+     */
+    private boolean journalDocuments(PersistenceJournal<Entry<String, Document>> journal,
+            List<Entry<String, Document>> documents) {
+        try {
+            journal.append(documents);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to journal {} values: {}", documents.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private long getJournaledValues() {
+        PersistenceJournal<Entry<String, Document>> journal = this.journal;
+        return journal == null ? 0 : journal.getPendingValues();
+    }
+
+    private long getJournaledBytes() {
+        PersistenceJournal<Entry<String, Document>> journal = this.journal;
+        return journal == null ? 0 : journal.getPendingBytes();
+    }
+
     @Nullable
     public MongoCollection<Document> prepareCollection(FilterCriteria filter) {
         if (!initialized || !tryConnectToDatabase()) {
@@ -465,6 +777,8 @@ public class MongoDBPersistenceService implements ModifiablePersistenceService {
 
     @Override
     public boolean remove(FilterCriteria filter) {
+        flush();
+
         MongoCollection<Document> collection = prepareCollection(filter);
         // If collection creation failed, return nothing.
         if (collection == null) {
@@ -484,4 +798,28 @@ public class MongoDBPersistenceService implements ModifiablePersistenceService {
         logger.debug("Deleted {} documents", result.getDeletedCount());
         return true;
     }
+
+    /**
+     * Identifies a page of a query.
+     */
+    private record PageKey(@Nullable String itemName, @Nullable ZonedDateTime beginDate,
+            @Nullable ZonedDateTime endDate, @Nullable State state, Operator operator, Ordering ordering,
+            int pageSize, int pageNumber) {
+
+        PageKey(FilterCriteria filter) {
+            this(filter, filter.getPageNumber());
+        }
+
+        PageKey(FilterCriteria filter, int pageNumber) {
+            this(filter.getItemName(), filter.getBeginDate(), filter.getEndDate(), filter.getState(),
+                    filter.getOperator(), filter.getOrdering(), filter.getPageSize(), pageNumber);
+        }
+    }
+
+    /**
+     * The position a page starts at: the timestamp of its first document and the number of documents with this
+     * timestamp belonging to previous pages.
+     */
+    private record PageCursor(Date timestamp, int skip) {
+    }
 }
@@ -31,6 +31,7 @@ import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mockito;
 import org.openhab.core.items.GenericItem;
@@ -46,6 +47,7 @@ import org.openhab.core.library.types.HSBType;
 import org.openhab.core.library.types.QuantityType;
 import org.openhab.core.library.types.RawType;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.osgi.framework.BundleContext;
 
@@ -202,6 +204,7 @@ public class MongoDBPersistenceServiceTest {
 
             // Execution
             service.store(item, null);
+            service.flush();
 
             // Verification
             MongoCollection<Document> collection = database.getCollection("testCollection");
@@ -240,6 +243,7 @@ public class MongoDBPersistenceServiceTest {
 
             // Execution
             service.store(item, null);
+            service.flush();
 
             // Verification
             MongoCollection<Document> collection = database.getCollection("testCollection");
@@ -280,6 +284,7 @@ public class MongoDBPersistenceServiceTest {
             // Execution
             service.store(strItem1, null);
             service.store(strItem2, null);
+            service.flush();
 
             // Verification
             MongoCollection<Document> collection = database.getCollection("testCollection");
@@ -322,6 +327,7 @@ public class MongoDBPersistenceServiceTest {
             // Execution
             service.store(strItem1, null);
             service.store(strItem2, null);
+            service.flush();
 
             // Verification
             MongoCollection<Document> collection = database.getCollection("testCollection");
@@ -362,6 +368,7 @@ public class MongoDBPersistenceServiceTest {
 
             // Execution
             service.store(item, "AliasName");
+            service.flush();
 
             // Verification
             MongoCollection<Document> collection = database.getCollection("testCollection");
@@ -603,6 +610,7 @@ public class MongoDBPersistenceServiceTest {
 
             // Execution
             service.store(item, null);
+            service.flush();
 
             // Verification
             MongoCollection<Document> collection = database.getCollection("testCollection");
@@ -731,6 +739,7 @@ public class MongoDBPersistenceServiceTest {
 
             // Execution
             service.store(item, null);
+            service.flush();
 
             // Verification
             List<Document> documents = (ArrayList<Document>) collection.find().into(new ArrayList<>());
@@ -835,6 +844,7 @@ public class MongoDBPersistenceServiceTest {
             DecimalType historicState = new DecimalType(11110.1);
             ZonedDateTime now = ZonedDateTime.now();
             service.store(item, now, historicState);
+            service.flush();
 
             // Verification
             MongoCollection<Document> collection = database.getCollection("TestItem");
@@ -876,6 +886,7 @@ public class MongoDBPersistenceServiceTest {
             DecimalType historicState = new DecimalType(11110.1);
             ZonedDateTime now = ZonedDateTime.now();
             service.store(item, now, historicState, "AliasName");
+            service.flush();
 
             // Verification
             MongoCollection<Document> collection = database.getCollection("TestItem");
@@ -989,4 +1000,82 @@ public class MongoDBPersistenceServiceTest {
             dbContainer.stop();
         }
     }
+
+    /*
+     * Test that stored values are queued until the batch is written
+     */
+    @Test
+    public void testStoreQueuesValuesUntilFlush() {
+        // Preparation
+        DatabaseTestContainer dbContainer = new DatabaseTestContainer(new MemoryBackend());
+        try {
+            SetupResult setupResult = DataCreationHelper.setupMongoDB("testcollection", dbContainer);
+            MongoDBPersistenceService service = setupResult.service;
+            MongoDatabase database = setupResult.database;
+
+            setupResult.config.put("writeBatchSize", 100);
+            setupResult.config.put("writeInterval", 60000);
+            service.activate(setupResult.bundleContext, setupResult.config);
+
+            for (int i = 0; i < 10; i++) {
+                service.store(DataCreationHelper.createNumberItem("TestItem", i));
+            }
+            MongoCollection<Document> collection = database.getCollection("testcollection");
+            assertEquals(0, collection.countDocuments());
+
+            // Execution
+            service.flush();
+
+            // Verification
+            assertEquals(10, collection.countDocuments());
+        } finally {
+            dbContainer.stop();
+        }
+    }
+
+    /*
+     * Test that reading the pages of a query one after the other returns the same values as a single query, also
+     * when several values have the same timestamp
+     */
+    @ParameterizedTest
+    @EnumSource(Ordering.class)
+    public void testQueryPagesInSequence(Ordering ordering) {
+        // Preparation
+        DatabaseTestContainer dbContainer = new DatabaseTestContainer(new MemoryBackend());
+        try {
+            SetupResult setupResult = DataCreationHelper.setupMongoDB("testcollection", dbContainer);
+            MongoDBPersistenceService service = setupResult.service;
+            try {
+                Mockito.when(setupResult.itemRegistry.getItem("TestItem"))
+                        .thenReturn(DataCreationHelper.createNumberItem("TestItem", 0));
+            } catch (ItemNotFoundException e) {
+            }
+
+            service.activate(setupResult.bundleContext, setupResult.config);
+
+            DataCreationHelper.createTestData(service, "TestItem", "TestItemOther");
+
+            FilterCriteria filter = DataCreationHelper.createFilterCriteria("TestItem");
+            filter.setOrdering(ordering);
+            List<HistoricItem> expected = new ArrayList<>();
+            service.query(filter).forEach(expected::add);
+
+            // Execution
+            List<HistoricItem> pages = new ArrayList<>();
+            filter.setPageSize(7);
+            for (int pageNumber = 0; pageNumber * 7 < expected.size(); pageNumber++) {
+                filter.setPageNumber(pageNumber);
+                service.query(filter).forEach(pages::add);
+            }
+
+            // Verification
+            assertEquals(expected.size(), pages.size());
+            assertEquals(expected.stream().map(HistoricItem::getTimestamp).toList(),
+                    pages.stream().map(HistoricItem::getTimestamp).toList());
+            assertEquals(expected.stream().map(HistoricItem::toString).collect(Collectors.toSet()),
+                    pages.stream().map(HistoricItem::toString).collect(Collectors.toSet()));
+        } finally {
+            dbContainer.stop();
+        }
+    }
 }
@@ -22,18 +22,23 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.DoubleFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -81,6 +86,7 @@ import org.rrd4j.ConsolFun;
 import org.rrd4j.DsType;
 import org.rrd4j.core.FetchData;
 import org.rrd4j.core.FetchRequest;
+import org.rrd4j.core.RrdBackendFactory;
 import org.rrd4j.core.RrdDb;
 import org.rrd4j.core.RrdDb.Builder;
 import org.rrd4j.core.RrdDbPool;
@@ -112,6 +118,9 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         }
     }
 
+    private record Point(long timestamp, double value) {
+    }
+
     public static final String SERVICE_ID = "rrd4j";
 
     private static final String DEFAULT_OTHER = "default_other";
@@ -121,9 +130,27 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
     private static final Set<String> SUPPORTED_TYPES = Set.of(CoreItemFactory.SWITCH, CoreItemFactory.CONTACT,
             CoreItemFactory.DIMMER, CoreItemFactory.NUMBER, CoreItemFactory.ROLLERSHUTTER, CoreItemFactory.COLOR);
 
+    private static final int FLUSH_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final String CONFIG_BACKEND = "backend";
+    private static final String CONFIG_POOL_CAPACITY = "poolCapacity";
+    private static final Set<String> SUPPORTED_BACKENDS = Set.of("NIO", "FILE");
+    private static final String DEFAULT_BACKEND = "NIO";
+    private static final int DEFAULT_POOL_CAPACITY = 200;
+    // pool slots that are not used to keep databases open, so writes, queries and charts do not wait for a free slot
+    static final int POOL_RESERVE = FLUSH_THREADS + 16;
+
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1,
             new NamedThreadFactory("RRD4j"));
 
+    // writes the samples of different databases in parallel
+    private final ExecutorService flushExecutor = Executors.newFixedThreadPool(FLUSH_THREADS,
+            new NamedThreadFactory("RRD4j-flush"));
+
+    // one lock per database, so a database is never created or written by two threads at once, only the databases
+    // that are kept open or being written have a lock
+    final Map<String, ReentrantLock> databaseLocks = new ConcurrentHashMap<>();
+
     private final Map<String, RrdDefConfig> rrdDefs = new ConcurrentHashMap<>();
 
     private final ConcurrentSkipListMap<Key, Double> storageMap = new ConcurrentSkipListMap<>(Key::compareTo);
@@ -134,6 +161,17 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
 
     private static final RrdDbPool DATABASE_POOL = new RrdDbPool();
 
+    private static volatile RrdBackendFactory backendFactory = RrdBackendFactory.getFactory(DEFAULT_BACKEND);
+
+    // the time each database was last written or released, so charts can be revalidated without opening the databases
+    private static final Map<String, Long> LAST_CHANGES = new ConcurrentHashMap<>();
+
+    // databases kept open between accesses, the least recently used first
+    private final Map<String, RrdDb> openDatabases = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile int openDatabasesLimit = DEFAULT_POOL_CAPACITY - POOL_RESERVE;
+    private final AtomicLong poolHits = new AtomicLong();
+    private final AtomicLong poolMisses = new AtomicLong();
+
     private final Logger logger = LoggerFactory.getLogger(RRD4jPersistenceService.class);
     private final ItemRegistry itemRegistry;
     private boolean active = false;
@@ -146,6 +184,18 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         return DATABASE_POOL;
     }
 
+    public static RrdBackendFactory getBackendFactory() {
+        return backendFactory;
+    }
+
+    /**
+     * @return the time in milliseconds since epoch the database was last written or released by this service, 0 if
+     *         that did not happen since the service was started
+     */
+    public static long getLastChange(String name) {
+        return LAST_CHANGES.getOrDefault(name, 0L);
+    }
+
     private final ScheduledFuture<?> storeJob;
 
     @Activate
@@ -200,6 +250,8 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         defaultOther.addArchives("LAST,0.5,1,720:LAST,0.5,12,10080:LAST,0.5,180,35040:LAST,0.5,2880,21900");
         rrdDefs.put(DEFAULT_OTHER, defaultOther);
 
+        configurePool(config);
+
         if (config.isEmpty()) {
             logger.debug("using default configuration only");
             return;
@@ -209,8 +261,9 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         while (keys.hasNext()) {
             String key = keys.next();
 
-            if ("service.pid".equals(key) || "component.name".equals(key)) {
-                // ignore service.pid and name
+            if ("service.pid".equals(key) || "component.name".equals(key) || CONFIG_BACKEND.equals(key)
+                    || CONFIG_POOL_CAPACITY.equals(key)) {
+                // ignore service.pid and name, the pool has already been configured
                 continue;
             }
 
@@ -264,6 +317,35 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         }
     }
 
+    private void configurePool(Map<String, Object> config) {
+        String backend = DEFAULT_BACKEND;
+        Object backendValue = config.get(CONFIG_BACKEND);
+        if (backendValue != null && !backendValue.toString().isBlank()) {
+            backend = backendValue.toString().trim().toUpperCase();
+            if (!SUPPORTED_BACKENDS.contains(backend)) {
+                logger.warn("Ignoring unsupported backend '{}', supported are {}", backendValue, SUPPORTED_BACKENDS);
+                backend = DEFAULT_BACKEND;
+            }
+        }
+        int capacity = DEFAULT_POOL_CAPACITY;
+        Object capacityValue = config.get(CONFIG_POOL_CAPACITY);
+        if (capacityValue != null && !capacityValue.toString().isBlank()) {
+            try {
+                capacity = Math.max(1, Integer.parseInt(capacityValue.toString().trim()));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring illegal pool capacity '{}'", capacityValue);
+            }
+        }
+
+        // databases opened with the previous backend must not be kept open
+        closeOpenDatabases();
+        backendFactory = RrdBackendFactory.getFactory(backend);
+        DATABASE_POOL.setCapacity(capacity);
+        openDatabasesLimit = Math.max(0, capacity - POOL_RESERVE);
+        logger.debug("Using backend {} with a pool capacity of {}, keeping up to {} databases open", backend, capacity,
+                openDatabasesLimit);
+    }
+
     @Deactivate
     protected void deactivate() {
         active = false;
@@ -271,6 +353,8 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
 
         // make sure we really store everything
         doStore(true);
+        flushExecutor.shutdown();
+        closeOpenDatabases();
     }
 
     @Override
@@ -336,32 +420,105 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         }
     }
 
-    private void doStore(boolean force) {
+    void doStore(boolean force) {
         long now = System.currentTimeMillis() / 1000;
+        // group the samples by database, the samples of a database are in time order
+        Map<String, List<Point>> pointsByName = new LinkedHashMap<>();
         while (!storageMap.isEmpty()) {
             Key key = storageMap.firstKey();
             if (now > key.timestamp || force) {
                 // no new elements can be added for this timestamp because we are already past that time or the service
                 // requires forced storing
                 Double value = storageMap.pollFirstEntry().getValue();
-                writePointToDatabase(key.name, value, key.timestamp);
+                pointsByName.computeIfAbsent(key.name, name -> new ArrayList<>()).add(new Point(key.timestamp, value));
             } else {
-                return;
+                break;
             }
         }
+        if (pointsByName.isEmpty()) {
+            return;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>(pointsByName.size());
+        pointsByName.forEach((name, points) -> tasks.add(() -> {
+            writePointsToDatabase(name, points);
+            return null;
+        }));
+        try {
+            // wait for all databases, so the next flush does not overtake this one
+            flushExecutor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            // this happens if the system is shut down
+            logger.debug("Could not store {} rrd4j databases: {}", tasks.size(), e.getMessage());
+        }
     }
 
-    private synchronized void writePointToDatabase(String name, double value, long timestamp) {
-        RrdDb db = null;
+    /**
+     * Writes the samples of one database in a single open/update/close cycle.
+     */
+    private void writePointsToDatabase(String name, List<Point> points) {
+        ReentrantLock lock = lockDatabase(name);
         try {
-            db = getDB(name, true);
-        } catch (Exception e) {
-            logger.warn("Failed to open rrd4j database '{}' to store data ({})", name, e.toString());
+            RrdDb db = null;
+            try {
+                db = openDB(name, true);
+            } catch (Exception e) {
+                logger.warn("Failed to open rrd4j database '{}' to store data ({})", name, e.toString());
+            }
+            if (db == null) {
+                return;
+            }
+
+            for (Point point : points) {
+                writePointToDatabase(db, name, point.value, point.timestamp);
+            }
+            LAST_CHANGES.put(name, System.currentTimeMillis());
+            try {
+                db.close();
+            } catch (IOException e) {
+                logger.debug("Error closing rrd4j database: {}", e.getMessage());
+            }
+        } finally {
+            lock.unlock();
         }
-        if (db == null) {
-            return;
+        boolean keptOpen;
+        synchronized (openDatabases) {
+            keptOpen = openDatabases.containsKey(name);
+        }
+        if (!keptOpen) {
+            discardLock(name);
+        }
+    }
+
+    private ReentrantLock lockDatabase(String name) {
+        while (true) {
+            ReentrantLock lock = databaseLocks.computeIfAbsent(name, n -> new ReentrantLock());
+            lock.lock();
+            if (databaseLocks.get(name) == lock) {
+                return lock;
+            }
+            // the lock was discarded while waiting for it
+            lock.unlock();
         }
+    }
+
+    /**
+     * Removes the lock of a database unless it is held, the next writer creates a new one.
+     */
+    private void discardLock(String name) {
+        ReentrantLock lock = databaseLocks.get(name);
+        if (lock != null && !lock.isHeldByCurrentThread() && lock.tryLock()) {
+            try {
+                databaseLocks.remove(name, lock);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
 
+    private void writePointToDatabase(RrdDb db, String name, double value, long timestamp) {
         ConsolFun function = getConsolidationFunction(db);
         if (function != ConsolFun.AVERAGE) {
             try {
@@ -398,11 +555,6 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         } catch (Exception e) {
             logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
         }
-        try {
-            db.close();
-        } catch (IOException e) {
-            logger.debug("Error closing rrd4j database: {}", e.getMessage());
-        }
     }
 
     @Override
@@ -427,7 +579,7 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
 
         RrdDb db = null;
         try {
-            db = getDB(itemName, false);
+            db = openDB(itemName, false);
         } catch (Exception e) {
             logger.warn("Failed to open rrd4j database '{}' for querying ({})", itemName, e.toString());
             return List.of();
@@ -539,12 +691,112 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         return Set.of();
     }
 
-    protected synchronized @Nullable RrdDb getDB(String alias, boolean createFileIfAbsent) {
+    /**
+     * Opens a database like {@link #getDB(String, boolean)} and keeps it open for later accesses, so the file is not
+     * opened and closed again for every sample. The least recently used database is closed when more than
+     * {@link #openDatabasesLimit} databases are open.
+     */
+    private @Nullable RrdDb openDB(String alias, boolean createFileIfAbsent) {
+        boolean open;
+        synchronized (openDatabases) {
+            open = openDatabases.get(alias) != null;
+        }
+        (open ? poolHits : poolMisses).incrementAndGet();
+        RrdDb db = getDB(alias, createFileIfAbsent);
+        if (db != null && !open && openDatabasesLimit > 0) {
+            // an additional reference from the pool keeps the file open after the caller closed its reference
+            RrdDb reference = getDB(alias, false);
+            if (reference != null) {
+                List<RrdDb> evicted = new ArrayList<>();
+                List<String> evictedNames = new ArrayList<>();
+                synchronized (openDatabases) {
+                    RrdDb previous = openDatabases.put(alias, reference);
+                    if (previous != null) {
+                        evicted.add(previous);
+                    }
+                    Iterator<Map.Entry<String, RrdDb>> iterator = openDatabases.entrySet().iterator();
+                    while (openDatabases.size() > openDatabasesLimit && iterator.hasNext()) {
+                        Map.Entry<String, RrdDb> entry = iterator.next();
+                        evicted.add(entry.getValue());
+                        evictedNames.add(entry.getKey());
+                        iterator.remove();
+                    }
+                }
+                evicted.forEach(this::closeDB);
+                evictedNames.forEach(this::discardLock);
+            }
+        }
+        return db;
+    }
+
+    /**
+     * Closes the database if it is kept open, i.e. before its file is deleted.
+     */
+    public void releaseDatabase(String alias) {
+        RrdDb db;
+        synchronized (openDatabases) {
+            db = openDatabases.remove(alias);
+        }
+        if (db != null) {
+            closeDB(db);
+        }
+        discardLock(alias);
+        LAST_CHANGES.put(alias, System.currentTimeMillis());
+    }
+
+    private void closeOpenDatabases() {
+        List<RrdDb> databases;
+        List<String> names;
+        synchronized (openDatabases) {
+            databases = new ArrayList<>(openDatabases.values());
+            names = new ArrayList<>(openDatabases.keySet());
+            openDatabases.clear();
+        }
+        databases.forEach(this::closeDB);
+        names.forEach(this::discardLock);
+    }
+
+    private void closeDB(RrdDb db) {
+        try {
+            db.close();
+        } catch (IOException e) {
+            logger.debug("Error closing rrd4j database: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of accesses to databases that were kept open
+     */
+    public long getPoolHits() {
+        return poolHits.get();
+    }
+
+    /**
+     * @return the number of accesses to databases that had to be opened
+     */
+    public long getPoolMisses() {
+        return poolMisses.get();
+    }
+
+    /**
+     * @return the number of databases kept open between accesses
+     */
+    public int getKeptOpenCount() {
+        synchronized (openDatabases) {
+            return openDatabases.size();
+        }
+    }
+
+    /**
+     * Opens a database through the pool. Callers creating the database must hold the lock of the database.
+     */
+    protected @Nullable RrdDb getDB(String alias, boolean createFileIfAbsent) {
         RrdDb db = null;
         Path path = getDatabasePath(alias);
         try {
             Builder builder = RrdDb.getBuilder();
             builder.setPool(DATABASE_POOL);
+            builder.setBackendFactory(backendFactory);
 
             if (Files.exists(path)) {
                 // recreate the RrdDb instance from the file
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal.charts;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Keeps the most recently requested rendered charts as PNG images. A chart is valid as long as none of its databases
+ * has been changed since it was rendered.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+class RRD4jChartCache {
+
+    /**
+     * A rendered chart.
+     *
+     * @param png the encoded image
+     * @param lastUpdate the last change of the databases when the chart was rendered (milliseconds since epoch)
+     * @param renderedAt the time the chart was rendered (milliseconds since epoch)
+     * @param eTag the entity tag identifying this rendering
+     */
+    record Chart(byte[] png, long lastUpdate, long renderedAt, String eTag) {
+    }
+
+    private final Map<String, Chart> charts;
+
+    RRD4jChartCache(int capacity) {
+        charts = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.@Nullable Entry<String, Chart> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param key the key of the chart
+     * @param lastUpdate the current last change of the databases of the chart
+     * @return the cached chart or null if there is none or it is outdated
+     */
+    @Nullable Chart get(String key, long lastUpdate) {
+        synchronized (charts) {
+            Chart chart = charts.get(key);
+            if (chart == null) {
+                return null;
+            }
+            if (chart.lastUpdate() != lastUpdate) {
+                charts.remove(key);
+                return null;
+            }
+            return chart;
+        }
+    }
+
+    Chart put(String key, byte[] png, long lastUpdate) {
+        long renderedAt = System.currentTimeMillis();
+        Chart chart = new Chart(png, lastUpdate, renderedAt,
+                "\"" + Integer.toHexString(key.hashCode()) + "-" + Long.toHexString(renderedAt) + "\"");
+        synchronized (charts) {
+            charts.put(key, chart);
+        }
+        return chart;
+    }
+
+    void clear() {
+        synchronized (charts) {
+            charts.clear();
+        }
+    }
+}
@@ -17,11 +17,16 @@ import static java.util.Map.entry;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 
 import javax.imageio.ImageIO;
@@ -30,6 +35,8 @@ import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -41,6 +48,7 @@ import org.openhab.core.library.items.NumberItem;
 import org.openhab.core.ui.chart.ChartProvider;
 import org.openhab.core.ui.items.ItemUIRegistry;
 import org.openhab.persistence.rrd4j.internal.RRD4jPersistenceService;
+import org.openhab.persistence.rrd4j.internal.charts.RRD4jChartCache.Chart;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -92,6 +100,8 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
             new Color(255, 255, 0, 30) };
 
     private static final Duration DEFAULT_PERIOD = Duration.ofDays(1);
+    private static final Duration MIN_CACHE_SLICE = Duration.ofSeconds(1);
+    private static final int CACHE_CAPACITY = 64;
 
     private static final Map<String, Duration> PERIODS = Map.ofEntries( //
             entry("h", Duration.ofHours(1)), entry("4h", Duration.ofHours(4)), //
@@ -106,6 +116,7 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
     private final HttpService httpService;
     private final ItemUIRegistry itemUIRegistry;
     private final TimeZoneProvider timeZoneProvider;
+    private final RRD4jChartCache cache = new RRD4jChartCache(CACHE_CAPACITY);
 
     @Activate
     public RRD4jChartServlet(final @Reference HttpService httpService, final @Reference ItemUIRegistry itemUIRegistry,
@@ -128,6 +139,7 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
     @Deactivate
     protected void deactivate() {
         httpService.unregister(SERVLET_NAME);
+        cache.clear();
     }
 
     @Override
@@ -143,12 +155,30 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
         ZonedDateTime timeEnd = ZonedDateTime.now(timeZoneProvider.getTimeZone());
         ZonedDateTime timeBegin = timeEnd.minus(period);
 
+        String items = req.getParameter("items");
+        String groups = req.getParameter("groups");
         try {
-            BufferedImage chart = createChart(null, null, timeBegin, timeEnd, height, width, req.getParameter("items"),
-                    req.getParameter("groups"), null, null);
+            List<Item> chartItems = getChartItems(items, groups);
+            String key = getCacheKey(null, timeEnd, period, height, width, items, groups, null, null);
+            long lastUpdate = getLastUpdate(chartItems);
+            Chart chart = cache.get(key, lastUpdate);
+            if (chart == null) {
+                chart = cache.put(key, encode(renderChart(chartItems, timeBegin, timeEnd, height, width)), lastUpdate);
+            }
+            if (req instanceof HttpServletRequest httpRequest && res instanceof HttpServletResponse httpResponse) {
+                // let clients revalidate their copy on every request, so unchanged charts are answered with a 304
+                httpResponse.setHeader("Cache-Control", "no-cache");
+                httpResponse.setHeader("ETag", chart.eTag());
+                httpResponse.setDateHeader("Last-Modified", chart.renderedAt());
+                if (isNotModified(httpRequest, chart)) {
+                    httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            }
             // Set the content type to that provided by the chart provider
             res.setContentType("image/" + getChartType());
-            ImageIO.write(chart, getChartType().toString(), res.getOutputStream());
+            res.setContentLength(chart.png().length);
+            res.getOutputStream().write(chart.png());
         } catch (ItemNotFoundException e) {
             logger.debug("Item not found error while generating chart", e);
             throw new ServletException("Item not found error while generating chart: " + e.getMessage());
@@ -158,6 +188,27 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
         }
     }
 
+    /**
+     * Checks the conditional headers of a request. The time axis of a chart moves with every rendering, so a chart is
+     * only unmodified since the time it was rendered, not since the last update of its databases.
+     */
+    static boolean isNotModified(HttpServletRequest req, Chart chart) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return Arrays.stream(ifNoneMatch.split(",")).map(String::trim)
+                    .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                    .anyMatch(tag -> "*".equals(tag) || tag.equals(chart.eTag()));
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = req.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates have a precision of one second
+        return ifModifiedSince >= 0 && chart.renderedAt() / 1000 <= ifModifiedSince / 1000;
+    }
+
     private int parseInt(@Nullable String s, int defaultValue) {
         if (s == null) {
             return defaultValue;
@@ -190,6 +241,7 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
         try {
             Builder builder = RrdDb.getBuilder();
             builder.setPool(RRD4jPersistenceService.getDatabasePool());
+            builder.setBackendFactory(RRD4jPersistenceService.getBackendFactory());
             builder.setPath(rrdName);
 
             RrdDb db = builder.build();
@@ -200,11 +252,13 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
         }
         if (item instanceof NumberItem) {
             // we only draw a line
-            graphDef.datasource(Integer.toString(counter), rrdName, "state", consolFun); // RRD4jService.getConsolidationFunction(item));
+            graphDef.datasource(Integer.toString(counter), rrdName, "state", consolFun,
+                    RRD4jPersistenceService.getBackendFactory());
             graphDef.line(Integer.toString(counter), color, label, 2);
         } else {
             // we draw a line and fill the area beneath it with a transparent color
-            graphDef.datasource(Integer.toString(counter), rrdName, "state", consolFun); // RRD4jService.getConsolidationFunction(item));
+            graphDef.datasource(Integer.toString(counter), rrdName, "state", consolFun,
+                    RRD4jPersistenceService.getBackendFactory());
             Color areaColor = AREACOLORS[counter % LINECOLORS.length];
 
             graphDef.area(Integer.toString(counter), areaColor);
@@ -242,40 +296,97 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
     public BufferedImage createChart(@Nullable String service, @Nullable String theme, ZonedDateTime startTime,
             ZonedDateTime endTime, int height, int width, @Nullable String items, @Nullable String groups,
             @Nullable Integer dpi, @Nullable Boolean legend) throws ItemNotFoundException {
-        RrdGraphDef graphDef = new RrdGraphDef(startTime.toEpochSecond(), endTime.toEpochSecond());
-        graphDef.setWidth(width);
-        graphDef.setHeight(height);
-        graphDef.setAntiAliasing(true);
-        graphDef.setImageFormat("PNG");
-        graphDef.setTextAntiAliasing(true);
-        graphDef.setFont(FontTag.TITLE, new Font("SansSerif", Font.PLAIN, 15));
-        graphDef.setFont(FontTag.DEFAULT, new Font("SansSerif", Font.PLAIN, 11));
-
-        int seriesCounter = 0;
+        List<Item> chartItems = getChartItems(items, groups);
+        String key = getCacheKey(theme, endTime, Duration.between(startTime, endTime), height, width, items, groups,
+                dpi, legend);
+        long lastUpdate = getLastUpdate(chartItems);
+        Chart chart = cache.get(key, lastUpdate);
+        if (chart != null) {
+            try {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(chart.png()));
+                if (image != null) {
+                    return image;
+                }
+            } catch (IOException e) {
+                logger.debug("Failed to read cached chart, rendering it again: {}", e.getMessage());
+            }
+        }
+        BufferedImage image = renderChart(chartItems, startTime, endTime, height, width);
+        cache.put(key, encode(image), lastUpdate);
+        return image;
+    }
 
-        // Loop through all the items
+    private List<Item> getChartItems(@Nullable String items, @Nullable String groups) throws ItemNotFoundException {
+        List<Item> chartItems = new ArrayList<>();
         if (items != null) {
-            String[] itemNames = items.split(",");
-            for (String itemName : itemNames) {
-                Item item = itemUIRegistry.getItem(itemName);
-                addLine(graphDef, item, seriesCounter++);
+            for (String itemName : items.split(",")) {
+                chartItems.add(itemUIRegistry.getItem(itemName));
             }
         }
-
-        // Loop through all the groups and add each item from each group
         if (groups != null) {
-            String[] groupNames = groups.split(",");
-            for (String groupName : groupNames) {
+            for (String groupName : groups.split(",")) {
                 Item item = itemUIRegistry.getItem(groupName);
                 if (item instanceof GroupItem groupItem) {
-                    for (Item member : groupItem.getMembers()) {
-                        addLine(graphDef, member, seriesCounter++);
-                    }
+                    chartItems.addAll(groupItem.getMembers());
                 } else {
                     throw new ItemNotFoundException("Item '" + item.getName() + "' defined in groups is not a group.");
                 }
             }
         }
+        return chartItems;
+    }
+
+    /**
+     * Builds the key of a chart. Charts of the same period are shared while their end times fall into the same time
+     * slice of one pixel width, so a chart is not older than one pixel of its time axis.
+     */
+    private String getCacheKey(@Nullable String theme, ZonedDateTime endTime, Duration period, int height, int width,
+            @Nullable String items, @Nullable String groups, @Nullable Integer dpi, @Nullable Boolean legend) {
+        long slice = Math.max(MIN_CACHE_SLICE.toMillis(), period.toMillis() / Math.max(1, width));
+        return String.join("|", String.valueOf(items), String.valueOf(groups), String.valueOf(theme),
+                String.valueOf(dpi), String.valueOf(legend), Integer.toString(width), Integer.toString(height),
+                Long.toString(period.toMillis()), Long.toString(endTime.toInstant().toEpochMilli() / slice));
+    }
+
+    /**
+     * @return the time of the most recent change of the databases of the items in milliseconds since epoch, as
+     *         tracked by the persistence service when it writes them
+     */
+    private long getLastUpdate(List<Item> items) {
+        long lastUpdate = 0;
+        for (Item item : items) {
+            lastUpdate = Math.max(lastUpdate, RRD4jPersistenceService.getLastChange(item.getName()));
+        }
+        return lastUpdate;
+    }
+
+    private byte[] encode(BufferedImage image) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, getChartType().toString(), out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error encoding chart", e);
+        }
+    }
+
+    private BufferedImage renderChart(List<Item> items, ZonedDateTime startTime, ZonedDateTime endTime, int height,
+            int width) {
+        RrdGraphDef graphDef = new RrdGraphDef(startTime.toEpochSecond(), endTime.toEpochSecond());
+        graphDef.setWidth(width);
+        graphDef.setHeight(height);
+        graphDef.setAntiAliasing(true);
+        graphDef.setImageFormat("PNG");
+        graphDef.setTextAntiAliasing(true);
+        graphDef.setFont(FontTag.TITLE, new Font("SansSerif", Font.PLAIN, 15));
+        graphDef.setFont(FontTag.DEFAULT, new Font("SansSerif", Font.PLAIN, 11));
+
+        int seriesCounter = 0;
+
+        // Loop through all the items, including the members of the groups
+        for (Item item : items) {
+            addLine(graphDef, item, seriesCounter++);
+        }
 
         // Write the chart as a PNG image
         try {
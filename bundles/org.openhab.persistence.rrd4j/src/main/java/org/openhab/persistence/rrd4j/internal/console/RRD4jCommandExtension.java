@@ -34,6 +34,7 @@ import org.openhab.persistence.rrd4j.internal.RRD4jPersistenceService;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.rrd4j.core.RrdDbPool;
 
 /**
  * The {@link RRD4jCommandExtension} is responsible for handling console commands
@@ -47,8 +48,9 @@ public class RRD4jCommandExtension extends AbstractConsoleCommandExtension imple
     private static final String CMD_LIST = "list";
     private static final String CMD_CHECK = "check";
     private static final String CMD_CLEAN = "clean";
-    private static final StringsCompleter CMD_COMPLETER = new StringsCompleter(List.of(CMD_LIST, CMD_CHECK, CMD_CLEAN),
-            false);
+    private static final String CMD_STATS = "stats";
+    private static final StringsCompleter CMD_COMPLETER = new StringsCompleter(
+            List.of(CMD_LIST, CMD_CHECK, CMD_CLEAN, CMD_STATS), false);
 
     private final PersistenceServiceRegistry persistenceServiceRegistry;
     private final ItemRegistry itemRegistry;
@@ -81,6 +83,9 @@ public class RRD4jCommandExtension extends AbstractConsoleCommandExtension imple
         } else if (args.length >= 1 && args.length <= 2 && CMD_CLEAN.equalsIgnoreCase(args[0])) {
             checkAndClean(persistenceService, console, args.length == 2 ? args[1] : null, false);
             return;
+        } else if (args.length == 1 && CMD_STATS.equalsIgnoreCase(args[0])) {
+            printStats(persistenceService, console);
+            return;
         }
         printUsage(console);
     }
@@ -125,7 +130,11 @@ public class RRD4jCommandExtension extends AbstractConsoleCommandExtension imple
                 if (checkOnly) {
                     console.println("  - " + filename + ": no item found");
                     nb++;
-                } else if (path.toFile().delete()) {
+                    continue;
+                }
+                // the file must not be kept open while it is deleted
+                persistenceService.releaseDatabase(name);
+                if (path.toFile().delete()) {
                     console.println("  - " + filename + ": file deleted");
                     nb++;
                 } else {
@@ -136,11 +145,27 @@ public class RRD4jCommandExtension extends AbstractConsoleCommandExtension imple
         console.println(nb + " files " + (checkOnly ? "to delete." : "deleted."));
     }
 
+    private void printStats(RRD4jPersistenceService persistenceService, Console console) {
+        RrdDbPool pool = RRD4jPersistenceService.getDatabasePool();
+        long hits = persistenceService.getPoolHits();
+        long misses = persistenceService.getPoolMisses();
+        long accesses = hits + misses;
+        console.println("Backend:             " + RRD4jPersistenceService.getBackendFactory().getName());
+        console.println("Pool capacity:       " + pool.getCapacity());
+        console.println("Open files:          " + pool.getOpenFileCount());
+        console.println("Kept open:           " + persistenceService.getKeptOpenCount());
+        console.println("Accesses:            " + accesses);
+        console.println("Hits:                " + hits);
+        console.println("Misses:              " + misses);
+        console.println(String.format("Hit rate:            %.1f%%", accesses == 0 ? 0.0 : 100.0 * hits / accesses));
+    }
+
     @Override
     public List<String> getUsages() {
         return List.of(buildCommandUsage(CMD_LIST, "list Round Robin Database files"),
                 buildCommandUsage(CMD_CHECK, "check for RRD files without existing item"),
-                buildCommandUsage(CMD_CLEAN + " [<itemName>]", "delete RRD files without existing item"));
+                buildCommandUsage(CMD_CLEAN + " [<itemName>]", "delete RRD files without existing item"),
+                buildCommandUsage(CMD_STATS, "show the database pool usage and hit rate"));
     }
 
     @Override
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openhab.core.OpenHAB;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.rrd4j.core.RrdDb;
+
+/**
+ * Tests writing databases in parallel and keeping databases open in the pool.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jPersistenceServiceTest {
+
+    private static @TempDir @NonNullByDefault({}) Path userData;
+
+    private final ItemRegistry itemRegistry = mock(ItemRegistry.class);
+    private @NonNullByDefault({}) RRD4jPersistenceService service;
+
+    @BeforeAll
+    public static void setUpUserData() {
+        // read once when the service class is initialized
+        System.setProperty(OpenHAB.USERDATA_DIR_PROG_ARGUMENT, userData.toString());
+    }
+
+    @BeforeEach
+    public void setUp() throws ItemNotFoundException {
+        when(itemRegistry.getItem(anyString())).thenAnswer(invocation -> new NumberItem(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (service != null) {
+            service.deactivate();
+        }
+    }
+
+    private void store(String name, double value) {
+        NumberItem item = new NumberItem(name);
+        item.setState(new DecimalType(value));
+        service.store(item);
+    }
+
+    private double readLastValue(String name) throws IOException {
+        try (RrdDb db = RrdDb.getBuilder().setPath(RRD4jPersistenceService.getDatabasePath(name).toString())
+                .setBackendFactory(RRD4jPersistenceService.getBackendFactory())
+                .setPool(RRD4jPersistenceService.getDatabasePool()).build()) {
+            return db.getLastDatasourceValue("state");
+        }
+    }
+
+    @Test
+    public void databasesAreWrittenInParallel() throws IOException {
+        service = new RRD4jPersistenceService(itemRegistry, Map.of());
+        for (int i = 0; i < 50; i++) {
+            store("parallel" + i, i);
+        }
+        service.doStore(true);
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(Files.exists(RRD4jPersistenceService.getDatabasePath("parallel" + i)), is(true));
+            assertThat(readLastValue("parallel" + i), is((double) i));
+        }
+        assertThat(service.getPoolMisses(), is(50L));
+        // only the databases kept open have a lock
+        assertThat(service.databaseLocks.keySet(), everyItem(startsWith("parallel")));
+        assertThat(service.databaseLocks.size(), lessThanOrEqualTo(service.getKeptOpenCount()));
+    }
+
+    @Test
+    public void leastRecentlyUsedDatabasesAreClosed() {
+        service = new RRD4jPersistenceService(itemRegistry,
+                Map.of("poolCapacity", String.valueOf(RRD4jPersistenceService.POOL_RESERVE + 2)));
+        store("lru0", 0);
+        service.doStore(true);
+        store("lru1", 1);
+        service.doStore(true);
+        store("lru2", 2);
+        service.doStore(true);
+
+        assertThat(service.getPoolMisses(), is(3L));
+        assertThat(service.getKeptOpenCount(), is(2));
+        assertThat(service.databaseLocks.keySet(), containsInAnyOrder("lru1", "lru2"));
+
+        store("lru1", 1);
+        service.doStore(true);
+        assertThat(service.getPoolHits(), is(1L));
+
+        // lru2 is now the least recently used database
+        store("lru0", 0);
+        service.doStore(true);
+        assertThat(service.getPoolMisses(), is(4L));
+        assertThat(service.getKeptOpenCount(), is(2));
+        assertThat(service.databaseLocks.keySet(), containsInAnyOrder("lru0", "lru1"));
+    }
+
+    @Test
+    public void changingTheBackendClosesTheOpenDatabases() throws IOException {
+        service = new RRD4jPersistenceService(itemRegistry, Map.of());
+        store("backend", 1);
+        service.doStore(true);
+        assertThat(service.getKeptOpenCount(), is(1));
+
+        service.modified(Map.of("backend", "FILE"));
+        assertThat(service.getKeptOpenCount(), is(0));
+        assertThat(service.databaseLocks.isEmpty(), is(true));
+        assertThat(RRD4jPersistenceService.getBackendFactory().getName(), is("FILE"));
+
+        store("backend2", 2);
+        service.doStore(true);
+        assertThat(readLastValue("backend2"), is(2.0));
+        service.modified(Map.of());
+    }
+
+    @Test
+    public void databasesAreNotKeptOpenWithoutFreePoolSlots() {
+        service = new RRD4jPersistenceService(itemRegistry,
+                Map.of("poolCapacity", String.valueOf(RRD4jPersistenceService.POOL_RESERVE)));
+        store("closed0", 0);
+        store("closed1", 1);
+        service.doStore(true);
+
+        assertThat(service.getKeptOpenCount(), is(0));
+        assertThat(service.databaseLocks.isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal.charts;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+import org.openhab.persistence.rrd4j.internal.charts.RRD4jChartCache.Chart;
+
+/**
+ * Tests the chart cache and the conditional requests answered from it.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jChartCacheTest {
+
+    private static final byte[] PNG = new byte[] { 1, 2, 3 };
+
+    @Test
+    public void chartIsValidUntilItsDatabasesChange() {
+        RRD4jChartCache cache = new RRD4jChartCache(2);
+        Chart chart = cache.put("chart", PNG, 1000);
+
+        assertThat(cache.get("chart", 1000), is(sameInstance(chart)));
+        assertThat(cache.get("chart", 2000), is(nullValue()));
+        // the outdated chart has been removed
+        assertThat(cache.get("chart", 1000), is(nullValue()));
+    }
+
+    @Test
+    public void leastRecentlyUsedChartIsEvicted() {
+        RRD4jChartCache cache = new RRD4jChartCache(2);
+        cache.put("a", PNG, 0);
+        cache.put("b", PNG, 0);
+        cache.get("a", 0);
+        cache.put("c", PNG, 0);
+
+        assertThat(cache.get("a", 0), is(notNullValue()));
+        assertThat(cache.get("b", 0), is(nullValue()));
+        assertThat(cache.get("c", 0), is(notNullValue()));
+    }
+
+    @Test
+    public void matchingEntityTagIsNotModified() {
+        Chart chart = new RRD4jChartCache(1).put("chart", PNG, 0);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+
+        when(request.getHeader("If-None-Match")).thenReturn("\"other\", W/" + chart.eTag());
+        assertThat(RRD4jChartServlet.isNotModified(request, chart), is(true));
+
+        // the entity tag takes precedence over the modification date
+        when(request.getHeader("If-None-Match")).thenReturn("\"other\"");
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(chart.renderedAt() + 60_000);
+        assertThat(RRD4jChartServlet.isNotModified(request, chart), is(false));
+    }
+
+    @Test
+    public void chartRenderedAfterTheClientCopyIsModified() {
+        // the databases have not changed, but the chart has been rendered again for a later time axis
+        Chart chart = new Chart(PNG, 1000, 120_000, "\"tag\"");
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(60_000L);
+
+        assertThat(RRD4jChartServlet.isNotModified(request, chart), is(false));
+
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(120_000L);
+        assertThat(RRD4jChartServlet.isNotModified(request, chart), is(true));
+
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(-1L);
+        assertThat(RRD4jChartServlet.isNotModified(request, chart), is(false));
+    }
+}
@@ -12,7 +12,9 @@
  */
 package org.openhab.transform.jsonpath.internal;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -21,9 +23,11 @@ import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.openhab.core.types.UnDefType;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
@@ -32,6 +36,10 @@ import com.jayway.jsonpath.PathNotFoundException;
 /**
  * The implementation of a {@link TransformationService} which transforms the input by JSonPath Expressions.
  *
+ * Compiled expressions are cached, the least recently used one is removed when the cache is full. Several channels
+ * often apply different expressions to the same payload, so the most recently parsed sources are kept as well and are
+ * only parsed once.
+ *
  * @author Gaël L'hopital - Initial contribution
  * @author Sebastian Janzen - Initial contribution
  */
@@ -39,8 +47,43 @@ import com.jayway.jsonpath.PathNotFoundException;
 @Component(property = { "openhab.transform=JSONPATH" })
 public class JSonPathTransformationService implements TransformationService {
 
+    private static final int MAX_CACHED_EXPRESSIONS = 1000;
+    private static final int MAX_CACHED_DOCUMENTS = 8;
+    private static final int MAX_CACHED_DOCUMENT_LENGTH = 64 * 1024;
+
     private final Logger logger = LoggerFactory.getLogger(JSonPathTransformationService.class);
 
+    private final Map<String, JsonPath> cachedExpressions = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, JsonPath> eldest) {
+            return size() > MAX_CACHED_EXPRESSIONS;
+        }
+    };
+
+    /**
+     * the recently parsed sources, they are only read, so they can be shared by several threads
+     */
+    private final Map<String, DocumentContext> cachedDocuments = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, DocumentContext> eldest) {
+            return size() > MAX_CACHED_DOCUMENTS;
+        }
+    };
+
+    @Deactivate
+    public void deactivate() {
+        synchronized (cachedExpressions) {
+            cachedExpressions.clear();
+        }
+        synchronized (cachedDocuments) {
+            cachedDocuments.clear();
+        }
+    }
+
     /**
      * Transforms the input <code>source</code> by JSonPath expression.
      *
@@ -62,7 +105,7 @@ public class JSonPathTransformationService implements TransformationService {
             return null;
         }
         try {
-            Object transformationResult = JsonPath.read(source, jsonPathExpression);
+            Object transformationResult = getDocument(source).read(getExpression(jsonPathExpression));
             logger.debug("transformation resulted in '{}'", transformationResult);
             if (transformationResult == null) {
                 return null;
@@ -78,6 +121,37 @@ public class JSonPathTransformationService implements TransformationService {
         }
     }
 
+    private JsonPath getExpression(String jsonPathExpression) {
+        synchronized (cachedExpressions) {
+            JsonPath jsonPath = cachedExpressions.get(jsonPathExpression);
+            if (jsonPath != null) {
+                return jsonPath;
+            }
+        }
+        JsonPath jsonPath = JsonPath.compile(jsonPathExpression);
+        synchronized (cachedExpressions) {
+            cachedExpressions.put(jsonPathExpression, jsonPath);
+        }
+        return jsonPath;
+    }
+
+    private DocumentContext getDocument(String source) {
+        if (source.length() > MAX_CACHED_DOCUMENT_LENGTH) {
+            return JsonPath.parse(source);
+        }
+        synchronized (cachedDocuments) {
+            DocumentContext document = cachedDocuments.get(source);
+            if (document != null) {
+                return document;
+            }
+        }
+        DocumentContext document = JsonPath.parse(source);
+        synchronized (cachedDocuments) {
+            cachedDocuments.put(source, document);
+        }
+        return document;
+    }
+
     private String flattenList(List<?> list) {
         if (list.size() == 1) {
             return list.get(0).toString();
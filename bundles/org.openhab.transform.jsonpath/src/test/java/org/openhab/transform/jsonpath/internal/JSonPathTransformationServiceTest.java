@@ -129,4 +129,14 @@ public class JSonPathTransformationServiceTest {
         String transformedResponse = processor.transform("$.data", json);
         assertEquals(list, transformedResponse);
     }
+
+    @Test
+    public void testSamePayloadWithSeveralPaths() throws TransformationException {
+        // the payload is parsed once and read by each path
+        assertEquals("bob", processor.transform("$[0].name", JSON_ARRAY));
+        assertEquals("alice", processor.transform("$[1].name", JSON_ARRAY));
+        assertEquals("2", processor.transform("$[1].id", new String(JSON_ARRAY)));
+        assertEquals("carol", processor.transform("$[1].name", JSON_ARRAY.replace("alice", "carol")));
+        assertEquals("alice", processor.transform("$[1].name", JSON_ARRAY));
+    }
 }
@@ -12,17 +12,33 @@
  */
 package org.openhab.transform.regex.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.io.monitor.MeterRegistryProvider;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by Regular Expressions.
@@ -30,16 +46,74 @@ import org.slf4j.LoggerFactory;
  * <p>
  * <b>Note:</b> the given Regular Expression must contain exactly one group!
  *
+ * <p>
+ * Compiled expressions are cached by their function, so they are compiled only once. If there are more functions
+ * than the cache holds, the least recently used expression is compiled again when it is needed.
+ *
  * @author Thomas.Eichstaedt-Engelen - Initial contribution
  */
 @NonNullByDefault
 @Component(property = { "openhab.transform=REGEX" })
 public class RegExTransformationService implements TransformationService {
 
+    private static final String METER_PREFIX = "openhab.transform.regex.";
+    private static final int MAX_CACHED_EXPRESSIONS = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(RegExTransformationService.class);
 
     private static final Pattern SUBSTR_PATTERN = Pattern.compile("^s/(.*?[^\\\\])/(.*?[^\\\\])/(.*)$");
 
+    // access ordered, so the least recently used expression is removed when the cache is full
+    private final Map<String, RegEx> cachedExpressions = Collections
+            .synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.@Nullable Entry<String, RegEx> eldest) {
+                    return size() > MAX_CACHED_EXPRESSIONS;
+                }
+            });
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    private final List<Meter> meters = new ArrayList<>();
+    private @Nullable MeterRegistry meterRegistry;
+
+    @Deactivate
+    public void deactivate() {
+        cachedExpressions.clear();
+    }
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    public void setMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getOHMeterRegistry();
+        synchronized (meters) {
+            removeMeters();
+            this.meterRegistry = meterRegistry;
+            meters.add(FunctionCounter.builder(METER_PREFIX + "cache.hits", cacheHits, LongAdder::sum)
+                    .register(meterRegistry));
+            meters.add(FunctionCounter.builder(METER_PREFIX + "cache.misses", cacheMisses, LongAdder::sum)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder(METER_PREFIX + "cache.size", cachedExpressions, Map::size)
+                    .register(meterRegistry));
+        }
+    }
+
+    public void unsetMeterRegistryProvider(MeterRegistryProvider meterRegistryProvider) {
+        synchronized (meters) {
+            removeMeters();
+        }
+    }
+
+    private void removeMeters() {
+        MeterRegistry meterRegistry = this.meterRegistry;
+        if (meterRegistry != null) {
+            meters.forEach(meterRegistry::remove);
+        }
+        meters.clear();
+        this.meterRegistry = null;
+    }
+
     @Override
     public @Nullable String transform(String regExpression, String source) throws TransformationException {
         if (regExpression == null || source == null) {
@@ -48,25 +122,18 @@ public class RegExTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", source, regExpression);
 
-        String result = "";
+        RegEx regEx = getRegEx(regExpression);
 
-        Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
-        if (substMatcher.matches()) {
+        String substitution = regEx.substitution;
+        if (substitution != null) {
             logger.debug("Using substitution form of regex transformation");
-            String regex = substMatcher.group(1);
-            String substitution = substMatcher.group(2);
-            String options = substMatcher.group(3);
-            if ("g".equals(options)) {
-                result = source.trim().replaceAll(regex, substitution);
-            } else {
-                result = source.trim().replaceFirst(regex, substitution);
-            }
-            if (result != null) {
-                return result;
-            }
+            Matcher matcher = regEx.pattern.matcher(source.trim());
+            return regEx.global ? matcher.replaceAll(substitution) : matcher.replaceFirst(substitution);
         }
 
-        Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+        String result = "";
+
+        Matcher matcher = regEx.pattern.matcher(source.trim());
         if (!matcher.matches()) {
             logger.debug(
                     "the given regex '^{}$' doesn't match the given content '{}' -> couldn't compute transformation",
@@ -94,4 +161,41 @@ public class RegExTransformationService implements TransformationService {
 
         return result;
     }
+
+    private RegEx getRegEx(String regExpression) {
+        RegEx regEx = cachedExpressions.get(regExpression);
+        if (regEx != null) {
+            cacheHits.increment();
+            return regEx;
+        }
+        cacheMisses.increment();
+
+        Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
+        if (substMatcher.matches()) {
+            String regex = substMatcher.group(1);
+            String substitution = substMatcher.group(2);
+            String options = substMatcher.group(3);
+            regEx = new RegEx(Pattern.compile(regex), substitution, "g".equals(options));
+        } else {
+            regEx = new RegEx(Pattern.compile("^" + regExpression + "$", Pattern.DOTALL), null, false);
+        }
+
+        cachedExpressions.put(regExpression, regEx);
+        return regEx;
+    }
+
+    /**
+     * A compiled function, either a pattern that has to match the whole source or the substitution form.
+     */
+    private static class RegEx {
+        private final Pattern pattern;
+        private final @Nullable String substitution;
+        private final boolean global;
+
+        RegEx(Pattern pattern, @Nullable String substitution, boolean global) {
+            this.pattern = pattern;
+            this.substitution = substitution;
+            this.global = global;
+        }
+    }
 }
@@ -75,4 +75,14 @@ public class RegExTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("varX=12 varY=54 ", transformedResponse);
     }
+
+    @Test
+    public void testTransformByRegex_cachedExpression() throws TransformationException {
+        // the compiled expressions are reused for other sources
+        assertEquals("SetMode(42)", processor.transform("s/^OP:(.*?),ARG:(.*)$/$1($2)/", "OP:SetMode,ARG:42"));
+        assertEquals("Reset(0)", processor.transform("s/^OP:(.*?),ARG:(.*)$/$1($2)/", "OP:Reset,ARG:0"));
+        assertEquals("44.0", processor.transform("temp=(.*?)'C", "temp=44.0'C"));
+        assertEquals("45.5", processor.transform("temp=(.*?)'C", "temp=45.5'C"));
+        assertNull(processor.transform("temp=(.*?)'C", "humidity=50%"));
+    }
 }
@@ -12,13 +12,20 @@
  */
 package org.openhab.transform.xpath.internal;
 
+import java.io.IOException;
 import java.io.StringReader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -26,23 +33,42 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XPath Expressions.
  *
+ * Neither the parser nor compiled expressions or the parsed document may be used by several threads at once, so each
+ * thread keeps its own. Things often apply many expressions to the same response, so the last parsed document is
+ * kept and only parsed again if the source changes. The documents are dropped when the service is deactivated.
+ *
  * @author Thomas.Eichstaedt-Engelen - Initial contribution
  */
 @NonNullByDefault
 @Component(property = { "openhab.transform=XPATH" })
 public class XPathTransformationService implements TransformationService {
 
+    private static final int MAX_CACHED_EXPRESSIONS = 256;
+
     private final Logger logger = LoggerFactory.getLogger(XPathTransformationService.class);
 
+    private final ThreadLocal<@Nullable Evaluator> evaluator = new ThreadLocal<>();
+    // the evaluators of all threads, so their documents can be dropped, weak to not keep ended threads
+    private final Map<Thread, Evaluator> evaluators = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Deactivate
+    public void deactivate() {
+        synchronized (evaluators) {
+            evaluators.values().forEach(Evaluator::clearDocument);
+        }
+    }
+
     @Override
     public @Nullable String transform(String xpathExpression, String source) throws TransformationException {
         if (xpathExpression == null || source == null) {
@@ -51,9 +77,22 @@ public class XPathTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", source, xpathExpression);
 
-        StringReader stringReader = null;
-
         try {
+            Evaluator evaluator = getEvaluator();
+            String transformationResult = (String) evaluator.getExpression(xpathExpression)
+                    .evaluate(evaluator.getDocument(source), XPathConstants.STRING);
+
+            logger.debug("transformation resulted in '{}'", transformationResult);
+
+            return transformationResult;
+        } catch (Exception e) {
+            throw new TransformationException("transformation throws exceptions", e);
+        }
+    }
+
+    private Evaluator getEvaluator() throws ParserConfigurationException {
+        Evaluator evaluator = this.evaluator.get();
+        if (evaluator == null) {
             DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
             // see https://cheatsheetseries.owasp.org/cheatsheets/XML_External_Entity_Prevention_Cheat_Sheet.html
             domFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
@@ -63,28 +102,69 @@ public class XPathTransformationService implements TransformationService {
             domFactory.setExpandEntityReferences(false);
             domFactory.setNamespaceAware(true);
             domFactory.setValidating(false);
-            DocumentBuilder builder = domFactory.newDocumentBuilder();
+            evaluator = new Evaluator(domFactory.newDocumentBuilder(), XPathFactory.newInstance().newXPath());
+            this.evaluator.set(evaluator);
+            evaluators.put(Thread.currentThread(), evaluator);
+        }
+        return evaluator;
+    }
 
-            stringReader = new StringReader(source);
-            InputSource inputSource = new InputSource(stringReader);
-            inputSource.setEncoding("UTF-8");
+    /**
+     * The parser, the compiled expressions and the last parsed document of one thread.
+     */
+    private static class Evaluator {
+        private final DocumentBuilder builder;
+        private final XPath xpath;
+        private final Map<String, XPathExpression> expressions = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
 
-            Document doc = builder.parse(inputSource);
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+                return size() > MAX_CACHED_EXPRESSIONS;
+            }
+        };
 
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            XPathExpression expr = xpath.compile(xpathExpression);
+        // guarded by this, as the document may be dropped by another thread
+        private @Nullable String source;
+        private @Nullable Document document;
 
-            String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+        Evaluator(DocumentBuilder builder, XPath xpath) {
+            this.builder = builder;
+            this.xpath = xpath;
+        }
 
-            logger.debug("transformation resulted in '{}'", transformationResult);
+        XPathExpression getExpression(String xpathExpression) throws XPathExpressionException {
+            XPathExpression expression = expressions.get(xpathExpression);
+            if (expression == null) {
+                expression = xpath.compile(xpathExpression);
+                expressions.put(xpathExpression, expression);
+            }
+            return expression;
+        }
 
-            return transformationResult;
-        } catch (Exception e) {
-            throw new TransformationException("transformation throws exceptions", e);
-        } finally {
-            if (stringReader != null) {
-                stringReader.close();
+        synchronized Document getDocument(String source) throws SAXException, IOException {
+            Document document = this.document;
+            if (document != null && source.equals(this.source)) {
+                return document;
+            }
+            clearDocument();
+
+            InputSource inputSource = new InputSource(new StringReader(source));
+            inputSource.setEncoding("UTF-8");
+            try {
+                document = builder.parse(inputSource);
+            } finally {
+                builder.reset();
             }
+
+            this.source = source;
+            this.document = document;
+            return document;
+        }
+
+        synchronized void clearDocument() {
+            source = null;
+            document = null;
         }
     }
 }
@@ -12,12 +12,15 @@
  */
 package org.openhab.transform.xslt.internal;
 
-import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
@@ -25,9 +28,13 @@ import javax.xml.transform.stream.StreamSource;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.OpenHAB;
+import org.openhab.core.service.WatchService;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,16 +46,39 @@ import org.slf4j.LoggerFactory;
  */
 @NonNullByDefault
 @Component(property = { "openhab.transform=XSLT" })
-public class XsltTransformationService implements TransformationService {
+public class XsltTransformationService implements TransformationService, WatchService.WatchEventListener {
 
     private final Logger logger = LoggerFactory.getLogger(XsltTransformationService.class);
 
+    private final WatchService watchService;
+    private final Map<Path, Stylesheet> cachedStylesheets = new ConcurrentHashMap<>();
+
+    @Activate
+    public XsltTransformationService(
+            final @Reference(target = WatchService.CONFIG_WATCHER_FILTER) WatchService watchService) {
+        this.watchService = watchService;
+        watchService.registerListener(this, Path.of(TransformationService.TRANSFORM_FOLDER_NAME));
+    }
+
+    @Deactivate
+    public void deactivate() {
+        watchService.unregisterListener(this);
+        cachedStylesheets.clear();
+    }
+
+    @Override
+    public void processWatchEvent(WatchService.Kind kind, Path path) {
+        // the stylesheet is compiled again on its next use
+        cachedStylesheets.keySet().removeIf(file -> file.endsWith(path));
+    }
+
     /**
      * Transforms the input <code>source</code> by XSLT.
      *
      * The method expects the transformation rule to be read from a file which
      * is stored under the 'configurations/transform' folder. To organize the
-     * various transformations one should use subfolders.
+     * various transformations one should use subfolders. The compiled rule is
+     * kept until the file is changed.
      *
      * @param filename the name of the file which contains the XSLT transformation rule.
      *            The name may contain subfoldernames as well
@@ -60,29 +90,34 @@ public class XsltTransformationService implements TransformationService {
             throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
         }
 
-        Source xsl = null;
-
-        try {
-            String path = OpenHAB.getConfigFolder() + File.separator + TransformationService.TRANSFORM_FOLDER_NAME
-                    + File.separator + filename;
-            xsl = new StreamSource(new File(path));
-        } catch (Exception e) {
-            String message = "opening file '" + filename + "' throws exception";
+        Path path = Path.of(OpenHAB.getConfigFolder(), TransformationService.TRANSFORM_FOLDER_NAME, filename)
+                .toAbsolutePath().normalize();
+        Stylesheet stylesheet = cachedStylesheets.get(path);
+        if (stylesheet == null) {
+            try {
+                Templates templates = TransformerFactory.newInstance().newTemplates(new StreamSource(path.toFile()));
+                stylesheet = new Stylesheet(templates);
+            } catch (Exception e) {
+                String message = "opening file '" + filename + "' throws exception";
 
-            logger.error("{}", message, e);
-            throw new TransformationException(message, e);
+                logger.error("{}", message, e);
+                throw new TransformationException(message, e);
+            }
+            cachedStylesheets.put(path, stylesheet);
         }
 
-        logger.debug("about to transform '{}' by the function '{}'", source, xsl);
+        logger.debug("about to transform '{}' by the function '{}'", source, path);
 
         StringReader xml = new StringReader(source);
         StringWriter out = new StringWriter();
 
-        Transformer transformer;
-
         try {
-            transformer = TransformerFactory.newInstance().newTransformer(xsl);
-            transformer.transform(new StreamSource(xml), new StreamResult(out));
+            Transformer transformer = stylesheet.getTransformer();
+            try {
+                transformer.transform(new StreamSource(xml), new StreamResult(out));
+            } finally {
+                transformer.reset();
+            }
         } catch (Exception e) {
             logger.error("transformation throws exception", e);
             throw new TransformationException("transformation throws exception", e);
@@ -92,4 +127,26 @@ public class XsltTransformationService implements TransformationService {
 
         return out.toString();
     }
+
+    /**
+     * A compiled stylesheet. The {@link Templates} can be shared, a {@link Transformer} must only be used by one
+     * thread at a time, so each thread keeps its own.
+     */
+    private static class Stylesheet {
+        private final Templates templates;
+        private final ThreadLocal<@Nullable Transformer> transformer = new ThreadLocal<>();
+
+        Stylesheet(Templates templates) {
+            this.templates = templates;
+        }
+
+        Transformer getTransformer() throws TransformerConfigurationException {
+            Transformer transformer = this.transformer.get();
+            if (transformer == null) {
+                transformer = templates.newTransformer();
+                this.transformer.set(transformer);
+            }
+            return transformer;
+        }
+    }
 }
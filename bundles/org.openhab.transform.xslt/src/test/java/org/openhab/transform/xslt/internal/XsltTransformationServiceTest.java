@@ -13,9 +13,18 @@
 package org.openhab.transform.xslt.internal;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openhab.core.OpenHAB;
+import org.openhab.core.service.WatchService;
 import org.openhab.core.transform.TransformationException;
 
 /**
@@ -23,11 +32,24 @@ import org.openhab.core.transform.TransformationException;
  */
 public class XsltTransformationServiceTest extends AbstractTransformationServiceTest {
 
+    private static final String STYLESHEET = """
+            <?xml version="1.0"?>
+            <xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+               <xsl:output method="text"/>
+               <xsl:template match="/">%s<xsl:value-of select="//temp_c/@data"/></xsl:template>
+            </xsl:stylesheet>
+            """;
+
     private XsltTransformationService processor;
 
     @BeforeEach
     public void init() {
-        processor = new XsltTransformationService();
+        processor = new XsltTransformationService(mock(WatchService.class));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty(OpenHAB.CONFIG_DIR_PROG_ARGUMENT);
     }
 
     @Test
@@ -38,4 +60,22 @@ public class XsltTransformationServiceTest extends AbstractTransformationService
         // Asserts
         assertEquals("8", transformedResponse);
     }
+
+    @Test
+    public void testStylesheetIsReloadedWhenChanged(@TempDir Path configFolder)
+            throws IOException, TransformationException {
+        System.setProperty(OpenHAB.CONFIG_DIR_PROG_ARGUMENT, configFolder.toString());
+        Path file = configFolder.resolve("transform").resolve("temperature.xsl");
+        Files.createDirectories(file.getParent());
+
+        Files.writeString(file, STYLESHEET.formatted("T="));
+        assertEquals("T=8", processor.transform("temperature.xsl", source));
+        assertEquals("T=8", processor.transform("temperature.xsl", source));
+
+        // the compiled stylesheet is used until the file watcher reports a change
+        Files.writeString(file, STYLESHEET.formatted("Temperature="));
+        assertEquals("T=8", processor.transform("temperature.xsl", source));
+        processor.processWatchEvent(WatchService.Kind.MODIFY, Path.of("temperature.xsl"));
+        assertEquals("Temperature=8", processor.transform("temperature.xsl", source));
+    }
 }